@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import com.example.demo.config.BlacklistProperties;
+import com.example.demo.model.SmsEvent;
+import com.example.demo.model.SmsRequest;
+import com.example.demo.service.BlacklistCache;
+import com.example.demo.service.SmsEventProducer;
+import com.example.demo.service.SmsProvider;
+import com.example.demo.service.SmsService;
+
+/**
+ * Cost of delivering N messages as N single sends versus one batch. Redis round trips are
+ * simulated (rttMicros), Kafka records are serialized but not sent, the provider is a no-op, and
+ * the near cache is off so every single send really pays its lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchSendBenchmark {
+
+    @Param({ "100", "1000" })
+    public int batchSize;
+
+    @Param({ "200" })
+    public long rttMicros;
+
+    private SmsService smsService;
+    private List<SmsRequest> requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimulatedRedisTemplate redis = new SimulatedRedisTemplate(rttMicros);
+        BlacklistProperties properties = new BlacklistProperties();
+        properties.getNearCache().setEnabled(false);
+        BlacklistCache cache = new BlacklistCache(redis, properties);
+
+        requests = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            String phoneNumber = "+1555" + (1_000_000 + i);
+            requests.add(new SmsRequest(phoneNumber, "Your verification code is " + (100_000 + i)));
+            if (i % 50 == 0) {
+                redis.blacklist(phoneNumber);
+            }
+        }
+        smsService = new SmsService(cache, new SmsEventProducer(new SerializingKafkaTemplate()), new NoopProvider());
+    }
+
+    @Benchmark
+    public int singleSends() {
+        int sent = 0;
+        for (SmsRequest request : requests) {
+            sent += smsService.sendSms(request).length();
+        }
+        return sent;
+    }
+
+    @Benchmark
+    public int batchSend() {
+        return smsService.sendBatch(requests).size();
+    }
+
+    // Serializes like the real producer would, without a broker
+    static class SerializingKafkaTemplate extends KafkaTemplate<String, SmsEvent> {
+        private final JsonSerializer<SmsEvent> serializer = new JsonSerializer<>();
+
+        SerializingKafkaTemplate() {
+            super(new DefaultKafkaProducerFactory<>(Map.of()));
+        }
+
+        @Override
+        public CompletableFuture<SendResult<String, SmsEvent>> send(String topic, String key, SmsEvent data) {
+            serializer.serialize(topic, data);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    static class NoopProvider implements SmsProvider {
+        @Override
+        public String name() {
+            return "noop";
+        }
+
+        @Override
+        public void sendSms(String phoneNumber, String message) {
+        }
+    }
+}
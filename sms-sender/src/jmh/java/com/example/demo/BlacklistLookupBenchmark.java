@@ -0,0 +1,61 @@
+package com.example.demo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.demo.config.BlacklistProperties;
+import com.example.demo.service.BlacklistCache;
+
+/**
+ * One BlacklistCache.isBlacklisted call against the simulated Redis, cycling through 1024
+ * numbers of which 1 in 50 is blacklisted. With the near cache on, every number is cached after
+ * warmup, so this is the in-process hit path; with it off each call pays a round trip. rttMicros
+ * 0 leaves only the client-side cost of a miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BlacklistLookupBenchmark {
+
+    @Param({ "true", "false" })
+    public boolean nearCache;
+
+    @Param({ "0", "200" })
+    public long rttMicros;
+
+    private BlacklistCache cache;
+    private String[] phoneNumbers;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimulatedRedisTemplate redis = new SimulatedRedisTemplate(rttMicros);
+        BlacklistProperties properties = new BlacklistProperties();
+        properties.getNearCache().setEnabled(nearCache);
+        cache = new BlacklistCache(redis, properties);
+
+        phoneNumbers = new String[1024];
+        for (int i = 0; i < phoneNumbers.length; i++) {
+            phoneNumbers[i] = "+1555" + (1_000_000 + i);
+            if (i % 50 == 0) {
+                redis.blacklist(phoneNumbers[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean isBlacklisted() {
+        String phoneNumber = phoneNumbers[next];
+        next = (next + 1) & (phoneNumbers.length - 1);
+        return cache.isBlacklisted(phoneNumber);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.demo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.slf4j.LoggerFactory;
+
+import com.example.demo.config.EventLogProperties;
+import com.example.demo.model.SmsEvent;
+import com.example.demo.service.SmsEventLogger;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.JsonEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+
+/**
+ * Send-path cost of logging every event, with 8 sending threads. println is what the producer
+ * used to do: an autoflushed PrintStream, so every thread takes the stream lock and waits for
+ * its write. eventLogger is SmsEventLogger behind an AsyncAppender, as configured in
+ * logback-spring.xml (logback's JsonEncoder stands in for Spring Boot's structured encoder,
+ * which needs a running application). The appender blocks when its buffer is full, so at
+ * sampleRate 1.0 the throughput is bounded by the writer thread rather than inflated by drops.
+ * Both write to a temp file so the console stays readable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class EventLoggingBenchmark {
+
+    @Param({ "1.0", "0.01" })
+    public double sampleRate;
+
+    private final AtomicLong ids = new AtomicLong();
+    private File file;
+    private PrintStream out;
+    private AsyncAppender async;
+    private SmsEventLogger eventLogger;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("event-logging", ".log");
+        out = new PrintStream(new FileOutputStream(file, true), true);
+
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        JsonEncoder encoder = new JsonEncoder();
+        encoder.setContext(context);
+        encoder.start();
+        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setFile(file.getPath());
+        fileAppender.setEncoder(encoder);
+        fileAppender.start();
+        async = new AsyncAppender();
+        async.setContext(context);
+        async.setQueueSize(8192);
+        async.setDiscardingThreshold(0);
+        async.setNeverBlock(false);
+        async.addAppender(fileAppender);
+        async.start();
+
+        Logger logger = context.getLogger("sms.events");
+        logger.detachAndStopAllAppenders();
+        logger.setAdditive(false);
+        logger.setLevel(ch.qos.logback.classic.Level.INFO);
+        logger.addAppender(async);
+
+        EventLogProperties properties = new EventLogProperties();
+        properties.setSampleRate(sampleRate);
+        eventLogger = new SmsEventLogger(properties);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        async.stop();
+        out.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public void println() {
+        SmsEvent event = event();
+        out.println("Produced SMS Event: phoneNumber=" + event.getPhoneNumber() + ", message=" + event.getMessage()
+                + ", status=" + event.getStatus() + ", eventId=" + event.getEventId());
+    }
+
+    @Benchmark
+    public void eventLogger() {
+        eventLogger.log(event());
+    }
+
+    private SmsEvent event() {
+        SmsEvent event = new SmsEvent("+15551234567", "Your verification code is 482913. It expires in 10 minutes.",
+                "successful");
+        event.setEventId("msg-" + ids.incrementAndGet());
+        event.setAttempt(1);
+        event.setSegments(1);
+        return event;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.demo;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.demo.service.E164;
+
+/**
+ * Phone number check and canonicalization: the precompiled regex SmsRequest used to carry (plus
+ * the concat that canonical keys would need on top of it) against E164. A canonical number, one
+ * missing its '+', and a malformed one. E164 should report 0 B/op in gc.alloc.rate.norm except
+ * where the '+' has to be added; the regex allocates a Matcher every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PhoneNumberBenchmark {
+    private static final Pattern PHONE = Pattern.compile("^\\+?[1-9]\\d{9,14}$");
+
+    @Param({ "+15551234567", "15551234567", "+1555-123-4567" })
+    public String phoneNumber;
+
+    @Benchmark
+    public boolean regexIsValid() {
+        return PHONE.matcher(phoneNumber).matches();
+    }
+
+    @Benchmark
+    public boolean e164IsValid() {
+        return E164.isValid(phoneNumber);
+    }
+
+    @Benchmark
+    public String regexNormalize() {
+        if (!PHONE.matcher(phoneNumber).matches()) {
+            return null;
+        }
+        return phoneNumber.startsWith("+") ? phoneNumber : "+" + phoneNumber;
+    }
+
+    @Benchmark
+    public String e164Normalize() {
+        return E164.normalize(phoneNumber);
+    }
+}
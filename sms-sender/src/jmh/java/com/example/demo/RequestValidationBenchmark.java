@@ -0,0 +1,60 @@
+package com.example.demo;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.example.demo.model.SmsRequest;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+
+/**
+ * Bean Validation of one SmsRequest, as the controller does before every send: a valid request
+ * and one with a malformed phone number (violations build and interpolate their messages). The
+ * phone check on its own is in PhoneNumberBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestValidationBenchmark {
+
+    private ValidatorFactory factory;
+    private Validator validator;
+    private SmsRequest valid;
+    private SmsRequest invalidPhone;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+        valid = new SmsRequest("+15551234567", "Your verification code is 482913. It expires in 10 minutes.");
+        invalidPhone = new SmsRequest("+1555-123-4567", "Your verification code is 482913. It expires in 10 minutes.");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<SmsRequest>> validRequest() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<SmsRequest>> invalidPhone() {
+        return validator.validate(invalidPhone);
+    }
+}
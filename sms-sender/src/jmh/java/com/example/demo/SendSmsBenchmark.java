@@ -0,0 +1,66 @@
+package com.example.demo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.demo.config.BlacklistProperties;
+import com.example.demo.model.SmsRequest;
+import com.example.demo.service.BlacklistCache;
+import com.example.demo.service.SendMetrics;
+import com.example.demo.service.SmsEventProducer;
+import com.example.demo.service.SmsService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The whole SmsService.sendSms path for one message with I/O stubbed out: blacklist lookup
+ * against the simulated Redis (near cache on, as deployed), a no-op provider, the event
+ * serialized as JSON but not sent, and stage timers recording into a real registry. What is
+ * left is the service's own overhead per send.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SendSmsBenchmark {
+
+    @Param({ "0" })
+    public long rttMicros;
+
+    private SmsService smsService;
+    private SmsRequest[] requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimulatedRedisTemplate redis = new SimulatedRedisTemplate(rttMicros);
+        BlacklistCache cache = new BlacklistCache(redis, new BlacklistProperties());
+
+        requests = new SmsRequest[1024];
+        for (int i = 0; i < requests.length; i++) {
+            String phoneNumber = "+1555" + (1_000_000 + i);
+            requests[i] = new SmsRequest(phoneNumber, "Your verification code is " + (100_000 + i));
+            if (i % 50 == 0) {
+                redis.blacklist(phoneNumber);
+            }
+        }
+        smsService = new SmsService(cache,
+                new SmsEventProducer(new BatchSendBenchmark.SerializingKafkaTemplate()),
+                new BatchSendBenchmark.NoopProvider(), null, new SendMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public String sendSms() {
+        SmsRequest request = requests[next];
+        next = (next + 1) & (requests.length - 1);
+        return smsService.sendSms(request);
+    }
+}
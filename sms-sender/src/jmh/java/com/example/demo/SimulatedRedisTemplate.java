@@ -0,0 +1,78 @@
+package com.example.demo;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+/**
+ * Key-per-number Redis stand-in for benchmarks: every command costs one simulated network round
+ * trip, whether it carries one key or a thousand, which is what batching is meant to exploit.
+ */
+class SimulatedRedisTemplate extends StringRedisTemplate {
+    private final Set<String> keys = ConcurrentHashMap.newKeySet();
+    private final long roundTripNanos;
+    private final ValueOperations<String, String> valueOps;
+
+    @SuppressWarnings("unchecked")
+    SimulatedRedisTemplate(long roundTripMicros) {
+        this.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+        this.valueOps = (ValueOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ValueOperations.class }, (proxy, method, args) -> {
+                    roundTrip();
+                    switch (method.getName()) {
+                        case "set":
+                            keys.add((String) args[0]);
+                            return null;
+                        case "multiGet":
+                            List<String> values = new ArrayList<>();
+                            for (Object key : (Collection<?>) args[0]) {
+                                values.add(keys.contains(key) ? "1" : null);
+                            }
+                            return values;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Override
+    public Boolean hasKey(String key) {
+        roundTrip();
+        return keys.contains(key);
+    }
+
+    @Override
+    public Long countExistingKeys(Collection<String> keys) {
+        roundTrip();
+        return keys.stream().filter(this.keys::contains).count();
+    }
+
+    @Override
+    public ValueOperations<String, String> opsForValue() {
+        return valueOps;
+    }
+
+    @Override
+    public Long convertAndSend(String channel, Object message) {
+        roundTrip();
+        return 0L;
+    }
+
+    void blacklist(String phoneNumber) {
+        keys.add("blacklist:" + phoneNumber);
+    }
+
+    private void roundTrip() {
+        if (roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import com.example.demo.model.SmsEvent;
+import com.example.demo.service.SmsEventBinarySerializer;
+
+/**
+ * Serialize cost of one SmsEvent as JSON (what JsonSerializer puts on the wire) versus the
+ * binary layout. Run with -Pjmh.profilers=gc for allocation per op (gc.alloc.rate.norm); bytes
+ * per event are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SmsEventSerializationBenchmark {
+
+    private final JsonSerializer<SmsEvent> json = new JsonSerializer<>();
+    private final SmsEventBinarySerializer binary = new SmsEventBinarySerializer();
+    private SmsEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        event = new SmsEvent("+15551234567", "Your verification code is 482913. It expires in 10 minutes.", "successful");
+        event.setEventId("3f6c1b7e-8f1a-4d55-9a57-0b6d8c3e2f10");
+        System.out.printf("%nbytes/event: json=%d binary=%d%n", json.serialize("sms_events", event).length,
+                binary.serialize("sms_events", event).length);
+    }
+
+    @Benchmark
+    public byte[] json() {
+        return json.serialize("sms_events", event);
+    }
+
+    @Benchmark
+    public byte[] binary() {
+        return binary.serialize("sms_events", event);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.demo.service.SmsSegmenter;
+
+/**
+ * Segment counting (done for every event) and part building over a mix shaped like real
+ * traffic: mostly short GSM-7 one-time codes, some long GSM-7 notices with extension
+ * characters, and UCS-2 bodies in Cyrillic, Devanagari and with emoji. Each op covers the whole
+ * mix. Run with -Pjmh.profilers=gc to confirm counting allocates nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SmsSegmenterBenchmark {
+
+    private final String[] messages = {
+            "Your verification code is 482913. It expires in 10 minutes.",
+            "Your verification code is 771204. Do not share it with anyone.",
+            "Your verification code is 390551.",
+            "Your verification code is 128834. It expires in 10 minutes.",
+            "Your verification code is 904417.",
+            "Hi Anna, your order #48213 has shipped and arrives Tuesday. Track it: https://example.com/t/48213",
+            "Reminder: your appointment is on 12/03 at 14:30 [ref ABC-123]. Reply C to cancel or R to reschedule. "
+                    + "Bring your ID card {required} and arrive ten minutes early. Parking costs €3 per hour.",
+            "Ваш код подтверждения 482913. Никому не сообщайте его.",
+            "आपका सत्यापन कोड 482913 है। इसे किसी के साथ साझा न करें। यह कोड दस मिनट में समाप्त हो जाएगा।",
+            "Happy birthday! 🎉🎂 Enjoy 20% off everything today with code BDAY20 🎁",
+    };
+
+    @Benchmark
+    public int segments() {
+        int total = 0;
+        for (String message : messages) {
+            total += SmsSegmenter.segments(message);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int parts() {
+        int total = 0;
+        for (String message : messages) {
+            List<String> parts = SmsSegmenter.parts(message);
+            total += parts.size();
+        }
+        return total;
+    }
+}
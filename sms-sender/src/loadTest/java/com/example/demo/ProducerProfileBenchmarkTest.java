@@ -0,0 +1,103 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import com.example.demo.config.SmsKafkaProperties;
+import com.example.demo.config.SmsKafkaProperties.ProducerProfile;
+import com.example.demo.model.SmsEvent;
+import com.example.demo.service.SmsEventProducer;
+
+/**
+ * Publishes the same events through SmsEventProducer once per producer profile against an
+ * embedded broker and reports events/sec and wire bytes/event (after batching and compression,
+ * from the producer's outgoing-byte-total metric).
+ */
+class ProducerProfileBenchmarkTest {
+
+    private static final int EVENTS = 100_000;
+    private static final int WARMUP_EVENTS = 10_000;
+
+    private static EmbeddedKafkaKraftBroker broker;
+
+    @BeforeAll
+    static void startBroker() {
+        broker = new EmbeddedKafkaKraftBroker(1, 4, "sms_events");
+        broker.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopBroker() {
+        broker.destroy();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ProducerProfile.class)
+    void publish(ProducerProfile profile) throws InterruptedException {
+        Map<String, Object> configs = new HashMap<>(profile.settings());
+        configs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        configs.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configs.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        DefaultKafkaProducerFactory<String, SmsEvent> factory = new DefaultKafkaProducerFactory<>(configs);
+        KafkaTemplate<String, SmsEvent> template = new KafkaTemplate<>(factory);
+        SmsKafkaProperties properties = new SmsKafkaProperties();
+        properties.getRetryBuffer().setCapacity(EVENTS);
+        SmsEventProducer producer = new SmsEventProducer(template, properties);
+        try {
+            publishAndAwait(producer, WARMUP_EVENTS, 0);
+            double bytesBefore = outgoingBytes(template);
+
+            long start = System.nanoTime();
+            publishAndAwait(producer, EVENTS, WARMUP_EVENTS);
+            long elapsed = System.nanoTime() - start;
+
+            double bytesPerEvent = (outgoingBytes(template) - bytesBefore) / EVENTS;
+            System.out.printf("%-16s events=%d elapsed=%dms throughput=%.0f events/s bytes/event=%.1f%n",
+                    profile, EVENTS, TimeUnit.NANOSECONDS.toMillis(elapsed), EVENTS / (elapsed / 1e9), bytesPerEvent);
+            assertEquals(0, producer.failedCount());
+        } finally {
+            producer.shutdown();
+            factory.destroy();
+        }
+    }
+
+    private static void publishAndAwait(SmsEventProducer producer, int count, long alreadyAcked) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            SmsEvent event = new SmsEvent("+1555" + (1_000_000 + i % 10_000), "Your verification code is " + (100_000 + i),
+                    "successful");
+            event.setEventId("evt-" + alreadyAcked + "-" + i);
+            producer.sendSmsEvent(event);
+        }
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (producer.ackedCount() < alreadyAcked + count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(alreadyAcked + count, producer.ackedCount());
+    }
+
+    private static double outgoingBytes(KafkaTemplate<String, SmsEvent> template) {
+        for (Map.Entry<MetricName, ? extends Metric> metric : template.metrics().entrySet()) {
+            MetricName name = metric.getKey();
+            if (name.name().equals("outgoing-byte-total") && name.group().equals("producer-metrics")) {
+                return ((Number) metric.getValue().metricValue()).doubleValue();
+            }
+        }
+        throw new IllegalStateException("Producer exposes no outgoing-byte-total metric");
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.example.demo.config.ProviderClientConfig;
+import com.example.demo.config.ProviderProperties;
+import com.example.demo.service.ProviderConnectionMetrics;
+import com.example.demo.service.TwillioService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Sends through TwillioService and the real provider HTTP client from one virtual thread per
+ * call (at most IN_FLIGHT at once) while the stub provider is slow, and records every jdk.VirtualThreadPinned event (no
+ * duration threshold). The provider call must never block with its carrier pinned: a pinned
+ * frame in the provider client or java.net.http fails the test. ./gradlew loadTest also runs
+ * with -Djdk.tracePinnedThreads=short, which prints any pinned stack.
+ */
+class ProviderPinningLoadTest {
+
+    private static final int CALLS = 2_000;
+    private static final int IN_FLIGHT = 200;
+    private static final long PROVIDER_MILLIS = 50;
+
+    @ParameterizedTest
+    @EnumSource(ProviderProperties.Protocol.class)
+    void providerCallsDoNotPinCarriers(ProviderProperties.Protocol protocol) throws Exception {
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (StubProviderServer provider = new StubProviderServer(protocol == ProviderProperties.Protocol.HTTP_2);
+                RecordingStream recording = new RecordingStream()) {
+            provider.setLatencyMillis(PROVIDER_MILLIS);
+            ProviderProperties properties = new ProviderProperties();
+            properties.setProtocol(protocol);
+            provider.configure(properties);
+            ProviderConnectionMetrics connectionMetrics = new ProviderConnectionMetrics();
+            TwillioService service = new TwillioService(ProviderClientConfig.builder(properties,
+                    connectionMetrics.countConnections(StubProviderServer.clientSslContext())).build(), properties,
+                    new SimpleMeterRegistry(), connectionMetrics);
+            // Until the first HTTP/2 connection is up every call opens its own; let one call open it
+            service.sendSms("+15551234567", "Warm-up");
+
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+            // Bounded like the provider bulkhead, so the stub server isn't flooded with handshakes
+            Semaphore inFlight = new Semaphore(IN_FLIGHT);
+            List<String> failures = new CopyOnWriteArrayList<>();
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < CALLS; i++) {
+                    String message = "Message " + i;
+                    inFlight.acquire();
+                    executor.submit(() -> {
+                        try {
+                            service.sendSms("+15551234567", message);
+                        } catch (RuntimeException e) {
+                            failures.add(e.getMessage());
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            // Flushes and delivers everything recorded so far
+            recording.stop();
+
+            assertEquals(List.of(), failures);
+            assertEquals(CALLS + 1, provider.requestCount());
+            System.out.printf("%-8s calls=%d elapsed=%dms connections=%d reuse=%.3f pinnedEvents=%d%n", protocol, CALLS,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), connectionMetrics.openedCount(),
+                    connectionMetrics.reuseRatio(), pinned.size());
+        }
+        List<String> inProviderCall = pinned.stream()
+                .filter(ProviderPinningLoadTest::inProviderCall)
+                .map(event -> event.getStackTrace().getFrames().stream()
+                        .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                        .toList()
+                        .toString())
+                .toList();
+        inProviderCall.forEach(stack -> System.out.println("pinned: " + stack));
+        assertTrue(inProviderCall.isEmpty(), inProviderCall.size() + " pinned events in the provider call");
+    }
+
+    private static boolean inProviderCall(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return false;
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith("java.net.http.") || type.startsWith("jdk.internal.net.http.")
+                    || type.equals(TwillioService.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
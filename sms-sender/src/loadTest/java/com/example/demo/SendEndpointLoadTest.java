@@ -0,0 +1,248 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.net.ssl.SSLContext;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.demo.service.SendMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import redis.embedded.RedisServer;
+
+/**
+ * Finds the throughput ceiling of POST v1/sms/send. The whole application runs against local
+ * stand-ins: an embedded Redis server, an embedded Kafka broker and StubProviderServer with a
+ * fixed response delay. Load is open loop: requests start on a fixed schedule whether or not
+ * earlier ones have finished, and latency is measured from the scheduled start, so a stalled
+ * server shows up as queueing delay instead of slowing the generator down.
+ *
+ * <p>Each rate step prints throughput, p50/p99/p999 latency, the outcome of every request and
+ * the server's mean time per send stage (from sms.send.stage). The test fails when a step's
+ * error rate exceeds load.max-error-rate, or its p99 exceeds load.max-p99-ms when that is set.
+ * Tune with e.g. ./gradlew loadTest --tests SendEndpointLoadTest -Pload.rates=500,1000,2000
+ * -Pload.duration=30 -Pload.provider-latency-ms=50.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+        "sms.provider.protocol=http-2",
+        "sms.provider.twilio.account-sid=ACstub",
+        "sms.provider.twilio.auth-token=token",
+        "sms.provider.twilio.from=+15550000000",
+        "sms.provider.vonage.enabled=false",
+        // One client and a handful of recipients would otherwise be throttled within a second
+        "sms.rate-limit.enabled=false",
+        // Failed sends count as errors here rather than being retried in the background
+        "sms.send.retry.enabled=false" })
+@EmbeddedKafka(kraft = true, partitions = 4, topics = "sms_events",
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class SendEndpointLoadTest {
+
+    private static final int[] RATES = Arrays.stream(System.getProperty("load.rates", "100,250,500").split(","))
+            .mapToInt(rate -> Integer.parseInt(rate.trim()))
+            .toArray();
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.duration", 10));
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup", 5));
+    private static final long PROVIDER_LATENCY_MILLIS = Long.getLong("load.provider-latency-ms", 20);
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("load.max-error-rate", "0.001"));
+    private static final long MAX_P99_MILLIS = Long.getLong("load.max-p99-ms", 0);
+
+    private static RedisServer redis;
+    private static StubProviderServer provider;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @DynamicPropertySource
+    static void standIns(DynamicPropertyRegistry properties) {
+        int redisPort;
+        try {
+            redisPort = freePort();
+            redis = new RedisServer(redisPort);
+            redis.start();
+            provider = new StubProviderServer(true);
+            // The provider client bean trusts the default context
+            SSLContext.setDefault(StubProviderServer.clientSslContext());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        provider.setLatencyMillis(PROVIDER_LATENCY_MILLIS);
+        properties.add("spring.data.redis.port", () -> redisPort);
+        properties.add("sms.provider.twilio.base-url", provider::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStandIns() throws IOException {
+        provider.close();
+        redis.stop();
+    }
+
+    @Test
+    void sendEndpointUnderOpenLoopLoad() {
+        run(RATES[0], WARMUP);
+        System.out.printf("provider latency=%dms, %ds per step%n", PROVIDER_LATENCY_MILLIS, DURATION.toSeconds());
+        for (int rate : RATES) {
+            Step step = run(rate, DURATION);
+            step.print();
+            assertTrue(step.errorRate() <= MAX_ERROR_RATE,
+                    String.format(Locale.ROOT, "%d/s: error rate %.3f%%", rate, step.errorRate() * 100));
+            if (MAX_P99_MILLIS > 0) {
+                assertTrue(step.percentileMillis(0.99) <= MAX_P99_MILLIS,
+                        String.format(Locale.ROOT, "%d/s: p99 %.1fms", rate, step.percentileMillis(0.99)));
+            }
+        }
+    }
+
+    private Step run(int rate, Duration duration) {
+        int requests = (int) (rate * duration.toSeconds());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long[] latencies = new long[requests];
+        String[] outcomes = new String[requests];
+        StageTotals before = stageTotals();
+
+        URI uri = URI.create("http://localhost:" + port + "/v1/sms/send");
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                long scheduled = start + i * intervalNanos;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                int n = i;
+                executor.execute(() -> {
+                    outcomes[n] = send(uri, n);
+                    latencies[n] = System.nanoTime() - scheduled;
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        Map<String, Integer> counts = new TreeMap<>();
+        for (String outcome : outcomes) {
+            counts.merge(outcome, 1, Integer::sum);
+        }
+        return new Step(rate, latencies, counts, elapsed, stageTotals().minus(before));
+    }
+
+    // "200", "200 not sent" (the service answered but reported a failure), another status code,
+    // or the exception's class name when there was no response
+    private String send(URI uri, int n) {
+        String body = "{\"phoneNumber\":\"+1555" + (1_000_000 + n % 1_000_000)
+                + "\",\"message\":\"Load test message " + n + "\"}";
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200 && !response.body().contains("\"result\":\"SMS sent")) {
+                return "200 not sent";
+            }
+            return String.valueOf(response.statusCode());
+        } catch (IOException e) {
+            return e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        }
+    }
+
+    private StageTotals stageTotals() {
+        SendMetrics.Stage[] stages = SendMetrics.Stage.values();
+        long[] counts = new long[stages.length];
+        double[] nanos = new double[stages.length];
+        for (SendMetrics.Stage stage : stages) {
+            Timer timer = registry.get("sms.send.stage").tag("stage", stage.name().toLowerCase(Locale.ROOT)).timer();
+            counts[stage.ordinal()] = timer.count();
+            nanos[stage.ordinal()] = timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        return new StageTotals(counts, nanos);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record StageTotals(long[] counts, double[] nanos) {
+        StageTotals minus(StageTotals earlier) {
+            long[] deltaCounts = new long[counts.length];
+            double[] deltaNanos = new double[nanos.length];
+            for (int i = 0; i < counts.length; i++) {
+                deltaCounts[i] = counts[i] - earlier.counts[i];
+                deltaNanos[i] = nanos[i] - earlier.nanos[i];
+            }
+            return new StageTotals(deltaCounts, deltaNanos);
+        }
+
+        double meanMillis(int stage) {
+            return counts[stage] == 0 ? 0 : nanos[stage] / counts[stage] / 1e6;
+        }
+    }
+
+    private record Step(int rate, long[] sortedLatencies, Map<String, Integer> outcomes, long elapsedNanos,
+            StageTotals stages) {
+
+        double errorRate() {
+            return 1 - (double) outcomes.getOrDefault("200", 0) / sortedLatencies.length;
+        }
+
+        double percentileMillis(double quantile) {
+            int index = Math.min(sortedLatencies.length - 1, (int) Math.ceil(quantile * sortedLatencies.length) - 1);
+            return sortedLatencies[index] / 1e6;
+        }
+
+        void print() {
+            System.out.printf(Locale.ROOT,
+                    "rate=%d/s requests=%d throughput=%.0f/s errors=%.3f%% p50=%.1fms p99=%.1fms p999=%.1fms max=%.1fms%n",
+                    rate, sortedLatencies.length, sortedLatencies.length / (elapsedNanos / 1e9), errorRate() * 100,
+                    percentileMillis(0.50), percentileMillis(0.99), percentileMillis(0.999),
+                    sortedLatencies[sortedLatencies.length - 1] / 1e6);
+            System.out.println("  outcomes " + outcomes);
+            StringBuilder line = new StringBuilder("  server stage means:");
+            for (SendMetrics.Stage stage : SendMetrics.Stage.values()) {
+                line.append(String.format(Locale.ROOT, " %s=%.2fms", stage.name().toLowerCase(Locale.ROOT),
+                        stages.meanMillis(stage.ordinal())));
+            }
+            System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.example.demo.model.SmsEvent;
+import com.example.demo.model.SmsRequest;
+import com.example.demo.service.BlacklistCache;
+import com.example.demo.service.SmsEventProducer;
+import com.example.demo.service.SmsProvider;
+import com.example.demo.service.SmsService;
+
+/**
+ * Drives SmsService.sendSms through a Tomcat-sized platform pool and through one virtual thread
+ * per request while the provider has a latency spike. Redis and the provider are simulated with
+ * sleeps; the near cache is the real one, so a lookup that pins its carrier shows up in the
+ * jdk.tracePinnedThreads output of ./gradlew loadTest.
+ */
+class VirtualThreadLoadTest {
+
+    // Tomcat's default server.tomcat.threads.max
+    private static final int PLATFORM_THREADS = 200;
+    private static final int REQUESTS = 5_000;
+    private static final int DISTINCT_NUMBERS = 1_000;
+    private static final long REDIS_RTT_MILLIS = 1;
+    private static final long PROVIDER_MILLIS = 50;
+
+    @Test
+    void virtualThreadsKeepMoreSendsInFlightDuringProviderSpike() throws Exception {
+        Result platform = run("platform", Executors.newFixedThreadPool(PLATFORM_THREADS));
+        Result virtual = run("virtual", Executors.newVirtualThreadPerTaskExecutor());
+
+        assertTrue(platform.maxConcurrency <= PLATFORM_THREADS);
+        assertTrue(virtual.maxConcurrency > platform.maxConcurrency,
+                "virtual " + virtual.maxConcurrency + " vs platform " + platform.maxConcurrency);
+        assertTrue(virtual.p99Millis < platform.p99Millis,
+                "virtual p99 " + virtual.p99Millis + "ms vs platform p99 " + platform.p99Millis + "ms");
+    }
+
+    private Result run(String mode, ExecutorService executor) throws Exception {
+        SlowProvider provider = new SlowProvider();
+        SmsService service = new SmsService(new BlacklistCache(slowRedis()), new NoopProducer(), provider);
+
+        List<Future<Long>> latencies = new ArrayList<>(REQUESTS);
+        long start = System.nanoTime();
+        try (executor) {
+            for (int i = 0; i < REQUESTS; i++) {
+                SmsRequest request = new SmsRequest("+1" + (2000000000L + i % DISTINCT_NUMBERS), "Hello");
+                long submitted = System.nanoTime();
+                latencies.add(executor.submit(() -> {
+                    service.sendSms(request);
+                    return System.nanoTime() - submitted;
+                }));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long[] sorted = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            sorted[i] = latencies.get(i).get();
+        }
+        Arrays.sort(sorted);
+        assertEquals(REQUESTS, provider.calls.get());
+
+        Result result = new Result(provider.maxInFlight.get(), TimeUnit.NANOSECONDS.toMillis(percentile(sorted, 0.50)),
+                TimeUnit.NANOSECONDS.toMillis(percentile(sorted, 0.99)));
+        System.out.printf("%-8s requests=%d elapsed=%dms throughput=%.0f/s maxConcurrency=%d p50=%dms p99=%dms%n",
+                mode, REQUESTS, TimeUnit.NANOSECONDS.toMillis(elapsed), REQUESTS / (elapsed / 1e9),
+                result.maxConcurrency, result.p50Millis, result.p99Millis);
+        return result;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static StringRedisTemplate slowRedis() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class, withSettings().stubOnly());
+        when(template.countExistingKeys(any())).thenAnswer(invocation -> {
+            Thread.sleep(REDIS_RTT_MILLIS);
+            return 0L;
+        });
+        return template;
+    }
+
+    private record Result(int maxConcurrency, long p50Millis, long p99Millis) {
+    }
+
+    private static class SlowProvider implements SmsProvider {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public String name() {
+            return "slow";
+        }
+
+        @Override
+        public void sendSms(String phoneNumber, String message) {
+            calls.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(PROVIDER_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private static class NoopProducer extends SmsEventProducer {
+        NoopProducer() {
+            super(null);
+        }
+
+        @Override
+        public void sendSmsEvent(SmsEvent smsEvent) {
+        }
+
+        @Override
+        public void sendSmsEvents(List<SmsEvent> smsEvents) {
+        }
+
+        @Override
+        public void sendSmsEventsNoWait(List<SmsEvent> smsEvents) {
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "sms.blacklist")
+public class BlacklistProperties {
+    public enum Storage {
+        // One "blacklist:<number>" key per number (original layout)
+        KEYS,
+        // Numbers packed into bucketed integer sets
+        PACKED,
+        // Dual-write both layouts while the packed one is backfilled
+        MIGRATING
+    }
+
+    private Storage storage = Storage.KEYS;
+    private int packedBuckets = 65536;
+    private final NearCache nearCache = new NearCache();
+    private final LocalSet localSet = new LocalSet();
+    private final BloomFilter bloomFilter = new BloomFilter();
+    private final Bulk bulk = new Bulk();
+    // Pub/sub channel every replica listens on to evict numbers changed elsewhere
+    private String invalidationChannel = "blacklist:invalidations";
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    public void setStorage(Storage storage) {
+        this.storage = storage;
+    }
+
+    public int getPackedBuckets() {
+        return packedBuckets;
+    }
+
+    public void setPackedBuckets(int packedBuckets) {
+        this.packedBuckets = packedBuckets;
+    }
+
+    public NearCache getNearCache() {
+        return nearCache;
+    }
+
+    public LocalSet getLocalSet() {
+        return localSet;
+    }
+
+    public BloomFilter getBloomFilter() {
+        return bloomFilter;
+    }
+
+    public Bulk getBulk() {
+        return bulk;
+    }
+
+    public String getInvalidationChannel() {
+        return invalidationChannel;
+    }
+
+    public void setInvalidationChannel(String invalidationChannel) {
+        this.invalidationChannel = invalidationChannel;
+    }
+
+    public static class NearCache {
+        private boolean enabled = true;
+        // How long a Redis answer (hit or miss) is trusted locally
+        private Duration ttl = Duration.ofSeconds(30);
+        private long maximumSize = 100_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+    }
+
+    // Full in-process mirror of the blacklist as a primitive long set; when enabled every
+    // lookup is answered locally and the near cache and bloom filter are bypassed
+    public static class LocalSet {
+        private boolean enabled = false;
+        private int expectedSize = 1_000_000;
+        // Full rebuild from Redis, catching any change whose invalidation message was lost
+        private Duration rebuildInterval = Duration.ofHours(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getExpectedSize() {
+            return expectedSize;
+        }
+
+        public void setExpectedSize(int expectedSize) {
+            this.expectedSize = expectedSize;
+        }
+
+        public Duration getRebuildInterval() {
+            return rebuildInterval;
+        }
+
+        public void setRebuildInterval(Duration rebuildInterval) {
+            this.rebuildInterval = rebuildInterval;
+        }
+    }
+
+    public static class BloomFilter {
+        private boolean enabled = false;
+        private long expectedInsertions = 1_000_000;
+        private double falsePositiveRate = 0.01;
+        // Hard cap on the bit array; a larger blacklist than planned raises the real FPR instead
+        private DataSize maxMemory = DataSize.ofMegabytes(16);
+        // Full rebuild from Redis, also dropping numbers that have since been removed
+        private Duration rebuildInterval = Duration.ofHours(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getExpectedInsertions() {
+            return expectedInsertions;
+        }
+
+        public void setExpectedInsertions(long expectedInsertions) {
+            this.expectedInsertions = expectedInsertions;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        public DataSize getMaxMemory() {
+            return maxMemory;
+        }
+
+        public void setMaxMemory(DataSize maxMemory) {
+            this.maxMemory = maxMemory;
+        }
+
+        public Duration getRebuildInterval() {
+            return rebuildInterval;
+        }
+
+        public void setRebuildInterval(Duration rebuildInterval) {
+            this.rebuildInterval = rebuildInterval;
+        }
+    }
+
+    public static class Bulk {
+        // Numbers written per pipelined round trip during an import
+        private int batchSize = 1000;
+        // How long finished job status stays queryable
+        private Duration jobRetention = Duration.ofHours(1);
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getJobRetention() {
+            return jobRetention;
+        }
+
+        public void setJobRetention(Duration jobRetention) {
+            this.jobRetention = jobRetention;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "sms.logging.events")
+public class EventLogProperties {
+    private boolean enabled = true;
+    // Share of messages logged; all attempts of a message are in or out together
+    private double sampleRate = 0.01;
+    // Log every failed or retried provider attempt regardless of sampling; blocked and throttled
+    // events are sampled
+    private boolean alwaysLogFailures = true;
+    // Mask the phone number and leave the message body out (only its length and segments)
+    private boolean redact = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public boolean isAlwaysLogFailures() {
+        return alwaysLogFailures;
+    }
+
+    public void setAlwaysLogFailures(boolean alwaysLogFailures) {
+        this.alwaysLogFailures = alwaysLogFailures;
+    }
+
+    public boolean isRedact() {
+        return redact;
+    }
+
+    public void setRedact(boolean redact) {
+        this.redact = redact;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "sms.idempotency")
+public class IdempotencyProperties {
+    public enum Mode {
+        // Keys remembered by this instance only; a retry routed to another replica is sent again
+        LOCAL,
+        // Local cache first, then Redis so a retry is recognised on any replica
+        REDIS
+    }
+
+    private boolean enabled = true;
+    private Mode mode = Mode.LOCAL;
+    private String header = "Idempotency-Key";
+    // How long a finished request's response is replayed for
+    private Duration ttl = Duration.ofHours(24);
+    // How long a key stays locked in Redis by a request that never finishes (crashed replica);
+    // a request still running renews its lock every third of this, however long it takes
+    private Duration inProgressTtl = Duration.ofMinutes(1);
+    private long maxLocalKeys = 1_000_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public void setHeader(String header) {
+        this.header = header;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public Duration getInProgressTtl() {
+        return inProgressTtl;
+    }
+
+    public void setInProgressTtl(Duration inProgressTtl) {
+        this.inProgressTtl = inProgressTtl;
+    }
+
+    public long getMaxLocalKeys() {
+        return maxLocalKeys;
+    }
+
+    public void setMaxLocalKeys(long maxLocalKeys) {
+        this.maxLocalKeys = maxLocalKeys;
+    }
+}
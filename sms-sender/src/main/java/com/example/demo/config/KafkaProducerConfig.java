@@ -0,0 +1,31 @@
+package com.example.demo.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.service.HotNumberPartitioner;
+
+@Configuration
+public class KafkaProducerConfig {
+
+    // Layers sms.kafka.producer-profile under the auto-configured producer settings
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer producerProfileCustomizer(SmsKafkaProperties properties) {
+        return factory -> {
+            Map<String, Object> profile = new HashMap<>(properties.getProducerProfile().settings());
+            profile.keySet().removeAll(factory.getConfigurationProperties().keySet());
+            factory.updateConfigs(profile);
+        };
+    }
+
+    // Applied by SmsEventProducer rather than set as partitioner.class, which would have to carry
+    // the hot list through the Kafka client config
+    @Bean
+    public HotNumberPartitioner hotNumberPartitioner(SmsKafkaProperties properties) {
+        return HotNumberPartitioner.of(properties);
+    }
+}
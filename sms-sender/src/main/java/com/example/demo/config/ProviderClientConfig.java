@@ -0,0 +1,49 @@
+package com.example.demo.config;
+
+import java.net.http.HttpClient;
+import java.security.NoSuchAlgorithmException;
+
+import javax.net.ssl.SSLContext;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.service.ProviderConnectionMetrics;
+
+/**
+ * The provider HTTP client is java.net.http. OkHttp 4 (and 5) guard the connection pool and the
+ * HTTP/2 writer with monitors held around socket writes, which pins the carrier of a virtual
+ * thread sending an SMS. The JDK client does its socket I/O on its own selector thread and the
+ * caller only parks on a future.
+ */
+@Configuration
+public class ProviderClientConfig {
+
+    // One client, and so one connection pool, for every provider call in the process
+    @Bean
+    public HttpClient providerHttpClient(ProviderProperties properties, ProviderConnectionMetrics connectionMetrics)
+            throws NoSuchAlgorithmException {
+        return builder(properties, connectionMetrics.countConnections(SSLContext.getDefault())).build();
+    }
+
+    public static HttpClient.Builder builder(ProviderProperties properties, SSLContext sslContext) {
+        // The JDK keeps its pool settings in system properties, read once when the first client
+        // is built; ones given on the command line win
+        ProviderProperties.Pool pool = properties.getPool();
+        setIfAbsent("jdk.httpclient.connectionPoolSize", pool.getMaxIdleConnections());
+        setIfAbsent("jdk.httpclient.keepalive.timeout", pool.getKeepAlive().toSeconds());
+        setIfAbsent("jdk.httpclient.keepalive.timeout.h2", pool.getKeepAlive().toSeconds());
+        return HttpClient.newBuilder()
+                .version(properties.getProtocol() == ProviderProperties.Protocol.HTTP_1_1
+                        ? HttpClient.Version.HTTP_1_1
+                        : HttpClient.Version.HTTP_2)
+                .connectTimeout(properties.getConnectTimeout())
+                .sslContext(sslContext);
+    }
+
+    private static void setIfAbsent(String property, long value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, Long.toString(value));
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "sms.provider")
+public class ProviderProperties {
+    public enum Protocol {
+        // HTTP/2 negotiated over TLS (ALPN), HTTP/1.1 otherwise
+        HTTP_2,
+        // HTTP/1.1 only; concurrency then needs one pooled connection per in-flight call
+        HTTP_1_1
+    }
+
+    // Settings below apply to the one HTTP client shared by every provider
+    private Protocol protocol = Protocol.HTTP_2;
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    // From sending the request to receiving the response headers
+    private Duration readTimeout = Duration.ofSeconds(5);
+    private final Pool pool = new Pool();
+    private final Routing routing = new Routing();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private final Bulkhead bulkhead = new Bulkhead();
+    private final Twilio twilio = new Twilio();
+    private final Vonage vonage = new Vonage();
+
+    public Protocol getProtocol() {
+        return protocol;
+    }
+
+    public void setProtocol(Protocol protocol) {
+        this.protocol = protocol;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public Routing getRouting() {
+        return routing;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public Twilio getTwilio() {
+        return twilio;
+    }
+
+    public Vonage getVonage() {
+        return vonage;
+    }
+
+    // Idle keep-alive connections; an HTTP/2 connection carries many calls at once
+    public static class Pool {
+        private int maxIdleConnections = 32;
+        private Duration keepAlive = Duration.ofMinutes(5);
+
+        public int getMaxIdleConnections() {
+            return maxIdleConnections;
+        }
+
+        public void setMaxIdleConnections(int maxIdleConnections) {
+            this.maxIdleConnections = maxIdleConnections;
+        }
+
+        public Duration getKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+    }
+
+    // ProviderRouter: picks a provider per message, favouring low latency and few errors
+    public static class Routing {
+        // Weight of the newest call in the latency and error-rate averages
+        private double alpha = 0.2;
+        // Score multiplier per unit of error rate: 10 makes a 10%-failing provider look 2x slower
+        private double errorPenalty = 10;
+        // Share of traffic every provider keeps, so a recovered one is noticed
+        private double minShare = 0.05;
+        // Latency assumed for a provider that has not been called yet
+        private Duration initialLatency = Duration.ofMillis(100);
+        // When the request never reached the provider (connection failed, open circuit, full
+        // bulkhead), send once more through the next best provider
+        private boolean failover = true;
+
+        public double getAlpha() {
+            return alpha;
+        }
+
+        public void setAlpha(double alpha) {
+            this.alpha = alpha;
+        }
+
+        public double getErrorPenalty() {
+            return errorPenalty;
+        }
+
+        public void setErrorPenalty(double errorPenalty) {
+            this.errorPenalty = errorPenalty;
+        }
+
+        public double getMinShare() {
+            return minShare;
+        }
+
+        public void setMinShare(double minShare) {
+            this.minShare = minShare;
+        }
+
+        public Duration getInitialLatency() {
+            return initialLatency;
+        }
+
+        public void setInitialLatency(Duration initialLatency) {
+            this.initialLatency = initialLatency;
+        }
+
+        public boolean isFailover() {
+            return failover;
+        }
+
+        public void setFailover(boolean failover) {
+            this.failover = failover;
+        }
+    }
+
+    // One breaker per provider. Only provider faults (I/O errors, 429, 5xx) and slow calls count;
+    // while open, calls fail at once and the router sends traffic to the other providers
+    public static class CircuitBreaker {
+        private float failureRateThreshold = 50;
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(2);
+        private float slowCallRateThreshold = 50;
+        private int slidingWindowSize = 50;
+        private int minimumNumberOfCalls = 20;
+        private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+        private int permittedCallsInHalfOpenState = 5;
+
+        public float getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(float failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public Duration getSlowCallDurationThreshold() {
+            return slowCallDurationThreshold;
+        }
+
+        public void setSlowCallDurationThreshold(Duration slowCallDurationThreshold) {
+            this.slowCallDurationThreshold = slowCallDurationThreshold;
+        }
+
+        public float getSlowCallRateThreshold() {
+            return slowCallRateThreshold;
+        }
+
+        public void setSlowCallRateThreshold(float slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+        }
+
+        public int getSlidingWindowSize() {
+            return slidingWindowSize;
+        }
+
+        public void setSlidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+        }
+
+        public int getMinimumNumberOfCalls() {
+            return minimumNumberOfCalls;
+        }
+
+        public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+            this.minimumNumberOfCalls = minimumNumberOfCalls;
+        }
+
+        public Duration getWaitDurationInOpenState() {
+            return waitDurationInOpenState;
+        }
+
+        public void setWaitDurationInOpenState(Duration waitDurationInOpenState) {
+            this.waitDurationInOpenState = waitDurationInOpenState;
+        }
+
+        public int getPermittedCallsInHalfOpenState() {
+            return permittedCallsInHalfOpenState;
+        }
+
+        public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+            this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+        }
+    }
+
+    // Caps in-flight calls per provider so a hung provider can't hold every request thread
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 100;
+        // How long a call may wait for a free slot before it is rejected
+        private Duration maxWait = Duration.ZERO;
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    public static class Twilio {
+        private boolean enabled = true;
+        private String baseUrl = "https://api.twilio.com";
+        private String accountSid = "";
+        private String authToken = "";
+        // Sender number or messaging service id
+        private String from = "";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public void setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String getAccountSid() {
+            return accountSid;
+        }
+
+        public void setAccountSid(String accountSid) {
+            this.accountSid = accountSid;
+        }
+
+        public String getAuthToken() {
+            return authToken;
+        }
+
+        public void setAuthToken(String authToken) {
+            this.authToken = authToken;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public void setFrom(String from) {
+            this.from = from;
+        }
+    }
+
+    public static class Vonage {
+        private boolean enabled = false;
+        private String baseUrl = "https://rest.nexmo.com";
+        private String apiKey = "";
+        private String apiSecret = "";
+        private String from = "";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public void setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public void setApiKey(String apiKey) {
+            this.apiKey = apiKey;
+        }
+
+        public String getApiSecret() {
+            return apiSecret;
+        }
+
+        public void setApiSecret(String apiSecret) {
+            this.apiSecret = apiSecret;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public void setFrom(String from) {
+            this.from = from;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "sms.rate-limit")
+public class RateLimitProperties {
+    public enum Mode {
+        // Buckets in this instance only; each replica enforces the limits on its own
+        LOCAL,
+        // Local buckets first, then a shared bucket in Redis so the limits hold across the cluster
+        REDIS
+    }
+
+    // Off unless configured: enabling it starts answering 429 to callers that never got one
+    private boolean enabled = false;
+    private Mode mode = Mode.LOCAL;
+    // Header naming the calling API client, set by an authenticating gateway; only believed
+    // when the request comes from one of trustedProxies
+    private String clientHeader = "X-Client-Id";
+    // Addresses of the gateways/load balancers in front of this service. Requests from them are
+    // identified by clientHeader, else by the X-Forwarded-For address they report
+    private List<String> trustedProxies = List.of();
+    private final Limit recipient = new Limit(10, Duration.ofMinutes(1));
+    private final Limit client = new Limit(200, Duration.ofSeconds(1));
+    // Local buckets kept per scope; idle buckets are full again and get evicted first
+    private long maxLocalBuckets = 1_000_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public String getClientHeader() {
+        return clientHeader;
+    }
+
+    public void setClientHeader(String clientHeader) {
+        this.clientHeader = clientHeader;
+    }
+
+    public List<String> getTrustedProxies() {
+        return trustedProxies;
+    }
+
+    public void setTrustedProxies(List<String> trustedProxies) {
+        this.trustedProxies = trustedProxies;
+    }
+
+    public Limit getRecipient() {
+        return recipient;
+    }
+
+    public Limit getClient() {
+        return client;
+    }
+
+    public long getMaxLocalBuckets() {
+        return maxLocalBuckets;
+    }
+
+    public void setMaxLocalBuckets(long maxLocalBuckets) {
+        this.maxLocalBuckets = maxLocalBuckets;
+    }
+
+    // Token bucket: up to capacity sends at once, refilled evenly at capacity per period
+    public static class Limit {
+        private int capacity;
+        private Duration period;
+
+        public Limit() {
+        }
+
+        public Limit(int capacity, Duration period) {
+            this.capacity = capacity;
+            this.period = period;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public Duration getPeriod() {
+            return period;
+        }
+
+        public void setPeriod(Duration period) {
+            this.period = period;
+        }
+    }
+}
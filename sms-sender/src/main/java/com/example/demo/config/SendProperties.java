@@ -0,0 +1,181 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "sms.send")
+public class SendProperties {
+    // Upper bound on recipients per v1/sms/send/batch call
+    private int batchMaxSize = 1000;
+    private final Async async = new Async();
+    private final Retry retry = new Retry();
+
+    public Async getAsync() {
+        return async;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    public int getBatchMaxSize() {
+        return batchMaxSize;
+    }
+
+    public void setBatchMaxSize(int batchMaxSize) {
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    // Accept-and-queue mode (v1/sms/send/async)
+    public static class Async {
+        private int workers = 16;
+        // Requests beyond this many waiting messages are turned away with 503
+        private int queueCapacity = 10_000;
+        // How long and how many message statuses stay queryable
+        private Duration statusRetention = Duration.ofHours(1);
+        private long maxStatuses = 1_000_000;
+        // Run workers on virtual threads; "workers" then only caps in-flight sends and can be
+        // raised far beyond what platform threads allow
+        private boolean virtualThreads = false;
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getStatusRetention() {
+            return statusRetention;
+        }
+
+        public void setStatusRetention(Duration statusRetention) {
+            this.statusRetention = statusRetention;
+        }
+
+        public long getMaxStatuses() {
+            return maxStatuses;
+        }
+
+        public void setMaxStatuses(long maxStatuses) {
+            this.maxStatuses = maxStatuses;
+        }
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+    }
+
+    // Server-side retries of transient provider failures (I/O, 429, 5xx, open circuit)
+    public static class Retry {
+        private boolean enabled = true;
+        // Including the first attempt
+        private int maxAttempts = 4;
+        // Backoff before attempt n+1 is initialBackoff * multiplier^(n-1), capped at maxBackoff,
+        // then scaled down by a random fraction of up to "jitter"
+        private Duration initialBackoff = Duration.ofSeconds(1);
+        private double multiplier = 2;
+        private Duration maxBackoff = Duration.ofMinutes(1);
+        private double jitter = 0.5;
+        // Timer wheel resolution and size; a retry fires within one tick of its deadline
+        private Duration tick = Duration.ofMillis(100);
+        private int wheelSize = 512;
+        // Retries beyond this many waiting or running are not scheduled; the send is reported failed
+        private int maxPending = 500_000;
+        private int workers = 8;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public double getMultiplier() {
+            return multiplier;
+        }
+
+        public void setMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public double getJitter() {
+            return jitter;
+        }
+
+        public void setJitter(double jitter) {
+            this.jitter = jitter;
+        }
+
+        public Duration getTick() {
+            return tick;
+        }
+
+        public void setTick(Duration tick) {
+            this.tick = tick;
+        }
+
+        public int getWheelSize() {
+            return wheelSize;
+        }
+
+        public void setWheelSize(int wheelSize) {
+            this.wheelSize = wheelSize;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+    }
+}
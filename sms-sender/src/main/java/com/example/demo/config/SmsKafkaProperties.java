@@ -0,0 +1,264 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "sms.kafka")
+public class SmsKafkaProperties {
+    public enum BackPressure {
+        // Callers wait (up to blockTimeout) for room in the retry buffer, then fail
+        BLOCK,
+        // Callers never wait; the oldest buffered event is discarded to make room
+        DROP_OLDEST,
+        // Callers are turned away immediately while the buffer is full
+        FAIL
+    }
+
+    public enum ProducerProfile {
+        // Kafka client defaults, nothing overridden
+        DEFAULT(Map.of()),
+        // Send as soon as a record arrives and wait for the leader only
+        LOW_LATENCY(Map.of(
+                ProducerConfig.LINGER_MS_CONFIG, 0,
+                ProducerConfig.BATCH_SIZE_CONFIG, 16_384,
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, "none",
+                ProducerConfig.ACKS_CONFIG, "1",
+                ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false,
+                // Without idempotence a retried batch could overtake the next one for the same key
+                ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 1)),
+        // Wait a little to fill large compressed batches; every record replicated, no duplicates
+        HIGH_THROUGHPUT(Map.of(
+                ProducerConfig.LINGER_MS_CONFIG, 20,
+                ProducerConfig.BATCH_SIZE_CONFIG, 262_144,
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4",
+                ProducerConfig.ACKS_CONFIG, "all",
+                ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true));
+
+        private final Map<String, Object> settings;
+
+        ProducerProfile(Map<String, Object> settings) {
+            this.settings = settings;
+        }
+
+        public Map<String, Object> settings() {
+            return settings;
+        }
+    }
+
+    public enum KeyStrategy {
+        // Record key is the phone number itself
+        PHONE_NUMBER,
+        // Record key is a 64-bit hash of key-salt + phone number, keeping numbers out of the key
+        HASH
+    }
+
+    // Linger, batch size, compression, acks and idempotence for the sms_events producer;
+    // anything set explicitly under spring.kafka.producer.* wins over the profile
+    private ProducerProfile producerProfile = ProducerProfile.DEFAULT;
+    // Events are keyed per recipient so one number's events stay on one partition, in order
+    private KeyStrategy keyStrategy = KeyStrategy.PHONE_NUMBER;
+    private String keySalt = "";
+    private final Partitioner partitioner = new Partitioner();
+    private final RetryBuffer retryBuffer = new RetryBuffer();
+    private final Outbox outbox = new Outbox();
+    // What publishing does once the retry buffer is full
+    private BackPressure backPressure = BackPressure.BLOCK;
+    // Longest a request thread waits on back-pressure or the outbox before getting a 503
+    private Duration blockTimeout = Duration.ofSeconds(1);
+
+    public ProducerProfile getProducerProfile() {
+        return producerProfile;
+    }
+
+    public void setProducerProfile(ProducerProfile producerProfile) {
+        this.producerProfile = producerProfile;
+    }
+
+    public KeyStrategy getKeyStrategy() {
+        return keyStrategy;
+    }
+
+    public void setKeyStrategy(KeyStrategy keyStrategy) {
+        this.keyStrategy = keyStrategy;
+    }
+
+    public String getKeySalt() {
+        return keySalt;
+    }
+
+    public void setKeySalt(String keySalt) {
+        this.keySalt = keySalt;
+    }
+
+    public Partitioner getPartitioner() {
+        return partitioner;
+    }
+
+    public RetryBuffer getRetryBuffer() {
+        return retryBuffer;
+    }
+
+    public Outbox getOutbox() {
+        return outbox;
+    }
+
+    public BackPressure getBackPressure() {
+        return backPressure;
+    }
+
+    public void setBackPressure(BackPressure backPressure) {
+        this.backPressure = backPressure;
+    }
+
+    public Duration getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    public void setBlockTimeout(Duration blockTimeout) {
+        this.blockTimeout = blockTimeout;
+    }
+
+    // HotNumberPartitioner: listed numbers get spread round-robin over the partitions instead of
+    // wherever their key hashes to; every other key keeps Kafka's default placement
+    public static class Partitioner {
+        private boolean enabled = false;
+        private List<String> hotNumbers = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getHotNumbers() {
+            return hotNumbers;
+        }
+
+        public void setHotNumbers(List<String> hotNumbers) {
+            this.hotNumbers = hotNumbers;
+        }
+    }
+
+    // Events whose send failed, held in memory and re-sent periodically. Under BLOCK and FAIL the
+    // capacity only gates new callers; failures of sends already made may go over it.
+    public static class RetryBuffer {
+        private int capacity = 10_000;
+        // Sends per event, including the first one, before it is given up on
+        private int maxAttempts = 5;
+        private Duration interval = Duration.ofSeconds(1);
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+    }
+
+    // Durable local outbox: events are appended to a memory-mapped segment log on disk and
+    // drained to Kafka in the background. Replaces the in-memory retry buffer when enabled.
+    public static class Outbox {
+        private boolean enabled = false;
+        private String directory = "data/outbox";
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        // Appends beyond this much undelivered data are refused (503)
+        private DataSize maxSize = DataSize.ofGigabytes(1);
+        // Group commit: one fsync per interval covers every append made during it
+        private Duration flushInterval = Duration.ofMillis(5);
+        // Whether publishing waits for its fsync (durable on return) or only for the write
+        private boolean awaitFlush = true;
+        // Records sent to Kafka but not yet acknowledged
+        private int maxInFlight = 1000;
+        // Pause before re-sending from the last acknowledged record after a failure
+        private Duration retryInterval = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public DataSize getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(DataSize segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public boolean isAwaitFlush() {
+            return awaitFlush;
+        }
+
+        public void setAwaitFlush(boolean awaitFlush) {
+            this.awaitFlush = awaitFlush;
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public Duration getRetryInterval() {
+            return retryInterval;
+        }
+
+        public void setRetryInterval(Duration retryInterval) {
+            this.retryInterval = retryInterval;
+        }
+    }
+}
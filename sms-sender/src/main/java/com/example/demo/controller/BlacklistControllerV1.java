@@ -0,0 +1,55 @@
+package com.example.demo.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.demo.model.BulkJob;
+import com.example.demo.service.BlacklistBulkService;
+
+@RestController
+@RequestMapping("v1/blacklist")
+public class BlacklistControllerV1 {
+    private final BlacklistBulkService bulkService;
+
+    public BlacklistControllerV1(BlacklistBulkService bulkService) {
+        this.bulkService = bulkService;
+    }
+
+    // Body is CSV (number in the first column) or one number per line
+    @PostMapping(value = "/import", consumes = { "text/csv", MediaType.TEXT_PLAIN_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE })
+    public ResponseEntity<BulkJob> importBlacklist(InputStream body) throws IOException {
+        BulkJob job = bulkService.startImport(body);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBlacklist() {
+        BulkJob job = bulkService.startExport();
+        return ResponseEntity.ok()
+                .header("X-Bulk-Job-Id", job.getJobId())
+                .body(out -> bulkService.export(job, out));
+    }
+
+    // Backfills the packed layout from the key-per-number keys
+    @PostMapping("/migrate")
+    public ResponseEntity<BulkJob> migrateToPacked() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(bulkService.startMigration());
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<BulkJob> getJob(@PathVariable String jobId) {
+        BulkJob job = bulkService.getJob(jobId);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+}
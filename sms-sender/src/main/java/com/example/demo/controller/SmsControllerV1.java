@@ -1,30 +1,312 @@
 package com.example.demo.controller;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.example.demo.config.IdempotencyProperties;
+import com.example.demo.config.RateLimitProperties;
+import com.example.demo.config.SendProperties;
 import com.example.demo.model.SmsResponse;
+import com.example.demo.model.SmsStatus;
+import com.example.demo.service.E164;
+import com.example.demo.service.IdempotencyStore;
+import com.example.demo.service.SendMetrics;
+import com.example.demo.service.SendRateLimiter;
+import com.example.demo.service.SmsDispatcher;
 import com.example.demo.service.SmsService;
 import com.example.demo.model.SmsRequest;
-import jakarta.validation.Valid;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 @RestController
 @RequestMapping("v1/sms/send")
 public class SmsControllerV1 {
     private final SmsService service;
+    private final SmsDispatcher dispatcher;
+    private final Validator validator;
+    private final SendRateLimiter rateLimiter;
+    private final IdempotencyStore idempotency;
+    private final SendMetrics metrics;
+    private final int batchMaxSize;
+    private final String clientHeader;
+    private final Set<String> trustedProxies;
+    private final String idempotencyHeader;
 
     @Autowired // used to inject SmsService
-    public SmsControllerV1(SmsService service) {
+    public SmsControllerV1(SmsService service, SmsDispatcher dispatcher, Validator validator,
+            SendRateLimiter rateLimiter, IdempotencyStore idempotency, SendMetrics metrics,
+            SendProperties sendProperties, RateLimitProperties rateLimitProperties,
+            IdempotencyProperties idempotencyProperties) {
         this.service = service;
+        this.dispatcher = dispatcher;
+        this.validator = validator;
+        this.rateLimiter = rateLimiter;
+        this.idempotency = idempotency;
+        this.metrics = metrics;
+        this.batchMaxSize = sendProperties.getBatchMaxSize();
+        this.clientHeader = rateLimitProperties.getClientHeader();
+        this.trustedProxies = Set.copyOf(rateLimitProperties.getTrustedProxies());
+        this.idempotencyHeader = idempotencyProperties.getHeader();
     }
 
     @PostMapping
-    public ResponseEntity<SmsResponse> sendSmsRequest(@Valid @RequestBody SmsRequest request) {
-        String result = service.sendSms(request);
-        return ResponseEntity.ok(new SmsResponse(result));
+    public ResponseEntity<SmsResponse> sendSmsRequest(@RequestBody SmsRequest request,
+            HttpServletRequest servletRequest) {
+        requireValid(request);
+        String clientId = clientId(servletRequest);
+        return once(idempotencyKey(clientId, servletRequest, request), () -> {
+            SendRateLimiter.Throttle throttle = rateLimiter.check(clientId, request.getPhoneNumber());
+            if (throttle != null) {
+                return tooManyRequests(service.throttled(request, null, throttleReason(throttle)), throttle);
+            }
+            String result = service.sendSms(request);
+            return ResponseEntity.ok(new SmsResponse(result));
+        });
+    }
+
+    // Validates and queues; the message is sent by a background worker. Poll GET v1/sms/send/{messageId}
+    @PostMapping("/async")
+    public ResponseEntity<SmsResponse> sendSmsAsync(@RequestBody SmsRequest request,
+            HttpServletRequest servletRequest) {
+        requireValid(request);
+        String clientId = clientId(servletRequest);
+        return once(idempotencyKey(clientId, servletRequest, request), () -> {
+            SendRateLimiter.Throttle throttle = rateLimiter.check(clientId, request.getPhoneNumber());
+            if (throttle != null) {
+                return tooManyRequests(service.throttled(request, null, throttleReason(throttle)), throttle);
+            }
+            try {
+                return accepted(dispatcher.submit(request));
+            } catch (RejectedExecutionException e) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Send queue is full, retry later");
+            }
+        });
+    }
+
+    @GetMapping("/{messageId}")
+    public ResponseEntity<SmsResponse> getSmsStatus(@PathVariable String messageId) {
+        SmsResponse status = dispatcher.getStatus(messageId);
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    // Items are validated and rate limited one by one so a bad or throttled entry is reported in
+    // place instead of failing the batch. Items carrying an idempotencyKey that was already used
+    // get the earlier result back.
+    @PostMapping("/batch")
+    public ResponseEntity<List<SmsResponse>> sendSmsBatch(@RequestBody List<SmsRequest> requests,
+            HttpServletRequest servletRequest) {
+        if (requests.isEmpty() || requests.size() > batchMaxSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Batch must contain between 1 and " + batchMaxSize + " messages");
+        }
+        String clientId = clientId(servletRequest);
+        SmsResponse[] responses = new SmsResponse[requests.size()];
+        List<SmsRequest> valid = new ArrayList<>(requests.size());
+        List<Integer> validIndex = new ArrayList<>(requests.size());
+        List<String> validKeys = new ArrayList<>(requests.size());
+        // Keys this request owns and has not completed yet; whatever is left when an exception
+        // gets out was never sent and is released
+        Set<String> claimed = new HashSet<>();
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                if (requests.get(i) == null) {
+                    responses[i] = invalidItem("Request is mandatory");
+                    continue;
+                }
+                Set<ConstraintViolation<SmsRequest>> violations = validate(requests.get(i));
+                if (!violations.isEmpty()) {
+                    responses[i] = invalidItem(describe(violations));
+                    continue;
+                }
+                String key = idempotency.key(clientId, requests.get(i).getIdempotencyKey());
+                if (key != null) {
+                    IdempotencyStore.Claim claim = idempotency.claim(key);
+                    if (claim.state() != IdempotencyStore.State.NEW) {
+                        responses[i] = claim.state() == IdempotencyStore.State.DONE
+                                ? claim.outcome().response()
+                                : itemResponse("A request with this idempotency key is still in progress",
+                                        SmsStatus.DUPLICATE);
+                        continue;
+                    }
+                    claimed.add(key);
+                }
+                SendRateLimiter.Throttle throttle = rateLimiter.check(clientId, requests.get(i).getPhoneNumber());
+                if (throttle != null) {
+                    responses[i] = service.throttled(requests.get(i), null, throttleReason(throttle));
+                    if (key != null) {
+                        claimed.remove(key);
+                        idempotency.release(key);
+                    }
+                } else {
+                    valid.add(requests.get(i));
+                    validIndex.add(i);
+                    validKeys.add(key);
+                }
+            }
+            if (!valid.isEmpty()) {
+                // sendBatch only fails before its first provider call; once it returns every item
+                // has its outcome and the keys are completed with it
+                List<SmsResponse> sent = service.sendBatch(valid);
+                for (int j = 0; j < sent.size(); j++) {
+                    responses[validIndex.get(j)] = sent.get(j);
+                    String key = validKeys.get(j);
+                    if (key != null) {
+                        idempotency.complete(key, new IdempotencyStore.Outcome(HttpStatus.OK.value(), sent.get(j)));
+                        claimed.remove(key);
+                    }
+                }
+            }
+        } finally {
+            for (String key : claimed) {
+                idempotency.release(key);
+            }
+        }
+        return ResponseEntity.ok(List.of(responses));
+    }
+
+    // Runs send at most once per idempotency key: a repeat gets the stored response, a repeat
+    // while the first is still running gets 409. Only 2xx responses are kept; anything else
+    // releases the key so the client can try again. That includes exceptions: SmsService only
+    // throws before the provider is called (back-pressure, blacklist lookup), never after a
+    // message went out, so a released key never lets a message be sent twice.
+    private ResponseEntity<SmsResponse> once(String key, Supplier<ResponseEntity<SmsResponse>> send) {
+        if (key == null) {
+            return send.get();
+        }
+        IdempotencyStore.Claim claim = idempotency.claim(key);
+        if (claim.state() == IdempotencyStore.State.IN_PROGRESS) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A request with this idempotency key is still in progress");
+        }
+        if (claim.state() == IdempotencyStore.State.DONE) {
+            SmsResponse stored = claim.outcome().response();
+            return claim.outcome().httpStatus() == HttpStatus.ACCEPTED.value()
+                    ? accepted(stored)
+                    : ResponseEntity.status(claim.outcome().httpStatus()).body(stored);
+        }
+        ResponseEntity<SmsResponse> response;
+        try {
+            response = send.get();
+        } catch (RuntimeException e) {
+            idempotency.release(key);
+            throw e;
+        }
+        if (response.getStatusCode().is2xxSuccessful()) {
+            idempotency.complete(key, new IdempotencyStore.Outcome(response.getStatusCode().value(),
+                    response.getBody()));
+        } else {
+            idempotency.release(key);
+        }
+        return response;
+    }
+
+    // Validated here rather than through @Valid so the time spent shows up as the validation stage.
+    // A valid request leaves with its number in canonical form, which the rate limiter, blacklist
+    // and events all key on.
+    private Set<ConstraintViolation<SmsRequest>> validate(SmsRequest request) {
+        long start = metrics.start();
+        Set<ConstraintViolation<SmsRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            request.setPhoneNumber(E164.normalize(request.getPhoneNumber()));
+        }
+        metrics.record(SendMetrics.Stage.VALIDATION, start);
+        return violations;
+    }
+
+    private void requireValid(SmsRequest request) {
+        Set<ConstraintViolation<SmsRequest>> violations = validate(request);
+        if (!violations.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, describe(violations));
+        }
+    }
+
+    private static String describe(Set<ConstraintViolation<SmsRequest>> violations) {
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private String idempotencyKey(String clientId, HttpServletRequest servletRequest, SmsRequest request) {
+        String key = servletRequest.getHeader(idempotencyHeader);
+        if (key == null || key.isBlank()) {
+            key = request.getIdempotencyKey();
+        } else if (key.length() > IdempotencyStore.MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency key is too long");
+        }
+        return idempotency.key(clientId, key);
+    }
+
+    private static ResponseEntity<SmsResponse> accepted(SmsResponse queued) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header("Location", "/v1/sms/send/" + queued.getMessageId())
+                .body(queued);
+    }
+
+    // Keys rate limits and idempotency, so it must not be something a caller can pick: the
+    // authenticated principal, else what a trusted proxy says (client header, then the nearest
+    // X-Forwarded-For address it didn't add itself), else the peer address
+    private String clientId(HttpServletRequest servletRequest) {
+        if (servletRequest.getUserPrincipal() != null) {
+            return servletRequest.getUserPrincipal().getName();
+        }
+        String remoteAddress = servletRequest.getRemoteAddr();
+        if (!trustedProxies.contains(remoteAddress)) {
+            return remoteAddress;
+        }
+        String clientId = servletRequest.getHeader(clientHeader);
+        if (clientId != null && !clientId.isBlank()) {
+            return clientId;
+        }
+        String forwardedFor = servletRequest.getHeader("X-Forwarded-For");
+        if (forwardedFor != null) {
+            String[] hops = forwardedFor.split(",");
+            for (int i = hops.length - 1; i >= 0; i--) {
+                String hop = hops[i].trim();
+                if (!hop.isEmpty() && !trustedProxies.contains(hop)) {
+                    return hop;
+                }
+            }
+        }
+        return remoteAddress;
+    }
+
+    private static String throttleReason(SendRateLimiter.Throttle throttle) {
+        return throttle.scope() == SendRateLimiter.Scope.CLIENT
+                ? "Rate limit exceeded for this client"
+                : "Rate limit exceeded for this recipient";
+    }
+
+    private static ResponseEntity<SmsResponse> tooManyRequests(SmsResponse response, SendRateLimiter.Throttle throttle) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", Long.toString(throttle.retryAfterSeconds()))
+                .body(response);
+    }
+
+    private static SmsResponse invalidItem(String reason) {
+        return itemResponse(reason, SmsStatus.INVALID);
+    }
+
+    private static SmsResponse itemResponse(String result, String status) {
+        SmsResponse response = new SmsResponse(result);
+        response.setStatus(status);
+        return response;
     }
 }
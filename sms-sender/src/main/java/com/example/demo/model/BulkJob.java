@@ -0,0 +1,80 @@
+package com.example.demo.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BulkJob {
+    private final String jobId;
+    private final String type;
+    private final Instant startedAt;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile String state = "running";
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public BulkJob(String jobId, String type) {
+        this.jobId = jobId;
+        this.type = type;
+        this.startedAt = Instant.now();
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    // Numbers handled per second since the job started (or over its whole run once finished)
+    public double getThroughputPerSecond() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long millis = Math.max(1, Duration.between(startedAt, end).toMillis());
+        return processed.get() * 1000.0 / millis;
+    }
+
+    public void addProcessed(long count) {
+        processed.addAndGet(count);
+    }
+
+    public void addRejected(long count) {
+        rejected.addAndGet(count);
+    }
+
+    public void complete() {
+        finishedAt = Instant.now();
+        state = "completed";
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        state = "failed";
+    }
+}
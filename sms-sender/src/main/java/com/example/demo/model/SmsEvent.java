@@ -5,6 +5,11 @@ public class SmsEvent {
     private String message;
     private String status;
     private String eventId;
+    // 1-based provider attempt this event reports on; 0 when none was made (throttled) or the
+    // producer predates the field
+    private int attempt;
+    // SMS the message is sent as once split for its encoding (GSM-7 or UCS-2); 0 when not known
+    private int segments;
     public SmsEvent() {
     }
     public SmsEvent(String phoneNumber, String message, String status) {
@@ -36,4 +41,16 @@ public class SmsEvent {
     public void setEventId(String eventId) {
         this.eventId = eventId;
     }
+    public int getAttempt() {
+        return attempt;
+    }
+    public void setAttempt(int attempt) {
+        this.attempt = attempt;
+    }
+    public int getSegments() {
+        return segments;
+    }
+    public void setSegments(int segments) {
+        this.segments = segments;
+    }
 }
@@ -1,14 +1,22 @@
 package com.example.demo.model;
 
+import com.example.demo.validation.PhoneNumber;
+
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 
 public class SmsRequest {
+    // With or without the leading '+'; the controller rewrites it to the canonical "+digits" form
+    // once the request is valid
     @NotBlank(message = "Phone number is mandatory")
-    @Pattern(regexp = "^\\+?[1-9]\\d{9,14}$", message = "Invalid phone number format")
+    @PhoneNumber
     private String phoneNumber;
     @NotBlank(message = "Message is mandatory")
     private String message;
+    // Optional; a retry with the same key gets the first response back instead of a second SMS.
+    // The Idempotency-Key header takes precedence on single sends.
+    @Size(max = 255, message = "Idempotency key is too long")
+    private String idempotencyKey;
 
     public SmsRequest() {
     }
@@ -33,4 +41,12 @@ public class SmsRequest {
     public void setMessage(String message) {
         this.message = message;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
\ No newline at end of file
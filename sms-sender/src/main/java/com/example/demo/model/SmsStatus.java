@@ -0,0 +1,24 @@
+package com.example.demo.model;
+
+// Outcome values used for SmsEvent.status and per-item batch results
+public final class SmsStatus {
+    public static final String SUCCESSFUL = "successful";
+    public static final String UNSUCCESSFUL = "unsuccessful";
+    public static final String BLOCKED = "blocked";
+    public static final String INVALID = "invalid";
+    // Async mode: accepted but not yet handed to the provider / currently being sent
+    public static final String QUEUED = "queued";
+    public static final String SENDING = "sending";
+    // A provider attempt failed with a transient error and another attempt is scheduled
+    public static final String RETRY_SCHEDULED = "retry_scheduled";
+    // The provider call broke off after the request was sent (e.g. read timeout): the message may
+    // or may not have gone out. Final, never retried, so it can't be delivered twice.
+    public static final String UNKNOWN = "unknown";
+    // Turned away by a per-client or per-recipient rate limit, never sent
+    public static final String THROTTLED = "throttled";
+    // Batch item whose idempotency key belongs to a request that is still running, not sent
+    public static final String DUPLICATE = "duplicate";
+
+    private SmsStatus() {
+    }
+}
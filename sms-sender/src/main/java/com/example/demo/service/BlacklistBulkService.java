@@ -0,0 +1,204 @@
+package com.example.demo.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.config.BlacklistProperties;
+import com.example.demo.model.BulkJob;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PreDestroy;
+
+@Service
+public class BlacklistBulkService {
+
+    private final BlacklistCache cache;
+    private final StringRedisTemplate redisTemplate;
+    private final int packedBuckets;
+    private final int batchSize;
+    private final Cache<String, BulkJob> jobs;
+    // Imports and migrations are rare and Redis-bound, one at a time is enough
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor();
+
+    public BlacklistBulkService(BlacklistCache cache, StringRedisTemplate redisTemplate, BlacklistProperties properties) {
+        this.cache = cache;
+        this.redisTemplate = redisTemplate;
+        this.packedBuckets = properties.getPackedBuckets();
+        this.batchSize = properties.getBulk().getBatchSize();
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getBulk().getJobRetention())
+                .build();
+    }
+
+    // Spools the upload to a temp file so the request can return while the import runs
+    public BulkJob startImport(InputStream upload) throws IOException {
+        Path spool = Files.createTempFile("blacklist-import-", ".csv");
+        Files.copy(upload, spool, StandardCopyOption.REPLACE_EXISTING);
+        BulkJob job = newJob("import");
+        importExecutor.execute(() -> {
+            try (InputStream in = Files.newInputStream(spool)) {
+                importNumbers(in, job);
+            } catch (IOException | RuntimeException e) {
+                job.fail(e.getMessage());
+            } finally {
+                try {
+                    Files.deleteIfExists(spool);
+                } catch (IOException ignored) {
+                }
+            }
+        });
+        return job;
+    }
+
+    // Reads CSV (first column) or newline-delimited numbers line by line and writes them in
+    // pipelined batches; only one batch is ever held in memory
+    public void importNumbers(InputStream in, BulkJob job) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> batch = new ArrayList<>(batchSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String phoneNumber = firstColumn(line);
+            if (phoneNumber.isEmpty()) {
+                continue;
+            }
+            String canonical = E164.normalize(phoneNumber);
+            if (canonical == null) {
+                // Header rows and malformed entries
+                job.addRejected(1);
+                continue;
+            }
+            batch.add(canonical);
+            if (batch.size() == batchSize) {
+                flush(batch, job);
+            }
+        }
+        flush(batch, job);
+        job.complete();
+    }
+
+    // Registers the job up front so its id can be handed out before the body starts streaming
+    public BulkJob startExport() {
+        return newJob("export");
+    }
+
+    public void export(BulkJob job, OutputStream out) {
+        try {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            cache.forEachBlacklisted(phoneNumber -> {
+                try {
+                    writer.write(phoneNumber);
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                job.addProcessed(1);
+            });
+            writer.flush();
+            job.complete();
+        } catch (IOException | RuntimeException e) {
+            job.fail(e.getMessage());
+        }
+    }
+
+    // Backfills the packed layout from the key-per-number keys (run with storage=migrating so new
+    // writes already go to both). Legacy keys are left in place until every node reads packed.
+    public BulkJob startMigration() {
+        BulkJob job = newJob("migrate");
+        importExecutor.execute(() -> {
+            try {
+                migrateToPacked(job);
+            } catch (RuntimeException e) {
+                job.fail(e.getMessage());
+            }
+        });
+        return job;
+    }
+
+    public void migrateToPacked(BulkJob job) {
+        KeyPerNumberStore legacy = new KeyPerNumberStore(redisTemplate);
+        PackedBlacklistStore packed = new PackedBlacklistStore(redisTemplate, packedBuckets);
+        List<String> batch = new ArrayList<>(batchSize);
+        legacy.forEach(phoneNumber -> {
+            if (PhoneNumberCodec.encode(phoneNumber) == PhoneNumberCodec.INVALID) {
+                job.addRejected(1);
+                return;
+            }
+            // Legacy keys may lack the '+'; the packed layout gets the canonical form
+            batch.add(E164.canonical(phoneNumber));
+            if (batch.size() == batchSize) {
+                writePacked(packed, batch, job);
+            }
+        });
+        writePacked(packed, batch, job);
+        job.complete();
+    }
+
+    public BulkJob getJob(String jobId) {
+        return jobs.getIfPresent(jobId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+    }
+
+    private BulkJob newJob(String type) {
+        BulkJob job = new BulkJob(UUID.randomUUID().toString(), type);
+        jobs.put(job.getJobId(), job);
+        return job;
+    }
+
+    private void flush(List<String> batch, BulkJob job) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        cache.addAllToBlacklist(batch);
+        job.addProcessed(batch.size());
+        batch.clear();
+    }
+
+    private void writePacked(PackedBlacklistStore packed, List<String> batch, BulkJob job) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String phoneNumber : batch) {
+                packed.add(stringConnection, phoneNumber);
+            }
+            return null;
+        });
+        job.addProcessed(batch.size());
+        batch.clear();
+    }
+
+    private static String firstColumn(String line) {
+        int comma = line.indexOf(',');
+        String column = (comma >= 0 ? line.substring(0, comma) : line).trim();
+        if (column.length() >= 2 && column.startsWith("\"") && column.endsWith("\"")) {
+            column = column.substring(1, column.length() - 1).trim();
+        }
+        return column;
+    }
+}
@@ -1,26 +1,448 @@
 package com.example.demo.service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import com.example.demo.config.BlacklistProperties;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+
 @Service
-public class BlacklistCache {
+public class BlacklistCache implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(BlacklistCache.class);
+    // Starts an invalidation message that lists the numbers of one bulk add, one per line
+    public static final String BULK_ADD = "add\n";
+
     private final StringRedisTemplate redisTemplate;
-    private static final String BLACKLIST_PREFIX = "blacklist:";
+    private final BlacklistStore store;
+    private final String invalidationChannel;
+
+    // Complete local mirror of the blacklist (null when disabled or not loaded yet); when active it
+    // answers every lookup without Redis and without allocating. See rebuildLocalSet()
+    private final BlacklistProperties.LocalSet localSetSettings;
+    private volatile LongHashSet activeLocal;
+    private volatile LongHashSet buildingLocal;
+    private final Set<String> changedDuringLocalBuild = ConcurrentHashMap.newKeySet();
+
+    // In-process near cache in front of Redis, holds both hits and misses (null when disabled).
+    // Values are futures so the Redis read happens outside the cache's internal bin lock: a
+    // synchronous compute would hold a monitor across I/O and pin virtual threads.
+    private final AsyncCache<String, Boolean> nearCache;
+
+    // Pre-filter for the common "not blacklisted" case (null when disabled). Lookups only use a
+    // filter that has been completely filled from Redis; see rebuildBloomFilter()
+    private final BlacklistProperties.BloomFilter bloomSettings;
+    private volatile BloomFilter activeBloom;
+    private volatile BloomFilter buildingBloom;
+    private final LongAdder bloomNegatives = new LongAdder();
+
+    // The bloom filter and local set are rebuilt from Redis periodically (catching anything an
+    // invalidation message didn't) and after resync(); one rebuild at a time. A rebuild that
+    // overlaps a resync() is not activated, the one queued behind it is.
+    private final ScheduledExecutorService rebuilder;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private final AtomicLong resyncs = new AtomicLong();
 
     public BlacklistCache(StringRedisTemplate redisTemplate) {
+        this(redisTemplate, new BlacklistProperties());
+    }
+
+    @Autowired
+    public BlacklistCache(StringRedisTemplate redisTemplate, BlacklistProperties properties) {
         this.redisTemplate = redisTemplate;
+        this.store = BlacklistStore.create(redisTemplate, properties);
+        this.invalidationChannel = properties.getInvalidationChannel();
+        BlacklistProperties.NearCache near = properties.getNearCache();
+        this.nearCache = near.isEnabled()
+                ? Caffeine.newBuilder()
+                        .maximumSize(near.getMaximumSize())
+                        .expireAfterWrite(near.getTtl())
+                        .recordStats()
+                        .buildAsync()
+                : null;
+        this.bloomSettings = properties.getBloomFilter().isEnabled() ? properties.getBloomFilter() : null;
+        this.localSetSettings = properties.getLocalSet().isEnabled() ? properties.getLocalSet() : null;
+        if (bloomSettings == null && localSetSettings == null) {
+            this.rebuilder = null;
+            return;
+        }
+        // Rebuilds from the scheduled tasks and resync() share one thread
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "blacklist-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (bloomSettings != null) {
+            long interval = bloomSettings.getRebuildInterval().toMillis();
+            rebuilder.scheduleWithFixedDelay(() -> rebuildQuietly(this::rebuildBloomFilter), interval, interval,
+                    TimeUnit.MILLISECONDS);
+        }
+        if (localSetSettings != null) {
+            long interval = localSetSettings.getRebuildInterval().toMillis();
+            rebuilder.scheduleWithFixedDelay(() -> rebuildQuietly(this::rebuildLocalSet), interval, interval,
+                    TimeUnit.MILLISECONDS);
+        }
     }
 
+    // Numbers are looked up, stored and published in E164 canonical form, with or without the '+'
     public boolean isBlacklisted(String phoneNumber) {
-        return Boolean.TRUE.equals(redisTemplate.hasKey(BLACKLIST_PREFIX + phoneNumber));
+        phoneNumber = E164.canonical(phoneNumber);
+        LongHashSet local = activeLocal;
+        if (local != null) {
+            long encoded = PhoneNumberCodec.encode(phoneNumber);
+            if (encoded != PhoneNumberCodec.INVALID) {
+                return local.contains(encoded);
+            }
+        }
+        BloomFilter bloom = activeBloom;
+        if (bloom != null && !bloom.mightContain(phoneNumber)) {
+            // Definitely not present, no need to ask Redis
+            bloomNegatives.increment();
+            return false;
+        }
+        if (nearCache == null) {
+            return lookup(phoneNumber);
+        }
+        CompletableFuture<Boolean> cached = nearCache.getIfPresent(phoneNumber);
+        if (cached != null) {
+            return cached.join();
+        }
+        // Concurrent misses for the same number share one Redis read. An invalidation that lands
+        // while it is in flight drops the future from the cache, so the next lookup reloads.
+        CompletableFuture<Boolean> loading = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = nearCache.asMap().putIfAbsent(phoneNumber, loading);
+        if (existing != null) {
+            return existing.join();
+        }
+        try {
+            boolean blacklisted = lookup(phoneNumber);
+            loading.complete(blacklisted);
+            return blacklisted;
+        } catch (RuntimeException e) {
+            // Drop the failed future so the next lookup asks Redis again instead of rethrowing
+            nearCache.asMap().remove(phoneNumber, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Batch form of isBlacklisted: local tiers first, then a single multi-key Redis lookup for the
+    // rest. Batch answers are not written back to the near cache; without the per-key compute in
+    // isBlacklisted a late put could resurrect an entry an invalidation just removed.
+    public boolean[] areBlacklisted(List<String> phoneNumbers) {
+        boolean[] result = new boolean[phoneNumbers.size()];
+        LongHashSet local = activeLocal;
+        BloomFilter bloom = activeBloom;
+        List<String> remote = new ArrayList<>();
+        int[] remoteIndex = new int[result.length];
+        for (int i = 0; i < result.length; i++) {
+            String phoneNumber = E164.canonical(phoneNumbers.get(i));
+            if (local != null) {
+                long encoded = PhoneNumberCodec.encode(phoneNumber);
+                if (encoded != PhoneNumberCodec.INVALID) {
+                    result[i] = local.contains(encoded);
+                    continue;
+                }
+            }
+            if (bloom != null && !bloom.mightContain(phoneNumber)) {
+                bloomNegatives.increment();
+                continue;
+            }
+            CompletableFuture<Boolean> cached = nearCache == null ? null : nearCache.getIfPresent(phoneNumber);
+            if (cached != null && cached.isDone() && !cached.isCompletedExceptionally()) {
+                result[i] = cached.join();
+                continue;
+            }
+            remoteIndex[remote.size()] = i;
+            remote.add(phoneNumber);
+        }
+        if (!remote.isEmpty()) {
+            boolean[] found = store.containsAll(remote);
+            for (int j = 0; j < found.length; j++) {
+                result[remoteIndex[j]] = found[j];
+            }
+        }
+        return result;
     }
 
     public void addToBlacklist(String phoneNumber) {
-        redisTemplate.opsForValue().set(BLACKLIST_PREFIX + phoneNumber, "1");
+        phoneNumber = E164.canonical(phoneNumber);
+        store.add(phoneNumber);
+        applyAdd(phoneNumber);
+        publishInvalidation(phoneNumber);
+    }
+
+    // Pipelined writes for a whole batch in one round trip, followed by a single BULK_ADD message
+    // listing the batch instead of one message per number
+    public void addAllToBlacklist(List<String> phoneNumbers) {
+        List<String> canonical = phoneNumbers.stream().map(E164::canonical).toList();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String phoneNumber : canonical) {
+                store.add(stringConnection, phoneNumber);
+            }
+            stringConnection.publish(invalidationChannel, BULK_ADD + String.join("\n", canonical));
+            return null;
+        });
+        canonical.forEach(this::applyAdd);
     }
 
     public void removeFromBlacklist(String phoneNumber) {
-        redisTemplate.delete(BLACKLIST_PREFIX + phoneNumber);
+        phoneNumber = E164.canonical(phoneNumber);
+        store.remove(phoneNumber);
+        evictLocal(phoneNumber);
+        updateLocalSet(phoneNumber, false);
+        publishInvalidation(phoneNumber);
+    }
+
+    // Called for numbers changed on another replica. The message does not say whether the number
+    // was added or removed, so it always goes into the bloom filter: a removed number only costs
+    // a false positive, a missed add would let us send to a blocked number. The local set is exact,
+    // so it re-reads the number from Redis instead.
+    public void onRemoteChange(String phoneNumber) {
+        phoneNumber = E164.canonical(phoneNumber);
+        evictLocal(phoneNumber);
+        putBloom(phoneNumber);
+        refreshLocalSet(phoneNumber);
+    }
+
+    // Called for a bulk add on another replica. These numbers are known to be added, so they go
+    // straight into the local set without a Redis read each.
+    public void onRemoteAdd(List<String> phoneNumbers) {
+        for (String phoneNumber : phoneNumbers) {
+            applyAdd(E164.canonical(phoneNumber));
+        }
+    }
+
+    // For a lost subscription that may have missed messages, which can't be applied number by
+    // number. Every local answer is dropped and lookups go
+    // to Redis until the bloom filter and local set have been rebuilt in the background.
+    public void resync() {
+        resyncs.incrementAndGet();
+        activeBloom = null;
+        activeLocal = null;
+        if (nearCache != null) {
+            nearCache.synchronous().invalidateAll();
+        }
+        if (rebuilder != null && rebuildRequested.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildRequested.set(false);
+                rebuildQuietly(this::rebuildBloomFilter);
+                rebuildQuietly(this::rebuildLocalSet);
+            });
+        }
+    }
+
+    // Drops any locally cached answer so the next lookup goes back to Redis
+    public void evictLocal(String phoneNumber) {
+        if (nearCache != null) {
+            nearCache.synchronous().invalidate(phoneNumber);
+        }
+    }
+
+    // Fills a fresh bloom filter from a SCAN of the blacklist keys and swaps it in once complete.
+    // Adds that race with the scan land in the new filter too, see putBloom().
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildBloomFilter() {
+        if (bloomSettings == null) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            long resync = resyncs.get();
+            BloomFilter filter = new BloomFilter(bloomSettings.getExpectedInsertions(),
+                    bloomSettings.getFalsePositiveRate(), bloomSettings.getMaxMemory().toBytes());
+            buildingBloom = filter;
+            try {
+                forEachBlacklisted(filter::put);
+                if (resync == resyncs.get()) {
+                    activeBloom = filter;
+                }
+            } finally {
+                buildingBloom = null;
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Loads the whole blacklist into a primitive set and swaps it in once complete. A number changed
+    // while the scan runs may be seen by the scan either before or after the change, so those are
+    // re-read from Redis after the swap.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildLocalSet() {
+        if (localSetSettings == null) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            long resync = resyncs.get();
+            LongHashSet set = new LongHashSet(localSetSettings.getExpectedSize());
+            changedDuringLocalBuild.clear();
+            buildingLocal = set;
+            try {
+                store.forEachEncoded(set::add);
+                if (resync == resyncs.get()) {
+                    activeLocal = set;
+                }
+            } finally {
+                buildingLocal = null;
+            }
+            for (String phoneNumber : changedDuringLocalBuild) {
+                changedDuringLocalBuild.remove(phoneNumber);
+                refreshLocalSet(phoneNumber);
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Streams every blacklisted number with incremental scans, never holding the set in memory
+    public void forEachBlacklisted(Consumer<String> action) {
+        store.forEach(action);
+    }
+
+    public CacheStats nearCacheStats() {
+        return nearCache == null ? CacheStats.empty() : nearCache.synchronous().stats();
+    }
+
+    public long bloomNegativeCount() {
+        return bloomNegatives.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (nearCache != null) {
+            // Publishes cache.gets{result=hit|miss}, cache.evictions and cache.size
+            CaffeineCacheMetrics.monitor(registry, nearCache.synchronous(), "blacklist.near");
+        }
+        if (bloomSettings != null) {
+            Gauge.builder("blacklist.bloom.memory", this, c -> c.activeBloom == null ? 0 : c.activeBloom.byteSize())
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("blacklist.bloom.fpp.configured", bloomSettings, BlacklistProperties.BloomFilter::getFalsePositiveRate)
+                    .register(registry);
+            Gauge.builder("blacklist.bloom.fpp.estimated", this, c -> c.activeBloom == null ? 0 : c.activeBloom.expectedFpp())
+                    .register(registry);
+            FunctionCounter.builder("blacklist.bloom.negatives", bloomNegatives, LongAdder::sum)
+                    .description("Lookups answered by the bloom filter without a Redis round trip")
+                    .register(registry);
+        }
+        if (localSetSettings != null) {
+            Gauge.builder("blacklist.local.size", this, c -> c.activeLocal == null ? 0 : c.activeLocal.size())
+                    .register(registry);
+            Gauge.builder("blacklist.local.memory", this, c -> c.activeLocal == null ? 0 : c.activeLocal.memoryBytes())
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+        }
+    }
+
+    private void applyAdd(String phoneNumber) {
+        evictLocal(phoneNumber);
+        putBloom(phoneNumber);
+        updateLocalSet(phoneNumber, true);
+    }
+
+    // Reads buildingBloom before activeBloom: a rebuild publishes the active filter before clearing
+    // the building one, so an add is never lost between the two
+    private void putBloom(String phoneNumber) {
+        BloomFilter building = buildingBloom;
+        BloomFilter active = activeBloom;
+        if (building != null) {
+            building.put(phoneNumber);
+        }
+        if (active != null && active != building) {
+            active.put(phoneNumber);
+        }
+    }
+
+    // Same publication order as putBloom(): building set first, then the active one
+    private void updateLocalSet(String phoneNumber, boolean present) {
+        LongHashSet building = buildingLocal;
+        LongHashSet active = activeLocal;
+        if (building == null && active == null) {
+            return;
+        }
+        long encoded = PhoneNumberCodec.encode(phoneNumber);
+        if (encoded == PhoneNumberCodec.INVALID) {
+            return;
+        }
+        if (building != null) {
+            changedDuringLocalBuild.add(phoneNumber);
+            apply(building, encoded, present);
+        }
+        if (active != null && active != building) {
+            apply(active, encoded, present);
+        }
+    }
+
+    private void refreshLocalSet(String phoneNumber) {
+        if (buildingLocal != null || activeLocal != null) {
+            updateLocalSet(phoneNumber, store.contains(phoneNumber));
+        }
+    }
+
+    // Background rebuilds must not die on a Redis outage; the previous copy stays in use
+    private static void rebuildQuietly(Runnable rebuild) {
+        try {
+            rebuild.run();
+        } catch (RuntimeException e) {
+            log.warn("Blacklist rebuild from Redis failed, will retry: {}", e.toString());
+        }
+    }
+
+    private static void apply(LongHashSet set, long encoded, boolean present) {
+        if (present) {
+            set.add(encoded);
+        } else {
+            set.remove(encoded);
+        }
+    }
+
+    // Tells the other replicas to drop their cached answer; the near cache TTL
+    // still bounds staleness if a node misses the message while disconnected
+    private void publishInvalidation(String phoneNumber) {
+        redisTemplate.convertAndSend(invalidationChannel, phoneNumber);
+    }
+
+    private boolean lookup(String phoneNumber) {
+        return store.contains(phoneNumber);
     }
 }
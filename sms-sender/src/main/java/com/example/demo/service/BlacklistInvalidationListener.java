@@ -0,0 +1,41 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class BlacklistInvalidationListener implements MessageListener, SubscriptionListener {
+    private final BlacklistCache cache;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    public BlacklistInvalidationListener(BlacklistCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // Body is the phone number that was added to or removed from the blacklist, or BULK_ADD
+        // followed by the numbers of one bulk batch
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(BlacklistCache.BULK_ADD)) {
+            cache.onRemoteAdd(List.of(body.substring(BlacklistCache.BULK_ADD.length()).split("\n")));
+        } else {
+            cache.onRemoteChange(body);
+        }
+    }
+
+    // The container subscribes again after losing its connection; anything published while it
+    // was gone is lost, so every subscription after the first resyncs the cache
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        if (!subscribed.compareAndSet(false, true)) {
+            cache.resync();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.service;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.example.demo.config.BlacklistProperties;
+
+/**
+ * Redis layout behind {@link BlacklistCache}. The single-number operations go straight to Redis;
+ * {@link #add(StringRedisConnection, String)} only queues a command on an open pipeline.
+ */
+public interface BlacklistStore {
+
+    boolean contains(String phoneNumber);
+
+    // One round trip for the whole list; result[i] answers phoneNumbers.get(i)
+    boolean[] containsAll(List<String> phoneNumbers);
+
+    void add(String phoneNumber);
+
+    void remove(String phoneNumber);
+
+    void add(StringRedisConnection pipeline, String phoneNumber);
+
+    // Every blacklisted number, streamed with incremental scans
+    void forEach(Consumer<String> action);
+
+    default void forEachEncoded(LongConsumer action) {
+        forEach(phoneNumber -> {
+            long encoded = PhoneNumberCodec.encode(phoneNumber);
+            if (encoded != PhoneNumberCodec.INVALID) {
+                action.accept(encoded);
+            }
+        });
+    }
+
+    static BlacklistStore create(StringRedisTemplate redisTemplate, BlacklistProperties properties) {
+        return switch (properties.getStorage()) {
+            case KEYS -> new KeyPerNumberStore(redisTemplate);
+            case PACKED -> new PackedBlacklistStore(redisTemplate, properties.getPackedBuckets());
+            case MIGRATING -> new MigratingBlacklistStore(new KeyPerNumberStore(redisTemplate),
+                    new PackedBlacklistStore(redisTemplate, properties.getPackedBuckets()));
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free Bloom filter over phone numbers. Sized from the expected number of entries and
+ * target false-positive rate, then capped by a memory budget; if the cap bites, the filter
+ * still works but its real false-positive rate is higher (see {@link #expectedFpp()}).
+ */
+public class BloomFilter {
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashFunctions;
+    private final LongAdder insertions = new LongAdder();
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate, long maxBytes) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1 || maxBytes < 8) {
+            throw new IllegalArgumentException("Invalid bloom filter sizing");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2));
+        long words = Math.min((optimalBits + 63) / 64, maxBytes / 8);
+        if (words > Integer.MAX_VALUE) {
+            words = Integer.MAX_VALUE;
+        }
+        this.bits = new AtomicLongArray((int) words);
+        this.bitSize = words * 64;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * LN2));
+    }
+
+    public void put(CharSequence value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        boolean changed = false;
+        for (int i = 1; i <= hashFunctions; i++) {
+            long index = index(h1 + i * h2);
+            long mask = 1L << index;
+            int word = (int) (index >>> 6);
+            if ((bits.get(word) & mask) == 0) {
+                bits.getAndAccumulate(word, mask, (current, m) -> current | m);
+                changed = true;
+            }
+        }
+        if (changed) {
+            insertions.increment();
+        }
+    }
+
+    public boolean mightContain(CharSequence value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            long index = index(h1 + i * h2);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long byteSize() {
+        return bitSize / 8;
+    }
+
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    public long approximateInsertions() {
+        return insertions.sum();
+    }
+
+    // (set bits / m)^k, measured from the bit array itself so it stays honest when the
+    // memory cap makes the filter denser than planned; O(m / 64), meant for metric scrapes
+    public double expectedFpp() {
+        long setBits = 0;
+        for (int i = 0, n = bits.length(); i < n; i++) {
+            setBits += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) setBits / bitSize, hashFunctions);
+    }
+
+    private long index(int combined) {
+        // Spread the 32-bit combined hash over the whole bit array
+        return ((combined & 0xFFFFFFFFL) * bitSize) >>> 32;
+    }
+
+    // 64-bit FNV-1a over the chars with a murmur3 finaliser; no allocation per call
+    static long hash(CharSequence value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.service;
+
+/**
+ * Validates phone numbers and puts them in the canonical "+digits" form used for blacklist and
+ * Kafka keys, so "+15551234567" and "15551234567" are the same recipient. Accepts exactly what
+ * the old {@code ^\+?[1-9]\d{9,14}$} pattern did: an optional '+', then 10 to 15 ASCII digits
+ * without a leading zero. One pass over the chars, no regex, and nothing is allocated unless the
+ * '+' has to be added.
+ */
+public final class E164 {
+    public static final int MIN_DIGITS = 10;
+    public static final int MAX_DIGITS = 15;
+
+    private E164() {
+    }
+
+    public static boolean isValid(CharSequence phoneNumber) {
+        return digitsStart(phoneNumber) >= 0;
+    }
+
+    // Canonical form, or null when phoneNumber is not a valid number. A number that is already
+    // canonical is returned as is.
+    public static String normalize(String phoneNumber) {
+        int start = digitsStart(phoneNumber);
+        if (start < 0) {
+            return null;
+        }
+        return start == 1 ? phoneNumber : "+".concat(phoneNumber);
+    }
+
+    // Canonical form of a valid number; anything else (short codes, legacy entries) is returned
+    // unchanged so it still matches itself
+    public static String canonical(String phoneNumber) {
+        String normalized = normalize(phoneNumber);
+        return normalized != null ? normalized : phoneNumber;
+    }
+
+    // Index of the first digit (1 after a '+', else 0), or -1 when not a valid number
+    private static int digitsStart(CharSequence phoneNumber) {
+        if (phoneNumber == null) {
+            return -1;
+        }
+        int length = phoneNumber.length();
+        int start = length > 0 && phoneNumber.charAt(0) == '+' ? 1 : 0;
+        int digits = length - start;
+        if (digits < MIN_DIGITS || digits > MAX_DIGITS || phoneNumber.charAt(start) == '0') {
+            return -1;
+        }
+        for (int i = start; i < length; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+        }
+        return start;
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.SerializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.demo.config.SmsKafkaProperties;
+import com.example.demo.model.SmsEvent;
+
+/**
+ * Durable hand-off between request threads and Kafka. Publishing appends the event (binary
+ * encoded) to a SegmentLog and, with awaitFlush, waits for the next group fsync; one flusher
+ * thread forces the log every flushInterval. A drainer thread reads the log in order, keeps up
+ * to maxInFlight records outstanding with the publisher, and commits the log up to the longest
+ * acknowledged prefix, which deletes finished segments. After a failed send it waits
+ * retryInterval and resends from the last commit, so delivery is at-least-once (eventId lets
+ * consumers drop duplicates). Whatever was not committed is sent again after a restart.
+ *
+ * A record that can never be sent (it doesn't deserialize, or Kafka rejects it with a
+ * SerializationException or RecordTooLargeException) would stall the log forever. Its raw
+ * payload is copied to the dead-letter log in the dead-letter subdirectory, and the drain moves
+ * past it. That log is never committed or trimmed; inspect it and clear it by hand.
+ */
+public class EventOutbox implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(EventOutbox.class);
+
+    private final SegmentLog segmentLog;
+    private final SegmentLog deadLetterLog;
+    private final Function<SmsEvent, CompletableFuture<?>> publisher;
+    private final SmsEventBinarySerializer serializer = new SmsEventBinarySerializer();
+    private final SmsEventBinaryDeserializer deserializer = new SmsEventBinaryDeserializer();
+    private final long maxBytes;
+    private final long flushIntervalNanos;
+    private final boolean awaitFlush;
+    private final int maxInFlight;
+    private final long retryIntervalNanos;
+    private final LongAdder resends = new LongAdder();
+    private final LongAdder deadLetters = new LongAdder();
+
+    private final Thread flusher;
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    public EventOutbox(SmsKafkaProperties.Outbox settings, Function<SmsEvent, CompletableFuture<?>> publisher)
+            throws IOException {
+        this.segmentLog = new SegmentLog(Path.of(settings.getDirectory()), (int) settings.getSegmentSize().toBytes());
+        this.deadLetterLog = new SegmentLog(Path.of(settings.getDirectory(), "dead-letter"),
+                (int) settings.getSegmentSize().toBytes());
+        this.publisher = publisher;
+        this.maxBytes = settings.getMaxSize().toBytes();
+        this.flushIntervalNanos = settings.getFlushInterval().toNanos();
+        this.awaitFlush = settings.isAwaitFlush();
+        this.maxInFlight = settings.getMaxInFlight();
+        this.retryIntervalNanos = settings.getRetryInterval().toNanos();
+        if (segmentLog.backlogBytes() > 0) {
+            log.info("SMS event outbox holds {} bytes from a previous run, resending", segmentLog.backlogBytes());
+        }
+        this.flusher = new Thread(this::flushLoop, "sms-outbox-flush");
+        this.drainer = new Thread(this::drainLoop, "sms-outbox-drain");
+        flusher.setDaemon(true);
+        drainer.setDaemon(true);
+        flusher.start();
+        drainer.start();
+    }
+
+    // Throws EventPublishException when the outbox is full or (awaitFlush) the fsync takes longer
+    // than timeoutNanos
+    public void append(SmsEvent event, long timeoutNanos) {
+        appendAll(List.of(event), timeoutNanos);
+    }
+
+    // One wait for the whole list: the last record's fsync covers the others
+    public void appendAll(List<SmsEvent> events, long timeoutNanos) {
+        if (isFull()) {
+            throw new EventPublishException("SMS event outbox is full");
+        }
+        long end = write(events);
+        if (!awaitFlush) {
+            return;
+        }
+        try {
+            if (!segmentLog.awaitFlushed(end, timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new EventPublishException("Timed out waiting for the SMS event outbox to flush");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EventPublishException("Interrupted waiting for the SMS event outbox to flush");
+        }
+    }
+
+    // Like appendAll, but returns false (nothing written) when the outbox is full, and a slow
+    // fsync only ends the wait: the records are in the log either way
+    public boolean offerAll(List<SmsEvent> events, long timeoutNanos) {
+        if (isFull()) {
+            return false;
+        }
+        long end = write(events);
+        if (awaitFlush) {
+            try {
+                segmentLog.awaitFlushed(end, timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return true;
+    }
+
+    public boolean isFull() {
+        return segmentLog.backlogBytes() >= maxBytes;
+    }
+
+    public long backlogBytes() {
+        return segmentLog.backlogBytes();
+    }
+
+    public int segmentCount() {
+        return segmentLog.segmentCount();
+    }
+
+    // Times the drainer went back to the last commit after a failed send
+    public long resendCount() {
+        return resends.sum();
+    }
+
+    // Records moved to the dead-letter log since startup
+    public long deadLetterCount() {
+        return deadLetters.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(flusher);
+        LockSupport.unpark(drainer);
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segmentLog.close();
+        deadLetterLog.close();
+    }
+
+    // Appends the records and wakes the drainer; returns the log position after the last one
+    private long write(List<SmsEvent> events) {
+        long end;
+        try {
+            end = segmentLog.writePosition();
+            for (SmsEvent event : events) {
+                end = segmentLog.append(serializer.serialize(null, event));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LockSupport.unpark(drainer);
+        return end;
+    }
+
+    private void flushLoop() {
+        while (running) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            segmentLog.flush();
+        }
+    }
+
+    private void drainLoop() {
+        ArrayDeque<InFlight> window = new ArrayDeque<>();
+        long sendPosition = segmentLog.committedPosition();
+        while (running) {
+            try {
+                SegmentLog.Record record;
+                while (window.size() < maxInFlight && (record = segmentLog.read(sendPosition)) != null) {
+                    window.addLast(send(record));
+                    sendPosition = record.nextPosition();
+                }
+                long commitTo = -1;
+                while (!window.isEmpty() && window.peekFirst().done
+                        && (window.peekFirst().failure == null || !isRetriable(window.peekFirst().failure))) {
+                    InFlight head = window.pollFirst();
+                    if (head.failure != null) {
+                        deadLetter(head);
+                    }
+                    commitTo = head.end;
+                }
+                if (commitTo >= 0) {
+                    segmentLog.commit(commitTo);
+                }
+                if (!window.isEmpty() && window.peekFirst().done) {
+                    // Head failed: let the rest settle, then start over from the last commit
+                    while (running && !window.stream().allMatch(inFlight -> inFlight.done)) {
+                        LockSupport.parkNanos(this, flushIntervalNanos);
+                    }
+                    window.clear();
+                    sendPosition = segmentLog.committedPosition();
+                    resends.increment();
+                    LockSupport.parkNanos(this, retryIntervalNanos);
+                } else if (commitTo < 0) {
+                    // Woken by new appends and acks
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("SMS event outbox drain failed, retrying", e);
+                window.clear();
+                sendPosition = segmentLog.committedPosition();
+                LockSupport.parkNanos(this, retryIntervalNanos);
+            }
+        }
+    }
+
+    private InFlight send(SegmentLog.Record record) {
+        InFlight inFlight = new InFlight(record);
+        CompletableFuture<?> future;
+        try {
+            future = publisher.apply(deserializer.deserialize(null, record.payload()));
+        } catch (RuntimeException e) {
+            inFlight.complete(e, drainer);
+            return inFlight;
+        }
+        future.whenComplete((result, ex) -> inFlight.complete(ex, drainer));
+        return inFlight;
+    }
+
+    private void deadLetter(InFlight inFlight) throws IOException {
+        deadLetterLog.append(inFlight.record.payload());
+        deadLetterLog.flush();
+        deadLetters.increment();
+        log.error("SMS event in the outbox can never be sent, moved it to the dead-letter log", inFlight.failure);
+    }
+
+    // Resending the same bytes fails the same way for these, however long we wait
+    private static boolean isRetriable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SerializationException || cause instanceof RecordTooLargeException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class InFlight {
+        final SegmentLog.Record record;
+        final long end;
+        volatile Throwable failure;
+        volatile boolean done;
+
+        InFlight(SegmentLog.Record record) {
+            this.record = record;
+            this.end = record.nextPosition();
+        }
+
+        void complete(Throwable failure, Thread drainer) {
+            this.failure = failure;
+            this.done = true;
+            LockSupport.unpark(drainer);
+        }
+    }
+}
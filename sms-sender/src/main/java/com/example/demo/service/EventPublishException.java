@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Raised when the event retry buffer is full and the back-pressure policy turns the caller away
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class EventPublishException extends RuntimeException {
+    public EventPublishException(String message) {
+        super(message);
+    }
+}
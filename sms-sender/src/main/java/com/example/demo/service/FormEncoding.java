@@ -0,0 +1,25 @@
+package com.example.demo.service;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+// application/x-www-form-urlencoded request bodies for the provider APIs
+final class FormEncoding {
+
+    private FormEncoding() {
+    }
+
+    // Alternating names and values: encode("To", to, "Body", body)
+    static String encode(String... namesAndValues) {
+        StringBuilder form = new StringBuilder();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            if (i > 0) {
+                form.append('&');
+            }
+            form.append(URLEncoder.encode(namesAndValues[i], StandardCharsets.UTF_8))
+                    .append('=')
+                    .append(URLEncoder.encode(namesAndValues[i + 1], StandardCharsets.UTF_8));
+        }
+        return form.toString();
+    }
+}
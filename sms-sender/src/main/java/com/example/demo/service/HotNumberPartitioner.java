@@ -0,0 +1,57 @@
+package com.example.demo.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.example.demo.config.SmsKafkaProperties;
+
+/**
+ * Keeps known high-volume recipients from piling onto the same partition. The hot keys are
+ * sorted and dealt round-robin over the partitions; SmsEventProducer sends those records to
+ * that partition explicitly and leaves every other key to Kafka's default partitioner (murmur2
+ * of the key bytes). Built by Spring from sms.kafka.partitioner rather than plugged into the
+ * producer as partitioner.class, so the hot list never goes through the Kafka client config.
+ *
+ * The mapping depends only on the key, the hot list and the partition count, so every replica
+ * puts a given recipient on the same partition and per-recipient ordering holds. Changing the
+ * hot list or the partition count re-maps keys, just like adding partitions does.
+ */
+public class HotNumberPartitioner {
+    private static final HotNumberPartitioner NONE = new HotNumberPartitioner(List.of());
+
+    private final Map<String, Integer> hotKeyIndex;
+
+    // hotKeys are record keys, i.e. already passed through SmsEventKey
+    public HotNumberPartitioner(Collection<String> hotKeys) {
+        TreeSet<String> sorted = new TreeSet<>();
+        hotKeys.forEach(key -> sorted.add(key.trim()));
+        Map<String, Integer> index = new HashMap<>();
+        for (String key : sorted) {
+            index.put(key, index.size());
+        }
+        this.hotKeyIndex = index;
+    }
+
+    // The configured hot numbers turned into record keys; no hot keys when the partitioner is off
+    public static HotNumberPartitioner of(SmsKafkaProperties properties) {
+        if (!properties.getPartitioner().isEnabled()) {
+            return NONE;
+        }
+        return new HotNumberPartitioner(properties.getPartitioner().getHotNumbers().stream()
+                .map(number -> SmsEventKey.of(properties.getKeyStrategy(), properties.getKeySalt(), number))
+                .toList());
+    }
+
+    public boolean isHot(String key) {
+        return key != null && hotKeyIndex.containsKey(key);
+    }
+
+    // Partition for a hot key, or null to leave the record to the default partitioner
+    public Integer partition(String key, int partitions) {
+        Integer hot = key == null ? null : hotKeyIndex.get(key);
+        return hot == null ? null : hot % partitions;
+    }
+}
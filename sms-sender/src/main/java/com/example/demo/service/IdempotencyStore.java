@@ -0,0 +1,235 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.config.IdempotencyProperties;
+import com.example.demo.model.SmsResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Remembers the response to each idempotency key for the configured ttl so a retried request is
+ * answered with it instead of being sent again. The first request claims the key, and it stays
+ * in progress until the request completes (response stored) or is released (nothing was sent,
+ * the client may try again). Lookups hit a bounded Caffeine cache; in REDIS mode a key new to
+ * this instance is also claimed with SET NX, so a retry landing on another replica is caught
+ * too. The Redis claim expires after inProgressTtl in case its owner dies; while the owner is
+ * still working (a large batch can outlast any fixed ttl) it renews its claims every third of
+ * inProgressTtl. If Redis can't be reached the local cache alone decides.
+ */
+@Service
+public class IdempotencyStore implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final String IN_PROGRESS_VALUE = "";
+    // KEYS[1] claim; ARGV in-progress value, ttl ms. Only a claim still in progress is extended, so
+    // a renewal racing with complete() can't cut the stored response's ttl short.
+    private static final RedisScript<Long> RENEW = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    public enum State {
+        // The caller owns the key and must complete() or release() it
+        NEW,
+        // Another request with this key has not finished yet
+        IN_PROGRESS,
+        // Finished earlier; outcome holds its response
+        DONE
+    }
+
+    public record Claim(State state, Outcome outcome) {
+    }
+
+    // What the first request answered
+    public record Outcome(int httpStatus, SmsResponse response) {
+    }
+
+    private static final Claim NEW = new Claim(State.NEW, null);
+    private static final Claim IN_PROGRESS = new Claim(State.IN_PROGRESS, null);
+    // Local placeholder while the owning request runs
+    private static final Outcome PENDING = new Outcome(0, null);
+
+    private final boolean enabled;
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+    private final Duration inProgressTtl;
+    private final Cache<String, Outcome> local;
+    // Keys this instance holds an in-progress Redis claim on
+    private final Set<String> owned = ConcurrentHashMap.newKeySet();
+    // Null unless in REDIS mode
+    private final ScheduledExecutorService renewer;
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    @Autowired
+    public IdempotencyStore(IdempotencyProperties properties, StringRedisTemplate redisTemplate) {
+        this(properties, redisTemplate, Ticker.systemTicker());
+    }
+
+    public IdempotencyStore(IdempotencyProperties properties, StringRedisTemplate redisTemplate, Ticker ticker) {
+        this.enabled = properties.isEnabled();
+        this.redisTemplate = properties.getMode() == IdempotencyProperties.Mode.REDIS ? redisTemplate : null;
+        this.ttl = properties.getTtl();
+        this.inProgressTtl = properties.getInProgressTtl();
+        this.local = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxLocalKeys())
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .build();
+        if (this.redisTemplate != null) {
+            this.renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "idempotency-renew");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(inProgressTtl.toMillis() / 3, 1);
+            renewer.scheduleWithFixedDelay(this::renewClaims, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.renewer = null;
+        }
+    }
+
+    // The store key for a client's idempotency key, or null if there is none (or the store is off).
+    // Keys are per client so two clients can't collide or read each other's responses.
+    public String key(String clientId, String idempotencyKey) {
+        if (!enabled || idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        String client = clientId == null ? "" : clientId;
+        return client.length() + ":" + client + ":" + idempotencyKey;
+    }
+
+    public Claim claim(String key) {
+        Outcome existing = local.asMap().putIfAbsent(key, PENDING);
+        if (existing != null) {
+            return seen(existing);
+        }
+        if (redisTemplate == null) {
+            return NEW;
+        }
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + key, IN_PROGRESS_VALUE,
+                    inProgressTtl))) {
+                owned.add(key);
+                return NEW;
+            }
+            String stored = redisTemplate.opsForValue().get(KEY_PREFIX + key);
+            if (stored == null || stored.equals(IN_PROGRESS_VALUE)) {
+                // Owned by a request on another replica (or its claim expired just now)
+                local.asMap().remove(key, PENDING);
+                conflicts.increment();
+                return IN_PROGRESS;
+            }
+            Outcome outcome = JSON.readValue(stored, Outcome.class);
+            local.put(key, outcome);
+            return seen(outcome);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Shared idempotency store unavailable, using local keys only: {}", e.toString());
+            return NEW;
+        }
+    }
+
+    public void complete(String key, Outcome outcome) {
+        owned.remove(key);
+        local.put(key, outcome);
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + key, JSON.writeValueAsString(outcome), ttl);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not store idempotent response in Redis: {}", e.toString());
+        }
+    }
+
+    public void release(String key) {
+        owned.remove(key);
+        local.asMap().remove(key, PENDING);
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.delete(KEY_PREFIX + key);
+        } catch (RuntimeException e) {
+            log.warn("Could not release idempotency key in Redis: {}", e.toString());
+        }
+    }
+
+    // Pushes back the expiry of every claim this instance still holds
+    public void renewClaims() {
+        if (redisTemplate == null) {
+            return;
+        }
+        String ttlMillis = Long.toString(inProgressTtl.toMillis());
+        for (String key : owned) {
+            try {
+                redisTemplate.execute(RENEW, List.of(KEY_PREFIX + key), IN_PROGRESS_VALUE, ttlMillis);
+            } catch (RuntimeException e) {
+                log.warn("Could not renew idempotency claims in Redis: {}", e.toString());
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (renewer != null) {
+            renewer.shutdownNow();
+        }
+    }
+
+    public long replayedCount() {
+        return replayed.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sms.idempotency.replayed", replayed, LongAdder::sum)
+                .description("Requests answered with the stored response of an earlier request")
+                .register(registry);
+        FunctionCounter.builder("sms.idempotency.conflicts", conflicts, LongAdder::sum)
+                .description("Requests refused because an earlier one with the same key was still running")
+                .register(registry);
+        Gauge.builder("sms.idempotency.keys", local, Cache::estimatedSize)
+                .register(registry);
+    }
+
+    private Claim seen(Outcome outcome) {
+        if (outcome == PENDING) {
+            conflicts.increment();
+            return IN_PROGRESS;
+        }
+        replayed.increment();
+        return new Claim(State.DONE, outcome);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+// Original layout: one "blacklist:<number>" string key per blacklisted number. Keys written before
+// numbers were canonicalized may lack the '+', so every read also checks that legacy key (in the
+// same EXISTS or MGET) and removes delete both; scans report legacy keys in canonical form.
+public class KeyPerNumberStore implements BlacklistStore {
+    private static final String BLACKLIST_PREFIX = "blacklist:";
+    // Numbers start with '+' or 1-9, which keeps other "blacklist:" keys (packed buckets) out of scans
+    private static final String KEY_PATTERN = BLACKLIST_PREFIX + "[+1-9]*";
+    private static final int SCAN_BATCH = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+
+    public KeyPerNumberStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public boolean contains(String phoneNumber) {
+        String legacy = legacyKey(phoneNumber);
+        if (legacy == null) {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(BLACKLIST_PREFIX + phoneNumber));
+        }
+        Long found = redisTemplate.countExistingKeys(List.of(BLACKLIST_PREFIX + phoneNumber, legacy));
+        return found != null && found > 0;
+    }
+
+    // MGET instead of one EXISTS per number; each number asks for its key and its legacy key
+    @Override
+    public boolean[] containsAll(List<String> phoneNumbers) {
+        List<String> keys = new ArrayList<>(phoneNumbers.size() * 2);
+        for (String phoneNumber : phoneNumbers) {
+            String legacy = legacyKey(phoneNumber);
+            keys.add(BLACKLIST_PREFIX + phoneNumber);
+            keys.add(legacy != null ? legacy : BLACKLIST_PREFIX + phoneNumber);
+        }
+        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+        boolean[] result = new boolean[phoneNumbers.size()];
+        for (int i = 0; values != null && i < result.length; i++) {
+            result[i] = values.get(2 * i) != null || values.get(2 * i + 1) != null;
+        }
+        return result;
+    }
+
+    @Override
+    public void add(String phoneNumber) {
+        redisTemplate.opsForValue().set(BLACKLIST_PREFIX + phoneNumber, "1");
+    }
+
+    @Override
+    public void remove(String phoneNumber) {
+        String legacy = legacyKey(phoneNumber);
+        if (legacy == null) {
+            redisTemplate.delete(BLACKLIST_PREFIX + phoneNumber);
+        } else {
+            redisTemplate.delete(List.of(BLACKLIST_PREFIX + phoneNumber, legacy));
+        }
+    }
+
+    @Override
+    public void add(StringRedisConnection pipeline, String phoneNumber) {
+        pipeline.set(BLACKLIST_PREFIX + phoneNumber, "1");
+    }
+
+    @Override
+    public void forEach(Consumer<String> action) {
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PATTERN).count(SCAN_BATCH).build();
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            while (keys.hasNext()) {
+                action.accept(E164.canonical(keys.next().substring(BLACKLIST_PREFIX.length())));
+            }
+        }
+    }
+
+    // "blacklist:<digits>" for a canonical number, null for anything that never had another form
+    private static String legacyKey(String phoneNumber) {
+        return phoneNumber.startsWith("+") && E164.isValid(phoneNumber)
+                ? BLACKLIST_PREFIX + phoneNumber.substring(1)
+                : null;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import com.example.demo.config.RateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * In-process token buckets, one per key, refilled lazily from the elapsed time on each call. A
+ * bucket left alone for a whole period is full again, so it is simply evicted and recreated.
+ */
+public class LocalRateLimiter implements RateLimiter {
+    private final int capacity;
+    // Tokens per nanosecond
+    private final double rate;
+    private final LongSupplier nanoClock;
+    private final Cache<String, Bucket> buckets;
+
+    public LocalRateLimiter(RateLimitProperties.Limit limit, long maxBuckets, LongSupplier nanoClock) {
+        this.capacity = limit.getCapacity();
+        this.rate = (double) limit.getCapacity() / limit.getPeriod().toNanos();
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(limit.getPeriod().toNanos(), TimeUnit.NANOSECONDS)
+                .build();
+    }
+
+    @Override
+    public long tryAcquire(String key) {
+        return buckets.get(key, k -> new Bucket(capacity, nanoClock.getAsLong())).tryAcquire(nanoClock.getAsLong(),
+                capacity, rate);
+    }
+
+    private static final class Bucket {
+        private final ReentrantLock lock = new ReentrantLock();
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        long tryAcquire(long now, int capacity, double rate) {
+            lock.lock();
+            try {
+                tokens = Math.min(capacity, tokens + Math.max(0, now - refilledAt) * rate);
+                refilledAt = now;
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return 0;
+                }
+                return (long) Math.ceil((1 - tokens) / rate);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
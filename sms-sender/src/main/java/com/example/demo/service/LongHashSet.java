@@ -0,0 +1,160 @@
+package com.example.demo.service;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing set of positive longs (linear probing, backward-shift deletion), about 16 bytes
+ * per entry at the 0.5 load factor. Reads take an optimistic stamp and only fall back to the read
+ * lock if a writer got in the way, so lookups neither allocate nor contend.
+ */
+public class LongHashSet {
+    private static final long EMPTY = 0;
+    // Largest table we grow to (8GB of longs); at the 0.5 load factor it holds 2^29 values
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] table;
+    private int size;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2L && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        table = new long[capacity];
+    }
+
+    public boolean contains(long value) {
+        long stamp = lock.tryOptimisticRead();
+        boolean found = probe(table, value);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = probe(table, value);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    public boolean add(long value) {
+        checkValue(value);
+        long stamp = lock.writeLock();
+        try {
+            long[] t = table;
+            int mask = t.length - 1;
+            int i = index(value, mask);
+            while (t[i] != EMPTY) {
+                if (t[i] == value) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            if (size >= t.length / 2 && t.length == MAX_CAPACITY) {
+                throw new IllegalStateException("LongHashSet is full at " + size + " values");
+            }
+            t[i] = value;
+            if (++size > t.length / 2) {
+                resize(t.length << 1);
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(long value) {
+        checkValue(value);
+        long stamp = lock.writeLock();
+        try {
+            long[] t = table;
+            int mask = t.length - 1;
+            int i = index(value, mask);
+            while (t[i] != value) {
+                if (t[i] == EMPTY) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            // Shift later entries of the probe run back so lookups never stop early
+            int gap = i;
+            int j = (i + 1) & mask;
+            while (t[j] != EMPTY) {
+                int home = index(t[j], mask);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    t[gap] = t[j];
+                    gap = j;
+                }
+                j = (j + 1) & mask;
+            }
+            t[gap] = EMPTY;
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long memoryBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) table.length * Long.BYTES;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Bounded by the table length so a torn optimistic read cannot loop forever
+    private static boolean probe(long[] t, long value) {
+        int mask = t.length - 1;
+        int i = index(value, mask);
+        for (int n = 0; n < t.length; n++) {
+            long current = t[i];
+            if (current == value) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        long[] t = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                int i = index(value, mask);
+                while (t[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                t[i] = value;
+            }
+        }
+        table = t;
+    }
+
+    private static int index(long value, int mask) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static void checkValue(long value) {
+        if (value <= EMPTY) {
+            throw new IllegalArgumentException("Only positive values can be stored");
+        }
+    }
+}
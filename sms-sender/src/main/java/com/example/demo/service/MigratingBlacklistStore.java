@@ -0,0 +1,62 @@
+package com.example.demo.service;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.data.redis.connection.StringRedisConnection;
+
+/**
+ * Used while moving from key-per-number to the packed layout: writes go to both, reads accept
+ * either, so the fleet stays correct before, during and after the backfill
+ * ({@link BlacklistBulkService#startMigration()}). Once the backfill is done every replica can
+ * switch to {@code packed} and the old keys can be dropped.
+ */
+public class MigratingBlacklistStore implements BlacklistStore {
+    private final KeyPerNumberStore legacy;
+    private final PackedBlacklistStore packed;
+
+    public MigratingBlacklistStore(KeyPerNumberStore legacy, PackedBlacklistStore packed) {
+        this.legacy = legacy;
+        this.packed = packed;
+    }
+
+    @Override
+    public boolean contains(String phoneNumber) {
+        return packed.contains(phoneNumber) || legacy.contains(phoneNumber);
+    }
+
+    @Override
+    public boolean[] containsAll(List<String> phoneNumbers) {
+        boolean[] packedResult = packed.containsAll(phoneNumbers);
+        boolean[] legacyResult = legacy.containsAll(phoneNumbers);
+        for (int i = 0; i < packedResult.length; i++) {
+            packedResult[i] |= legacyResult[i];
+        }
+        return packedResult;
+    }
+
+    @Override
+    public void add(String phoneNumber) {
+        // Packed first: it rejects numbers it cannot encode before anything is written
+        packed.add(phoneNumber);
+        legacy.add(phoneNumber);
+    }
+
+    @Override
+    public void remove(String phoneNumber) {
+        legacy.remove(phoneNumber);
+        packed.remove(phoneNumber);
+    }
+
+    @Override
+    public void add(StringRedisConnection pipeline, String phoneNumber) {
+        packed.add(pipeline, phoneNumber);
+        legacy.add(pipeline, phoneNumber);
+    }
+
+    // Dual writes keep the legacy keys complete until the switch, so they are the full set
+    @Override
+    public void forEach(Consumer<String> action) {
+        legacy.forEach(action);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Packed layout: numbers are encoded with {@link PhoneNumberCodec} and spread over a fixed number of
+ * Redis sets ("blacklist:packed:<bucket>"). Members are plain integers, so as long as a bucket stays
+ * under set-max-intset-entries (512 by default) Redis stores it as an intset at 8 bytes per number
+ * instead of a full key per number. 65536 buckets keep ~30M numbers in intset form.
+ */
+public class PackedBlacklistStore implements BlacklistStore {
+    private static final String BUCKET_PREFIX = "blacklist:packed:";
+    private static final int SCAN_BATCH = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final int buckets;
+
+    public PackedBlacklistStore(StringRedisTemplate redisTemplate, int buckets) {
+        this.redisTemplate = redisTemplate;
+        this.buckets = buckets;
+    }
+
+    @Override
+    public boolean contains(String phoneNumber) {
+        long encoded = PhoneNumberCodec.encode(phoneNumber);
+        if (encoded == PhoneNumberCodec.INVALID) {
+            return false;
+        }
+        return Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(bucketKey(encoded), Long.toString(encoded)));
+    }
+
+    // Pipelined SISMEMBER; numbers that cannot be encoded are never blacklisted here
+    @Override
+    public boolean[] containsAll(List<String> phoneNumbers) {
+        boolean[] result = new boolean[phoneNumbers.size()];
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String phoneNumber : phoneNumbers) {
+                long encoded = PhoneNumberCodec.encode(phoneNumber);
+                if (encoded != PhoneNumberCodec.INVALID) {
+                    stringConnection.sIsMember(bucketKey(encoded), Long.toString(encoded));
+                }
+            }
+            return null;
+        });
+        int reply = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (PhoneNumberCodec.encode(phoneNumbers.get(i)) != PhoneNumberCodec.INVALID) {
+                result[i] = Boolean.TRUE.equals(replies.get(reply++));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void add(String phoneNumber) {
+        long encoded = encodeOrThrow(phoneNumber);
+        redisTemplate.opsForSet().add(bucketKey(encoded), Long.toString(encoded));
+    }
+
+    @Override
+    public void remove(String phoneNumber) {
+        long encoded = PhoneNumberCodec.encode(phoneNumber);
+        if (encoded != PhoneNumberCodec.INVALID) {
+            redisTemplate.opsForSet().remove(bucketKey(encoded), Long.toString(encoded));
+        }
+    }
+
+    @Override
+    public void add(StringRedisConnection pipeline, String phoneNumber) {
+        long encoded = encodeOrThrow(phoneNumber);
+        pipeline.sAdd(bucketKey(encoded), Long.toString(encoded));
+    }
+
+    @Override
+    public void forEach(Consumer<String> action) {
+        forEachEncoded(encoded -> action.accept(PhoneNumberCodec.decode(encoded)));
+    }
+
+    // Buckets are small intsets, so SMEMBERS per bucket is cheap and avoids a nested SSCAN
+    @Override
+    public void forEachEncoded(LongConsumer action) {
+        ScanOptions options = ScanOptions.scanOptions().match(BUCKET_PREFIX + "*").count(SCAN_BATCH).build();
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            while (keys.hasNext()) {
+                Set<String> members = redisTemplate.opsForSet().members(keys.next());
+                if (members != null) {
+                    for (String member : members) {
+                        action.accept(Long.parseLong(member));
+                    }
+                }
+            }
+        }
+    }
+
+    private String bucketKey(long encoded) {
+        return BUCKET_PREFIX + Math.floorMod(encoded, buckets);
+    }
+
+    private static long encodeOrThrow(String phoneNumber) {
+        long encoded = PhoneNumberCodec.encode(phoneNumber);
+        if (encoded == PhoneNumberCodec.INVALID) {
+            throw new IllegalArgumentException("Phone number cannot be packed: " + phoneNumber);
+        }
+        return encoded;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.service;
+
+/**
+ * Packs a phone number ({@code +?[1-9][0-9]{0,14}}) into a single {@code long}: the digits as an
+ * integer (at most 15 digits, so below 2^50) plus a flag bit recording a leading '+', which keeps
+ * the encoding reversible for the existing key-per-number entries.
+ */
+public final class PhoneNumberCodec {
+    public static final long INVALID = -1;
+
+    private static final long PLUS_FLAG = 1L << 60;
+    private static final int MAX_DIGITS = 15;
+
+    private PhoneNumberCodec() {
+    }
+
+    // Parses in place, no allocation; returns INVALID for anything that is not a plain number
+    public static long encode(CharSequence phoneNumber) {
+        int length = phoneNumber.length();
+        int i = 0;
+        long flag = 0;
+        if (length > 0 && phoneNumber.charAt(0) == '+') {
+            flag = PLUS_FLAG;
+            i = 1;
+        }
+        int digits = length - i;
+        if (digits < 1 || digits > MAX_DIGITS || phoneNumber.charAt(i) == '0') {
+            return INVALID;
+        }
+        long value = 0;
+        for (; i < length; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value | flag;
+    }
+
+    public static String decode(long encoded) {
+        long digits = encoded & ~PLUS_FLAG;
+        return (encoded & PLUS_FLAG) != 0 ? "+" + digits : Long.toString(digits);
+    }
+}
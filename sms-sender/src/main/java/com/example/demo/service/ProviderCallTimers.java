@@ -0,0 +1,30 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// sms.provider.latency histograms for one provider, one timer per outcome
+final class ProviderCallTimers {
+    private final MeterRegistry registry;
+    private final String provider;
+    private final Timer success;
+
+    ProviderCallTimers(MeterRegistry registry, String provider) {
+        this.registry = registry;
+        this.provider = provider;
+        this.success = get("success");
+    }
+
+    Timer success() {
+        return success;
+    }
+
+    // "4xx", "5xx", "io_error", ...
+    Timer get(String outcome) {
+        return Timer.builder("sms.provider.latency")
+                .tag("provider", provider)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo.service;
+
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Counts, per provider call, whether the HTTP client reused a pooled connection or had to open
+ * a new one. java.net.http has no connection events: providers report each call, and a new
+ * connection is seen when the client asks the SSLContext from countConnections for a TLS
+ * engine, which it does once per connection (cleartext connections are not counted). A healthy
+ * keep-alive pool (or one multiplexed HTTP/2 connection) keeps the reuse ratio close to 1.
+ */
+@Component
+public class ProviderConnectionMetrics implements MeterBinder {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    // The same context, counting every engine it creates as one new connection
+    public SSLContext countConnections(SSLContext context) {
+        SSLContextSpi counting = new SSLContextSpi() {
+            @Override
+            protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) throws KeyManagementException {
+                context.init(km, tm, sr);
+            }
+
+            @Override
+            protected SSLSocketFactory engineGetSocketFactory() {
+                return context.getSocketFactory();
+            }
+
+            @Override
+            protected SSLServerSocketFactory engineGetServerSocketFactory() {
+                return context.getServerSocketFactory();
+            }
+
+            @Override
+            protected SSLEngine engineCreateSSLEngine() {
+                opened.increment();
+                return context.createSSLEngine();
+            }
+
+            @Override
+            protected SSLEngine engineCreateSSLEngine(String host, int port) {
+                opened.increment();
+                return context.createSSLEngine(host, port);
+            }
+
+            @Override
+            protected SSLSessionContext engineGetServerSessionContext() {
+                return context.getServerSessionContext();
+            }
+
+            @Override
+            protected SSLSessionContext engineGetClientSessionContext() {
+                return context.getClientSessionContext();
+            }
+
+            @Override
+            protected SSLParameters engineGetDefaultSSLParameters() {
+                return context.getDefaultSSLParameters();
+            }
+
+            @Override
+            protected SSLParameters engineGetSupportedSSLParameters() {
+                return context.getSupportedSSLParameters();
+            }
+        };
+        return new SSLContext(counting, context.getProvider(), context.getProtocol()) {
+        };
+    }
+
+    public void recordCall() {
+        calls.increment();
+    }
+
+    public long reusedCount() {
+        return Math.max(0, calls.sum() - opened.sum());
+    }
+
+    public long openedCount() {
+        return opened.sum();
+    }
+
+    public double reuseRatio() {
+        long total = calls.sum();
+        return total == 0 ? 0 : (double) reusedCount() / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sms.provider.connections", this, ProviderConnectionMetrics::reusedCount).tag("reused", "true").register(registry);
+        FunctionCounter.builder("sms.provider.connections", opened, LongAdder::sum).tag("reused", "false").register(registry);
+        Gauge.builder("sms.provider.connections.reuse.ratio", this, ProviderConnectionMetrics::reuseRatio).register(registry);
+    }
+}
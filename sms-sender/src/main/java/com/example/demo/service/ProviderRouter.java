@@ -0,0 +1,300 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.random.RandomGenerator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.config.ProviderProperties;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * The SmsProvider the rest of the service talks to. Each message goes to one of the configured
+ * providers, picked at random with probability inversely proportional to its score:
+ *
+ * <pre>
+ * score = (EWMA latency + 2 * EWMA absolute deviation) * (1 + errorPenalty * EWMA error rate)
+ * </pre>
+ *
+ * The latency term tracks roughly the p95 of recent calls. Every provider keeps at least
+ * minShare of the traffic so that one which recovers is noticed and earns its share back.
+ *
+ * <p>Each provider also sits behind its own circuit breaker and bulkhead. An open breaker takes
+ * the provider out of the pick until it is half-open again; a call rejected by either one fails
+ * immediately without a request being made.
+ *
+ * <p>Failover only re-sends a message the first provider never received: a rejection by the
+ * breaker or bulkhead, or a connection that could not be set up. Once the request has been
+ * written, a timeout or a 5xx may still mean the provider accepted it, and a second provider
+ * would deliver it twice.
+ */
+@Service
+@Primary
+public class ProviderRouter implements SmsProvider, MeterBinder {
+    private final List<Route> routes;
+    private final ProviderProperties.Routing settings;
+    private final LongSupplier nanoClock;
+    private final RandomGenerator random;
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final BulkheadRegistry bulkheads;
+
+    @Autowired
+    public ProviderRouter(List<SmsProvider> providers, ProviderProperties properties) {
+        this(providers, properties, System::nanoTime, null);
+    }
+
+    // nanoClock and random are injectable for tests; a null random means ThreadLocalRandom
+    public ProviderRouter(List<SmsProvider> providers, ProviderProperties properties, LongSupplier nanoClock,
+            RandomGenerator random) {
+        if (providers.isEmpty()) {
+            throw new IllegalStateException("No SMS provider is enabled (sms.provider.*.enabled)");
+        }
+        this.settings = properties.getRouting();
+        this.nanoClock = nanoClock;
+        this.random = random;
+        this.circuitBreakers = CircuitBreakerRegistry.of(circuitBreakerConfig(properties.getCircuitBreaker()));
+        this.bulkheads = BulkheadRegistry.of(bulkheadConfig(properties.getBulkhead()));
+        double initialLatency = settings.getInitialLatency().toNanos();
+        this.routes = providers.stream()
+                .map(provider -> new Route(provider, initialLatency,
+                        circuitBreakers.circuitBreaker(provider.name()), bulkheads.bulkhead(provider.name())))
+                .toList();
+    }
+
+    @Override
+    public String name() {
+        return "router";
+    }
+
+    @Override
+    public void sendSms(String phoneNumber, String message) {
+        Route first = pick(null);
+        try {
+            call(first, phoneNumber, message);
+        } catch (SmsProviderException e) {
+            if (!e.isNotSent() || !settings.isFailover() || routes.size() < 2) {
+                throw e;
+            }
+            call(pick(first), phoneNumber, message);
+        }
+    }
+
+    // Current score per provider, lower is better
+    public List<Double> scores() {
+        List<Double> scores = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            scores.add(route.score(settings.getErrorPenalty()));
+        }
+        return scores;
+    }
+
+    public CircuitBreaker.State circuitState(String provider) {
+        return circuitBreakers.circuitBreaker(provider).getState();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Route route : routes) {
+            String name = route.provider.name();
+            FunctionCounter.builder("sms.provider.routed", route.routed, LongAdder::sum)
+                    .tag("provider", name)
+                    .register(registry);
+            Gauge.builder("sms.provider.latency.ewma", route, r -> r.latency / 1e9)
+                    .tag("provider", name)
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("sms.provider.error.rate", route, r -> r.errorRate)
+                    .tag("provider", name)
+                    .register(registry);
+            Gauge.builder("sms.provider.score", route, r -> r.score(settings.getErrorPenalty()))
+                    .tag("provider", name)
+                    .register(registry);
+            for (Rejection reason : Rejection.values()) {
+                FunctionCounter.builder("sms.provider.rejected", route.rejected[reason.ordinal()], LongAdder::sum)
+                        .tag("provider", name)
+                        .tag("reason", reason.tag)
+                        .register(registry);
+            }
+        }
+        // resilience4j.circuitbreaker.state / .calls / .not.permitted.calls and
+        // resilience4j.bulkhead.available.concurrent.calls, tagged name=<provider>
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(registry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(registry);
+    }
+
+    private void call(Route route, String phoneNumber, String message) {
+        String name = route.provider.name();
+        try {
+            route.circuitBreaker.executeRunnable(
+                    () -> route.bulkhead.executeRunnable(() -> timedCall(route, phoneNumber, message)));
+        } catch (CallNotPermittedException e) {
+            route.rejected[Rejection.CIRCUIT_OPEN.ordinal()].increment();
+            throw SmsProviderException.notSent(name, "Provider " + name + " is unavailable (circuit open)");
+        } catch (BulkheadFullException e) {
+            route.rejected[Rejection.BULKHEAD_FULL.ordinal()].increment();
+            throw SmsProviderException.notSent(name, "Provider " + name + " is busy (too many calls in flight)");
+        }
+    }
+
+    private void timedCall(Route route, String phoneNumber, String message) {
+        route.routed.increment();
+        long start = nanoClock.getAsLong();
+        boolean failed = true;
+        try {
+            route.provider.sendSms(phoneNumber, message);
+            failed = false;
+        } catch (SmsProviderException e) {
+            failed = isProviderFault(e);
+            throw e;
+        } finally {
+            route.record(nanoClock.getAsLong() - start, failed, settings.getAlpha());
+        }
+    }
+
+    // Weighted random choice, skipping exclude (if any) and providers whose breaker is open.
+    // If every remaining breaker is open the open ones stay in, and the call is rejected quickly.
+    private Route pick(Route exclude) {
+        int n = routes.size();
+        if (n == 1) {
+            return routes.get(0);
+        }
+        boolean[] eligible = new boolean[n];
+        int candidates = 0;
+        for (int i = 0; i < n; i++) {
+            Route route = routes.get(i);
+            if (route != exclude && route.isCallPermitted()) {
+                eligible[i] = true;
+                candidates++;
+            }
+        }
+        if (candidates == 0) {
+            for (int i = 0; i < n; i++) {
+                if (routes.get(i) != exclude) {
+                    eligible[i] = true;
+                    candidates++;
+                }
+            }
+        }
+        double[] weights = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            if (eligible[i]) {
+                weights[i] = 1 / routes.get(i).score(settings.getErrorPenalty());
+                total += weights[i];
+            }
+        }
+        double floor = Math.min(settings.getMinShare(), 1.0 / candidates);
+        double spread = 1 - floor * candidates;
+        double target = (random == null ? ThreadLocalRandom.current() : random).nextDouble();
+        Route chosen = null;
+        for (int i = 0; i < n; i++) {
+            if (!eligible[i]) {
+                continue;
+            }
+            Route route = routes.get(i);
+            chosen = route;
+            target -= floor + spread * weights[i] / total;
+            if (target < 0) {
+                break;
+            }
+        }
+        return chosen;
+    }
+
+    private static CircuitBreakerConfig circuitBreakerConfig(ProviderProperties.CircuitBreaker settings) {
+        return CircuitBreakerConfig.custom()
+                .failureRateThreshold(settings.getFailureRateThreshold())
+                .slowCallDurationThreshold(settings.getSlowCallDurationThreshold())
+                .slowCallRateThreshold(settings.getSlowCallRateThreshold())
+                .slidingWindowSize(settings.getSlidingWindowSize())
+                .minimumNumberOfCalls(settings.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(settings.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(settings.getPermittedCallsInHalfOpenState())
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                // A message the provider rejected says nothing about the provider's health
+                .recordException(e -> e instanceof SmsProviderException spe && isProviderFault(spe))
+                .build();
+    }
+
+    // A rejected message says nothing about the provider's health; a timeout does, retryable or not
+    private static boolean isProviderFault(SmsProviderException e) {
+        return e.isRetryable() || e.isOutcomeUnknown();
+    }
+
+    private static BulkheadConfig bulkheadConfig(ProviderProperties.Bulkhead settings) {
+        return BulkheadConfig.custom()
+                .maxConcurrentCalls(settings.getMaxConcurrentCalls())
+                .maxWaitDuration(settings.getMaxWait())
+                .build();
+    }
+
+    private enum Rejection {
+        CIRCUIT_OPEN, BULKHEAD_FULL;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Route {
+        final SmsProvider provider;
+        final CircuitBreaker circuitBreaker;
+        final Bulkhead bulkhead;
+        final LongAdder routed = new LongAdder();
+        final LongAdder[] rejected = { new LongAdder(), new LongAdder() };
+        // Updates are a few arithmetic operations; the lock is never held across a call
+        private final ReentrantLock lock = new ReentrantLock();
+        // Nanoseconds
+        volatile double latency;
+        volatile double deviation;
+        volatile double errorRate;
+
+        Route(SmsProvider provider, double initialLatency, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+            this.provider = provider;
+            this.latency = initialLatency;
+            this.circuitBreaker = circuitBreaker;
+            this.bulkhead = bulkhead;
+        }
+
+        boolean isCallPermitted() {
+            CircuitBreaker.State state = circuitBreaker.getState();
+            return state != CircuitBreaker.State.OPEN && state != CircuitBreaker.State.FORCED_OPEN;
+        }
+
+        double score(double errorPenalty) {
+            return Math.max(1, latency + 2 * deviation) * (1 + errorPenalty * errorRate);
+        }
+
+        void record(long nanos, boolean failed, double alpha) {
+            lock.lock();
+            try {
+                double diff = nanos - latency;
+                latency += alpha * diff;
+                deviation += alpha * (Math.abs(diff) - deviation);
+                errorRate += alpha * ((failed ? 1 : 0) - errorRate);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
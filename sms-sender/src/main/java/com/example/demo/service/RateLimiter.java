@@ -0,0 +1,10 @@
+package com.example.demo.service;
+
+/**
+ * One token-bucket limit (capacity per period) applied to many keys.
+ */
+public interface RateLimiter {
+    // Takes a token from key's bucket: 0 if there was one, otherwise the nanoseconds until there
+    // will be (nothing is taken then)
+    long tryAcquire(String key);
+}
@@ -0,0 +1,88 @@
+package com.example.demo.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.example.demo.config.RateLimitProperties;
+
+/**
+ * Token buckets shared by every replica: one Redis hash per key ("ratelimit:<scope>:<key>"),
+ * refilled and decremented atomically by a Lua script using the Redis server clock. The hash
+ * expires once it would be full again. If Redis can't be reached the call is let through, and
+ * only the local limit applies until it is back; that is logged at most once per WARN_INTERVAL,
+ * not on every send.
+ */
+public class RedisRateLimiter implements RateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(RedisRateLimiter.class);
+    private static final long WARN_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+    // KEYS[1] bucket; ARGV capacity, tokens per ms, ttl ms. Returns ms until a token is available, 0 if taken.
+    private static final RedisScript<Long> TOKEN_BUCKET = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local capacity = tonumber(ARGV[1])
+            local rate = tonumber(ARGV[2])
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1]) or capacity
+            local ts = tonumber(state[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate)
+            local wait = 0
+            if tokens >= 1 then
+                tokens = tokens - 1
+            else
+                wait = math.ceil((1 - tokens) / rate)
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return wait
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+    private final String capacity;
+    private final String ratePerMilli;
+    private final String ttlMillis;
+    // Calls that failed open since the last warning, and when the next one may be logged
+    private final LongAdder failedOpen = new LongAdder();
+    private final AtomicLong nextWarn = new AtomicLong(System.nanoTime());
+    private volatile boolean unavailable;
+
+    public RedisRateLimiter(StringRedisTemplate redisTemplate, String scope, RateLimitProperties.Limit limit) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = "ratelimit:" + scope + ":";
+        this.capacity = Integer.toString(limit.getCapacity());
+        this.ratePerMilli = Double.toString((double) limit.getCapacity() / limit.getPeriod().toMillis());
+        this.ttlMillis = Long.toString(Math.max(limit.getPeriod().toMillis(), 1));
+    }
+
+    @Override
+    public long tryAcquire(String key) {
+        try {
+            Long waitMillis = redisTemplate.execute(TOKEN_BUCKET, List.of(keyPrefix + key), capacity, ratePerMilli,
+                    ttlMillis);
+            if (unavailable) {
+                unavailable = false;
+                log.info("Shared rate limit {} available again", keyPrefix);
+            }
+            return waitMillis == null ? 0 : TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        } catch (RuntimeException e) {
+            unavailable = true;
+            failedOpen.increment();
+            long now = System.nanoTime();
+            long next = nextWarn.get();
+            if (now - next >= 0 && nextWarn.compareAndSet(next, now + WARN_INTERVAL)) {
+                log.warn("Shared rate limit {} unavailable, using local limit only ({} calls since the last warning): {}",
+                        keyPrefix, failedOpen.sumThenReset(), e.toString());
+            }
+            return 0;
+        }
+    }
+}
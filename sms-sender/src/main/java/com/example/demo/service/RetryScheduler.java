@@ -0,0 +1,212 @@
+package com.example.demo.service;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.config.SendProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs delayed retries on a hashed timer wheel: wheelSize buckets of one tick each, a task landing
+ * in the bucket for (deadline / tick) mod wheelSize with the number of full turns left to wait.
+ * Scheduling is an enqueue and each tick only walks one bucket, so cost does not grow with the
+ * number of pending retries. A pending retry is one small node plus its task, and at most
+ * maxPending are waiting or running at a time.
+ *
+ * <p>The wheel thread only moves due tasks to a small worker pool; the tasks themselves (provider
+ * calls) run there. Pending retries are held in memory and are lost on shutdown.
+ */
+@Component
+public class RetryScheduler implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(RetryScheduler.class);
+
+    private final SendProperties.Retry settings;
+    private final long tickNanos;
+    private final Timeout[] heads;
+    private final Timeout[] tails;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final ExecutorService workers;
+    private final Thread wheelThread;
+    private final long startNanos = System.nanoTime();
+    private volatile boolean running = true;
+    // Wheel thread only
+    private long tick;
+
+    public RetryScheduler(SendProperties properties) {
+        this.settings = properties.getRetry();
+        this.tickNanos = Math.max(settings.getTick().toNanos(), TimeUnit.MILLISECONDS.toNanos(1));
+        int size = Integer.highestOneBit(Math.max(settings.getWheelSize(), 2) - 1) << 1;
+        this.heads = new Timeout[size];
+        this.tails = new Timeout[size];
+        this.mask = size - 1;
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(settings.getWorkers(), settings.getWorkers(), 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "sms-retry-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.wheelThread = new Thread(this::run, "sms-retry-wheel");
+        wheelThread.setDaemon(true);
+        if (settings.isEnabled()) {
+            wheelThread.start();
+        }
+    }
+
+    // Schedules attempt failedAttempt + 1 after the backoff for failedAttempt. False when retries
+    // are disabled, the attempt budget is spent or too many retries are already pending.
+    public boolean scheduleRetry(int failedAttempt, Runnable task) {
+        if (!settings.isEnabled() || failedAttempt >= settings.getMaxAttempts()) {
+            return false;
+        }
+        return schedule(backoffNanos(failedAttempt), task);
+    }
+
+    public boolean schedule(long delayNanos, Runnable task) {
+        if (!running || !settings.isEnabled()) {
+            return false;
+        }
+        if (pending.incrementAndGet() > settings.getMaxPending()) {
+            pending.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        scheduled.increment();
+        incoming.add(new Timeout(System.nanoTime() - startNanos + Math.max(delayNanos, 0), task));
+        return true;
+    }
+
+    public int maxAttempts() {
+        return settings.getMaxAttempts();
+    }
+
+    // Exponential backoff before the attempt after failedAttempt (1-based), with jitter taking off
+    // up to jitter * backoff so retries of messages that failed together spread out
+    public long backoffNanos(int failedAttempt) {
+        double backoff = settings.getInitialBackoff().toNanos() * Math.pow(settings.getMultiplier(), failedAttempt - 1);
+        backoff = Math.min(backoff, settings.getMaxBackoff().toNanos());
+        return (long) (backoff * (1 - settings.getJitter() * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sms.retry.pending", pending, AtomicInteger::get)
+                .register(registry);
+        FunctionCounter.builder("sms.retry.scheduled", scheduled, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("sms.retry.rejected", rejected, LongAdder::sum)
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(wheelThread);
+        wheelThread.join(TimeUnit.SECONDS.toMillis(5));
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+        if (pending.get() > 0) {
+            log.warn("Dropping {} pending SMS retries on shutdown", pending.get());
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            long sleep;
+            while (running && (sleep = startNanos + deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            transferIncoming();
+            expire((int) (tick & mask));
+            tick++;
+        }
+    }
+
+    private void transferIncoming() {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            long due = timeout.deadline / tickNanos;
+            timeout.rounds = (due - tick) / heads.length;
+            int bucket = (int) (Math.max(due, tick) & mask);
+            if (tails[bucket] == null) {
+                heads[bucket] = timeout;
+            } else {
+                tails[bucket].next = timeout;
+            }
+            tails[bucket] = timeout;
+        }
+    }
+
+    private void expire(int bucket) {
+        Timeout previous = null;
+        Timeout timeout = heads[bucket];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                previous = timeout;
+            } else {
+                if (previous == null) {
+                    heads[bucket] = next;
+                } else {
+                    previous.next = next;
+                }
+                if (tails[bucket] == timeout) {
+                    tails[bucket] = previous;
+                }
+                timeout.next = null;
+                Runnable task = timeout.task;
+                workers.execute(() -> runTask(task));
+            }
+            timeout = next;
+        }
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.warn("SMS retry failed", e);
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    private static final class Timeout {
+        // Nanoseconds since startNanos
+        final long deadline;
+        final Runnable task;
+        long rounds;
+        Timeout next;
+
+        Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of byte records in fixed-size memory-mapped segment files. Positions are
+ * logical byte offsets across the whole log; a segment file is named after the position of its
+ * first byte and the next segment starts where it ends.
+ *
+ * <pre>
+ * record  int length, int crc32c(payload), payload
+ * </pre>
+ *
+ * A length of 0 means nothing has been written there yet, -1 that the rest of the segment is
+ * unused. Appends only write to the mapping; flush() forces everything written since the last
+ * flush in one go, and awaitFlushed lets callers wait for that. commit(position) marks
+ * everything before position as consumed: it is saved in a checkpoint file, and segments that
+ * lie entirely before it are deleted. On open the last segment is scanned, and the log continues
+ * after the last record whose checksum matches.
+ */
+public class SegmentLog implements AutoCloseable {
+    private static final int HEADER = 8;
+    private static final int END_OF_SEGMENT = -1;
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FileChannel checkpoint;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    // Appends and segment changes hold lock; readers go by the volatile positions
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushedCondition = lock.newCondition();
+    private Segment active;
+    private volatile long writePosition;
+    private volatile long flushedPosition;
+    private volatile long committedPosition;
+
+    public SegmentLog(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        this.checkpoint = FileChannel.open(directory.resolve("checkpoint"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SUFFIX)) {
+                    long base = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                    segments.put(base, Segment.open(file, base, (int) Files.size(file)));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, Segment.open(segmentPath(0), 0, segmentSize));
+        }
+        this.active = segments.lastEntry().getValue();
+        this.writePosition = recover(active);
+        this.flushedPosition = writePosition;
+
+        ByteBuffer saved = ByteBuffer.allocate(Long.BYTES);
+        checkpoint.read(saved, 0);
+        long first = segments.firstKey();
+        long committed = saved.position() == Long.BYTES ? saved.getLong(0) : first;
+        this.committedPosition = Math.min(Math.max(committed, first), writePosition);
+    }
+
+    // Returns the position just past the record. payload must not be empty.
+    public long append(byte[] payload) throws IOException {
+        int recordSize = HEADER + payload.length;
+        if (payload.length == 0 || recordSize > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes can't be stored");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        lock.lock();
+        try {
+            int offset = (int) (writePosition - active.base);
+            if (offset + recordSize > active.size) {
+                if (offset + 4 <= active.size) {
+                    active.buffer.putInt(offset, END_OF_SEGMENT);
+                }
+                long base = active.base + active.size;
+                active = Segment.open(segmentPath(base), base, segmentSize);
+                segments.put(base, active);
+                offset = 0;
+                writePosition = base;
+            }
+            MappedByteBuffer buffer = active.buffer;
+            buffer.putInt(offset + 4, (int) crc.getValue());
+            buffer.put(offset + HEADER, payload);
+            // Length last: a record is only visible once it is complete
+            buffer.putInt(offset, payload.length);
+            writePosition += recordSize;
+            return writePosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Forces every record appended so far to disk and wakes awaitFlushed callers
+    public void flush() {
+        long target = writePosition;
+        long from = flushedPosition;
+        if (target == from) {
+            return;
+        }
+        // Segments already committed and deleted need no flush
+        Long first = segments.floorKey(from);
+        for (Segment segment : segments.subMap(first == null ? from : first, true, target, false).values()) {
+            long start = Math.max(from, segment.base);
+            long end = Math.min(target, segment.base + segment.size);
+            if (end > start) {
+                segment.buffer.force((int) (start - segment.base), (int) (end - start));
+            }
+        }
+        lock.lock();
+        try {
+            flushedPosition = target;
+            flushedCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // False if position was not flushed within the timeout
+    public boolean awaitFlushed(long position, long timeout, TimeUnit unit) throws InterruptedException {
+        if (flushedPosition >= position) {
+            return true;
+        }
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (flushedPosition < position) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = flushedCondition.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The record at position, or null if nothing has been appended there yet
+    public Record read(long position) {
+        while (position < writePosition) {
+            Map.Entry<Long, Segment> entry = segments.floorEntry(position);
+            if (entry == null) {
+                throw new IllegalStateException("Position " + position + " was already committed and deleted");
+            }
+            Segment segment = entry.getValue();
+            int offset = (int) (position - segment.base);
+            int length = offset + HEADER <= segment.size ? segment.buffer.getInt(offset) : END_OF_SEGMENT;
+            byte[] payload = length > 0 && length <= segment.size - offset - HEADER ? new byte[length] : null;
+            if (payload != null) {
+                segment.buffer.get(offset + HEADER, payload);
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+                if ((int) crc.getValue() == segment.buffer.getInt(offset + 4)) {
+                    return new Record(payload, position + HEADER + length);
+                }
+            }
+            // End marker, or the unflushed tail of an older segment lost in a crash: go on with
+            // the next segment
+            position = segment.base + segment.size;
+        }
+        return null;
+    }
+
+    // Everything before position has been consumed. The segments go before committedPosition
+    // moves, so an empty backlog means they are gone.
+    public void commit(long position) throws IOException {
+        if (position <= committedPosition) {
+            return;
+        }
+        checkpoint.write(ByteBuffer.allocate(Long.BYTES).putLong(0, position), 0);
+        for (Segment segment : segments.values()) {
+            if (segment == active || segment.base + segment.size > position) {
+                break;
+            }
+            segments.remove(segment.base);
+            Files.deleteIfExists(segment.path);
+        }
+        committedPosition = position;
+    }
+
+    public long writePosition() {
+        return writePosition;
+    }
+
+    public long committedPosition() {
+        return committedPosition;
+    }
+
+    // Appended but not yet committed
+    public long backlogBytes() {
+        return writePosition - committedPosition;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        checkpoint.force(true);
+        checkpoint.close();
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(String.format("%020d%s", base, SUFFIX));
+    }
+
+    // Position after the last intact record of the segment; anything after it is wiped
+    private static long recover(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset + HEADER <= segment.size) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || length > segment.size - offset - HEADER) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER, payload);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER + length;
+        }
+        if (offset + 4 <= segment.size && buffer.getInt(offset) != 0) {
+            // Torn write from a crash: clear the tail so it can't be mistaken for records later
+            buffer.put(offset, new byte[segment.size - offset]);
+            buffer.force();
+        }
+        return segment.base + offset;
+    }
+
+    public record Record(byte[] payload, long nextPosition) {
+    }
+
+    private record Segment(Path path, long base, int size, MappedByteBuffer buffer) {
+        static Segment open(Path path, long base, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                return new Segment(path, base, size, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+    }
+}
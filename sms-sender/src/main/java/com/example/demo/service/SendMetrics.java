@@ -0,0 +1,86 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.SmsStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Latency of each stage of the send path (sms.send.stage, tagged stage) and the outcome of every
+ * attempt, one per published event (sms.send.outcome, tagged status). All meters are registered
+ * up front, so recording is a nanoTime pair and a histogram update with no lookups or
+ * allocation. Batch sends time their blacklist lookup and event publish once per batch.
+ */
+@Component
+public class SendMetrics {
+    public enum Stage {
+        VALIDATION(Duration.ofNanos(1_000), Duration.ofMillis(100)),
+        BLACKLIST(Duration.ofNanos(1_000), Duration.ofSeconds(1)),
+        PROVIDER(Duration.ofMillis(1), Duration.ofSeconds(30)),
+        PUBLISH(Duration.ofNanos(1_000), Duration.ofSeconds(10));
+
+        // Histogram range; sends outside it land in the first or last bucket
+        private final Duration min;
+        private final Duration max;
+
+        Stage(Duration min, Duration max) {
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private static final String[] OUTCOMES = { SmsStatus.SUCCESSFUL, SmsStatus.UNSUCCESSFUL, SmsStatus.BLOCKED,
+            SmsStatus.RETRY_SCHEDULED, SmsStatus.THROTTLED, SmsStatus.UNKNOWN };
+
+    private final Timer[] stages = new Timer[Stage.values().length];
+    private final Counter[] outcomes = new Counter[OUTCOMES.length];
+
+    @Autowired
+    public SendMetrics(MeterRegistry registry) {
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()] = Timer.builder("sms.send.stage")
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(stage.min)
+                    .maximumExpectedValue(stage.max)
+                    .register(registry);
+        }
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            outcomes[i] = Counter.builder("sms.send.outcome")
+                    .tag("status", OUTCOMES[i])
+                    .register(registry);
+        }
+    }
+
+    // Records nothing; for callers built outside Spring
+    public static SendMetrics noop() {
+        return new SendMetrics(new CompositeMeterRegistry());
+    }
+
+    // Pass the result to record() when the stage is done
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void record(Stage stage, long startNanos) {
+        stages[stage.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void outcome(String status) {
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            if (OUTCOMES[i].equals(status)) {
+                outcomes[i].increment();
+                return;
+            }
+        }
+    }
+}
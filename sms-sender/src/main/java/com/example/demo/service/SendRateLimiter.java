@@ -0,0 +1,98 @@
+package com.example.demo.service;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.config.RateLimitProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Send-path rate limits: one token bucket per API client and one per recipient. The client
+ * bucket is checked first, so a throttled client doesn't use up recipients' tokens. In REDIS
+ * mode a send has to pass the local bucket and then the shared one.
+ */
+@Service
+public class SendRateLimiter implements MeterBinder {
+    public enum Scope {
+        CLIENT, RECIPIENT;
+
+        public String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // Which limit was hit and when the caller may try again
+    public record Throttle(Scope scope, long retryAfterNanos) {
+        public long retryAfterSeconds() {
+            return Math.max(1, (retryAfterNanos + 999_999_999) / 1_000_000_000);
+        }
+    }
+
+    private final boolean enabled;
+    private final RateLimiter[] limiters = new RateLimiter[Scope.values().length];
+    private final RateLimiter[] shared = new RateLimiter[Scope.values().length];
+    private final LongAdder[] throttled = { new LongAdder(), new LongAdder() };
+
+    @Autowired
+    public SendRateLimiter(RateLimitProperties properties, StringRedisTemplate redisTemplate) {
+        this(properties, redisTemplate, System::nanoTime);
+    }
+
+    public SendRateLimiter(RateLimitProperties properties, StringRedisTemplate redisTemplate, LongSupplier nanoClock) {
+        this.enabled = properties.isEnabled();
+        limiters[Scope.CLIENT.ordinal()] = new LocalRateLimiter(properties.getClient(),
+                properties.getMaxLocalBuckets(), nanoClock);
+        limiters[Scope.RECIPIENT.ordinal()] = new LocalRateLimiter(properties.getRecipient(),
+                properties.getMaxLocalBuckets(), nanoClock);
+        if (properties.getMode() == RateLimitProperties.Mode.REDIS) {
+            shared[Scope.CLIENT.ordinal()] = new RedisRateLimiter(redisTemplate, Scope.CLIENT.tag(),
+                    properties.getClient());
+            shared[Scope.RECIPIENT.ordinal()] = new RedisRateLimiter(redisTemplate, Scope.RECIPIENT.tag(),
+                    properties.getRecipient());
+        }
+    }
+
+    // Null when the send may go ahead
+    public Throttle check(String clientId, String phoneNumber) {
+        if (!enabled) {
+            return null;
+        }
+        Throttle throttle = acquire(Scope.CLIENT, clientId);
+        return throttle != null ? throttle : acquire(Scope.RECIPIENT, phoneNumber);
+    }
+
+    public long throttledCount(Scope scope) {
+        return throttled[scope.ordinal()].sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Scope scope : Scope.values()) {
+            FunctionCounter.builder("sms.ratelimit.throttled", throttled[scope.ordinal()], LongAdder::sum)
+                    .tag("scope", scope.tag())
+                    .register(registry);
+        }
+    }
+
+    private Throttle acquire(Scope scope, String key) {
+        int i = scope.ordinal();
+        key = key == null ? "" : key;
+        long wait = limiters[i].tryAcquire(key);
+        if (wait == 0 && shared[i] != null) {
+            wait = shared[i].tryAcquire(key);
+        }
+        if (wait == 0) {
+            return null;
+        }
+        throttled[i].increment();
+        return new Throttle(scope, wait);
+    }
+}
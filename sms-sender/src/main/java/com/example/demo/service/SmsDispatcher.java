@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Service;
+
+import com.example.demo.config.SendProperties;
+import com.example.demo.model.SmsRequest;
+import com.example.demo.model.SmsResponse;
+import com.example.demo.model.SmsStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Accept-and-queue send mode: the request thread only assigns an id and enqueues, a fixed pool
+ * of workers runs the blacklist check, provider call and event publish. The queue is bounded so
+ * a slow provider turns into fast rejections instead of unbounded memory. With
+ * sms.send.async.virtual-threads the workers are virtual threads, so a provider latency spike
+ * parks them instead of exhausting the pool.
+ */
+@Service
+public class SmsDispatcher implements MeterBinder {
+    private final SmsService smsService;
+    private final ThreadPoolExecutor workers;
+    private final Cache<String, SmsResponse> statuses;
+
+    public SmsDispatcher(SmsService smsService, SendProperties properties) {
+        this.smsService = smsService;
+        SendProperties.Async async = properties.getAsync();
+        this.workers = new ThreadPoolExecutor(async.getWorkers(), async.getWorkers(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(async.getQueueCapacity()), workerThreads(async.isVirtualThreads()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(async.getMaxStatuses())
+                .expireAfterWrite(async.getStatusRetention())
+                .build();
+        // A retry_scheduled status is replaced by the outcome of the retry when it runs
+        smsService.setRetryListener((messageId, outcome) -> {
+            outcome.setMessageId(messageId);
+            update(messageId, outcome);
+        });
+    }
+
+    // Throws RejectedExecutionException when the queue is full
+    public SmsResponse submit(SmsRequest request) {
+        String messageId = UUID.randomUUID().toString();
+        SmsResponse queued = status(messageId, "Queued for delivery", SmsStatus.QUEUED);
+        statuses.put(messageId, queued);
+        try {
+            workers.execute(() -> deliver(messageId, request));
+        } catch (RejectedExecutionException e) {
+            statuses.invalidate(messageId);
+            throw e;
+        }
+        return queued;
+    }
+
+    public SmsResponse getStatus(String messageId) {
+        return statuses.getIfPresent(messageId);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sms.async.queue.depth", workers, executor -> executor.getQueue().size())
+                .register(registry);
+        Gauge.builder("sms.async.workers.active", workers, ThreadPoolExecutor::getActiveCount)
+                .register(registry);
+    }
+
+    // Lets queued messages drain before the context goes away
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private void deliver(String messageId, SmsRequest request) {
+        update(messageId, status(messageId, "Sending", SmsStatus.SENDING));
+        SmsResponse outcome;
+        try {
+            outcome = smsService.send(request, messageId);
+        } catch (RuntimeException e) {
+            outcome = status(messageId, "Failed to send SMS: " + e.getMessage(), SmsStatus.UNSUCCESSFUL);
+        }
+        outcome.setMessageId(messageId);
+        update(messageId, outcome);
+    }
+
+    // A fast retry can report its final outcome before deliver() has stored retry_scheduled, so
+    // a final status is never replaced
+    private void update(String messageId, SmsResponse status) {
+        statuses.asMap().compute(messageId, (id, current) -> current != null && isFinal(current) ? current : status);
+    }
+
+    private static boolean isFinal(SmsResponse response) {
+        String status = response.getStatus();
+        return !SmsStatus.QUEUED.equals(status) && !SmsStatus.SENDING.equals(status)
+                && !SmsStatus.RETRY_SCHEDULED.equals(status);
+    }
+
+    private static SmsResponse status(String messageId, String result, String status) {
+        SmsResponse response = new SmsResponse(result);
+        response.setMessageId(messageId);
+        response.setStatus(status);
+        return response;
+    }
+
+    private static ThreadFactory workerThreads(boolean virtual) {
+        if (virtual) {
+            return Thread.ofVirtual().name("sms-worker-", 1).factory();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "sms-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
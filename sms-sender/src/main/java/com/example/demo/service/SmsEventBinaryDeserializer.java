@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import com.example.demo.model.SmsEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads records written by SmsEventBinarySerializer, and JSON records from JsonSerializer so a
+ * topic holding both formats during a switch-over can still be consumed.
+ */
+public class SmsEventBinaryDeserializer implements Deserializer<SmsEvent> {
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Override
+    public SmsEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length == 0 || data[0] != SmsEventBinarySerializer.MARKER) {
+            try {
+                return JSON.readValue(data, SmsEvent.class);
+            } catch (IOException e) {
+                throw new SerializationException("SmsEvent record is neither binary nor JSON", e);
+            }
+        }
+        if (data.length < 2 || data[1] < 1) {
+            throw new SerializationException("Unsupported SmsEvent binary version");
+        }
+        // Fields added by newer versions follow the ones below and are skipped
+        Reader reader = new Reader(data, 2);
+        SmsEvent event = new SmsEvent(reader.string(), reader.string(), reader.string());
+        event.setEventId(reader.string());
+        if (data[1] >= 2) {
+            event.setAttempt(reader.varint());
+        }
+        if (data[1] >= 3) {
+            event.setSegments(reader.varint());
+        }
+        return event;
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int pos;
+
+        Reader(byte[] data, int pos) {
+            this.data = data;
+            this.pos = pos;
+        }
+
+        String string() {
+            int header = varint();
+            if (header == 0) {
+                return null;
+            }
+            int length = header - 1;
+            // A five-byte varint can decode to a negative header
+            if (length < 0) {
+                throw new SerializationException("Malformed string length in SmsEvent record");
+            }
+            if (length > data.length - pos) {
+                throw new SerializationException("Truncated SmsEvent record");
+            }
+            String s = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                if (pos >= data.length) {
+                    throw new SerializationException("Truncated SmsEvent record");
+                }
+                byte b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed varint in SmsEvent record");
+        }
+    }
+}
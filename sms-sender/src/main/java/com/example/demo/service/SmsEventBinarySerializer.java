@@ -0,0 +1,135 @@
+package com.example.demo.service;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+import com.example.demo.model.SmsEvent;
+
+/**
+ * Compact binary encoding of SmsEvent, selected with
+ * spring.kafka.producer.value-serializer=com.example.demo.service.SmsEventBinarySerializer.
+ *
+ * <pre>
+ * byte   0x00             marker; JSON never starts with it, so consumers can tell the formats apart
+ * byte   version          currently 3
+ * string phoneNumber
+ * string message
+ * string status
+ * string eventId
+ * varint attempt          since version 2
+ * varint segments         since version 3
+ * </pre>
+ *
+ * A string is an unsigned varint holding (UTF-8 length + 1), 0 meaning null, followed by the
+ * UTF-8 bytes. Later versions only append fields, so a reader skips anything after the fields it
+ * knows. The record is sized up front and written into one exact-length array.
+ */
+public class SmsEventBinarySerializer implements Serializer<SmsEvent> {
+    public static final byte MARKER = 0x00;
+    public static final byte VERSION = 3;
+
+    @Override
+    public byte[] serialize(String topic, SmsEvent event) {
+        if (event == null) {
+            return null;
+        }
+        String phoneNumber = event.getPhoneNumber();
+        String message = event.getMessage();
+        String status = event.getStatus();
+        String eventId = event.getEventId();
+        int phoneLength = utf8Length(phoneNumber);
+        int messageLength = utf8Length(message);
+        int statusLength = utf8Length(status);
+        int eventIdLength = utf8Length(eventId);
+        int attempt = Math.max(event.getAttempt(), 0);
+        int segments = Math.max(event.getSegments(), 0);
+
+        byte[] out = new byte[2 + fieldSize(phoneLength) + fieldSize(messageLength) + fieldSize(statusLength)
+                + fieldSize(eventIdLength) + varintSize(attempt) + varintSize(segments)];
+        out[0] = MARKER;
+        out[1] = VERSION;
+        int pos = writeString(out, 2, phoneNumber, phoneLength);
+        pos = writeString(out, pos, message, messageLength);
+        pos = writeString(out, pos, status, statusLength);
+        pos = writeString(out, pos, eventId, eventIdLength);
+        pos = writeVarint(out, pos, attempt);
+        writeVarint(out, pos, segments);
+        return out;
+    }
+
+    // -1 for null
+    static int utf8Length(String s) {
+        if (s == null) {
+            return -1;
+        }
+        int length = s.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    // 4 bytes for the pair
+                    bytes += 2;
+                    i++;
+                } else {
+                    // Lone surrogates are written as '?', like String.getBytes(UTF_8)
+                    bytes += Character.isSurrogate(c) ? 0 : 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static int fieldSize(int utf8Length) {
+        return varintSize(utf8Length + 1) + Math.max(utf8Length, 0);
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarint(byte[] out, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static int writeString(byte[] out, int pos, String s, int utf8Length) {
+        pos = writeVarint(out, pos, utf8Length + 1);
+        if (s == null) {
+            return pos;
+        }
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (cp >> 18));
+                out[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out[pos++] = '?';
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+}
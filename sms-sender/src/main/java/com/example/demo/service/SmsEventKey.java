@@ -0,0 +1,35 @@
+package com.example.demo.service;
+
+import com.example.demo.config.SmsKafkaProperties.KeyStrategy;
+
+// Kafka record key for a recipient; the same number always yields the same key
+public final class SmsEventKey {
+
+    private SmsEventKey() {
+    }
+
+    public static String of(KeyStrategy strategy, String salt, String phoneNumber) {
+        if (phoneNumber == null) {
+            return null;
+        }
+        // Same key with or without the '+'; already-canonical numbers come back as is
+        phoneNumber = E164.canonical(phoneNumber);
+        if (strategy == KeyStrategy.PHONE_NUMBER) {
+            return phoneNumber;
+        }
+        // FNV-1a over salt then number, finished with the murmur3 fmix64 avalanche
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = salt.length(); i < n; i++) {
+            h = (h ^ salt.charAt(i)) * 0x100000001b3L;
+        }
+        for (int i = 0, n = phoneNumber.length(); i < n; i++) {
+            h = (h ^ phoneNumber.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return Long.toHexString(h);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo.service;
+
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.config.EventLogProperties;
+import com.example.demo.model.SmsEvent;
+import com.example.demo.model.SmsStatus;
+
+/**
+ * One structured log line per published SmsEvent, on the "sms.events" logger. Fields are
+ * key/value pairs (eventId, status, attempt, segments, phoneNumber, messageLength, and the
+ * message itself only when redaction is off), which the JSON encoder turns into fields of their
+ * own. Messages are sampled by eventId, so every attempt of a sampled message is logged;
+ * synchronous sends have no eventId and are sampled by recipient and message instead. Only
+ * provider failures skip sampling: blocked and throttled are policy outcomes that can come in
+ * floods, so they are sampled like successes. Unsampled events return before anything is
+ * built. Output goes through the async appender in logback-spring.xml, so the request thread
+ * only enqueues.
+ */
+@Component
+public class SmsEventLogger {
+    private static final Logger log = LoggerFactory.getLogger("sms.events");
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final boolean alwaysLogFailures;
+    private final boolean redact;
+
+    @Autowired
+    public SmsEventLogger(EventLogProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.sampleRate = properties.getSampleRate();
+        this.alwaysLogFailures = properties.isAlwaysLogFailures();
+        this.redact = properties.isRedact();
+    }
+
+    public void log(SmsEvent event) {
+        if (!enabled || !log.isInfoEnabled() || !(failureLogged(event) || sampled(event))) {
+            return;
+        }
+        String message = event.getMessage();
+        LoggingEventBuilder line = log.atInfo()
+                .setMessage("SMS event")
+                .addKeyValue("eventId", event.getEventId())
+                .addKeyValue("status", event.getStatus())
+                .addKeyValue("attempt", event.getAttempt())
+                .addKeyValue("segments", event.getSegments())
+                .addKeyValue("phoneNumber", redact ? maskPhoneNumber(event.getPhoneNumber()) : event.getPhoneNumber())
+                .addKeyValue("messageLength", message == null ? 0 : message.length());
+        if (!redact) {
+            line = line.addKeyValue("message", message);
+        }
+        line.log();
+    }
+
+    // Country code and last two digits stay readable: "+14155550123" becomes "+14*******23"
+    public static String maskPhoneNumber(String phoneNumber) {
+        if (phoneNumber == null) {
+            return null;
+        }
+        int length = phoneNumber.length();
+        int head = phoneNumber.startsWith("+") ? 3 : 2;
+        if (length <= head + 2) {
+            return "*".repeat(length);
+        }
+        char[] masked = phoneNumber.toCharArray();
+        for (int i = head; i < length - 2; i++) {
+            masked[i] = '*';
+        }
+        return new String(masked);
+    }
+
+    private boolean sampled(SmsEvent event) {
+        if (sampleRate >= 1) {
+            return true;
+        }
+        if (sampleRate <= 0) {
+            return false;
+        }
+        // The same for every attempt of a message, with or without an eventId
+        String eventId = event.getEventId();
+        long bits = mix(eventId != null ? eventId.hashCode() : Objects.hash(event.getPhoneNumber(), event.getMessage()));
+        // Top 53 bits as a uniform double in [0, 1)
+        return (bits >>> 11) * 0x1.0p-53 < sampleRate;
+    }
+
+    private boolean failureLogged(SmsEvent event) {
+        return alwaysLogFailures && (SmsStatus.UNSUCCESSFUL.equals(event.getStatus())
+                || SmsStatus.RETRY_SCHEDULED.equals(event.getStatus()) || SmsStatus.UNKNOWN.equals(event.getStatus()));
+    }
+
+    // SplitMix64 finalizer: spreads String.hashCode over all 64 bits
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,18 +1,469 @@
 package com.example.demo.service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+
+import com.example.demo.config.SmsKafkaProperties;
+import com.example.demo.config.SmsKafkaProperties.BackPressure;
+import com.example.demo.config.SmsKafkaProperties.KeyStrategy;
 import com.example.demo.model.SmsEvent;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Publishes SMS events without waiting for the broker. Every send gets a completion callback
+ * that counts the ack or failure; failed events go to a bounded in-memory retry buffer that is
+ * re-sent on a fixed delay. When the buffer is full the configured back-pressure policy decides
+ * whether publishing callers wait, fail, or push out the oldest buffered event. Only DROP_OLDEST
+ * ever discards an event to make room: under BLOCK and FAIL a send that was let through and then
+ * fails is always buffered, even if that takes the buffer over capacity for a while.
+ *
+ * <p>Events for one recipient share a partition and keep their publish order. Once a send for a
+ * recipient has failed, that recipient's later events are not sent but queued behind it in the
+ * retry buffer, and each recipient has at most one retry in flight; its next event goes out
+ * when the retry is acked. Only eviction (DROP_OLDEST) or running out of attempts leaves a gap.
+ *
+ * <p>Publishing runs on the caller's thread and can block it twice: kafkaTemplate.send waits up
+ * to max.block.ms for metadata or buffer memory, and BLOCK back-pressure waits up to
+ * sms.kafka.block-timeout. Both default to 1s in application.properties.
+ *
+ * <p>With sms.kafka.outbox.enabled, events are appended to a durable EventOutbox on disk
+ * instead and drained to Kafka from there; the in-memory retry buffer is then not used.
+ */
 @Service
-public class SmsEventProducer {
-    private final KafkaTemplate<String, SmsEvent> kafkaTemplate;
+public class SmsEventProducer implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(SmsEventProducer.class);
     private static final String TOPIC = "sms_events";
+
+    private final KafkaTemplate<String, SmsEvent> kafkaTemplate;
+    private final KeyStrategy keyStrategy;
+    private final String keySalt;
+    private final HotNumberPartitioner partitioner;
+    private final BackPressure backPressure;
+    private final long blockTimeoutNanos;
+    private final int capacity;
+    private final int maxAttempts;
+
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // Failed events and the events held behind them, per record key in publish order; keys in
+    // the order they were first buffered. Buffered events and retries in flight both count
+    // against the capacity. ReentrantLock rather than synchronized so callers blocked by
+    // back-pressure don't pin virtual threads.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final LinkedHashMap<String, ArrayDeque<Pending>> retryBuffer = new LinkedHashMap<>();
+    private int buffered;
+    // Keys with a retry in flight; at most one per key
+    private final Set<String> retrying = new HashSet<>();
+    private int retriesInFlight;
+    // Written under lock, read without it on the publish fast path
+    private volatile int occupied;
+
+    private final ScheduledExecutorService retrier;
+    // Null unless sms.kafka.outbox.enabled
+    private final EventOutbox outbox;
+    // Null when events are not logged
+    private final SmsEventLogger eventLogger;
+
     public SmsEventProducer(KafkaTemplate<String, SmsEvent> kafkaTemplate) {
+        this(kafkaTemplate, new SmsKafkaProperties());
+    }
+
+    public SmsEventProducer(KafkaTemplate<String, SmsEvent> kafkaTemplate, SmsKafkaProperties properties) {
+        this(kafkaTemplate, properties, null, HotNumberPartitioner.of(properties));
+    }
+
+    @Autowired
+    public SmsEventProducer(KafkaTemplate<String, SmsEvent> kafkaTemplate, SmsKafkaProperties properties,
+            SmsEventLogger eventLogger, HotNumberPartitioner partitioner) {
         this.kafkaTemplate = kafkaTemplate;
-    }   
+        this.eventLogger = eventLogger;
+        this.partitioner = partitioner;
+        this.keyStrategy = properties.getKeyStrategy();
+        this.keySalt = properties.getKeySalt();
+        this.backPressure = properties.getBackPressure();
+        this.blockTimeoutNanos = properties.getBlockTimeout().toNanos();
+        this.capacity = properties.getRetryBuffer().getCapacity();
+        this.maxAttempts = properties.getRetryBuffer().getMaxAttempts();
+        this.retrier = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sms-event-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getRetryBuffer().getInterval().toMillis();
+        retrier.scheduleWithFixedDelay(this::retryFailed, interval, interval, TimeUnit.MILLISECONDS);
+        try {
+            this.outbox = properties.getOutbox().isEnabled()
+                    ? new EventOutbox(properties.getOutbox(), this::publish)
+                    : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open SMS event outbox in " + properties.getOutbox().getDirectory(), e);
+        }
+    }
 
+    // Returns once the record is handed to the producer (or, with the outbox, written to it);
+    // throws EventPublishException when the retry buffer is full and the policy is BLOCK (after
+    // blockTimeout) or FAIL, or when the outbox is full or can't flush within blockTimeout
     public void sendSmsEvent(SmsEvent smsEvent) {
-        kafkaTemplate.send(TOPIC, smsEvent);
-        System.out.println("Produced SMS Event: " + smsEvent);
+        if (eventLogger != null) {
+            eventLogger.log(smsEvent);
+        }
+        if (outbox != null) {
+            outbox.append(smsEvent, blockTimeoutNanos);
+            return;
+        }
+        awaitRetryCapacity();
+        sendOrHold(smsEvent);
+    }
+
+    // Hands all records to the producer back to back so they share record batches (linger.ms)
+    // instead of each waiting on its own request
+    public void sendSmsEvents(List<SmsEvent> smsEvents) {
+        if (eventLogger != null) {
+            for (SmsEvent smsEvent : smsEvents) {
+                eventLogger.log(smsEvent);
+            }
+        }
+        if (outbox != null) {
+            outbox.appendAll(smsEvents, blockTimeoutNanos);
+            return;
+        }
+        awaitRetryCapacity();
+        for (SmsEvent smsEvent : smsEvents) {
+            sendOrHold(smsEvent);
+        }
+    }
+
+    // Applies the back-pressure policy without publishing anything, so a caller can be turned
+    // away before it does something that can't be undone; throws like sendSmsEvent
+    public void awaitCapacity() {
+        if (outbox != null) {
+            if (outbox.isFull()) {
+                throw new EventPublishException("SMS event outbox is full");
+            }
+            return;
+        }
+        awaitRetryCapacity();
+    }
+
+    public void sendSmsEventNoWait(SmsEvent smsEvent) {
+        sendSmsEventsNoWait(List.of(smsEvent));
+    }
+
+    // For events about a provider call already made: the message is out, so the caller must not
+    // be failed or held back. Never throws and skips back-pressure (call awaitCapacity before the
+    // provider call instead). Events the outbox can't take go to the retry buffer; with
+    // DROP_OLDEST that evicts its oldest entry when full, otherwise it runs over capacity.
+    public void sendSmsEventsNoWait(List<SmsEvent> smsEvents) {
+        if (eventLogger != null) {
+            for (SmsEvent smsEvent : smsEvents) {
+                eventLogger.log(smsEvent);
+            }
+        }
+        if (outbox != null) {
+            try {
+                if (outbox.offerAll(smsEvents, blockTimeoutNanos)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not write SMS events to the outbox, buffering them in memory: {}", e.toString());
+            }
+        }
+        for (SmsEvent smsEvent : smsEvents) {
+            sendOrHold(smsEvent);
+        }
+    }
+
+    // Re-sends the oldest buffered event of every key that has no retry in flight; the rest
+    // follow one by one as those retries are acked
+    public void retryFailed() {
+        List<Pending> batch = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Iterator<Map.Entry<String, ArrayDeque<Pending>>> it = retryBuffer.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<String, ArrayDeque<Pending>> entry = it.next();
+                if (retrying.add(entry.getKey())) {
+                    batch.add(entry.getValue().pollFirst());
+                    if (entry.getValue().isEmpty()) {
+                        it.remove();
+                    }
+                }
+            }
+            buffered -= batch.size();
+            retriesInFlight += batch.size();
+        } finally {
+            lock.unlock();
+        }
+        for (Pending pending : batch) {
+            send(pending, true);
+        }
+    }
+
+    public long ackedCount() {
+        return acked.sum();
+    }
+
+    public long failedCount() {
+        return failed.sum();
+    }
+
+    // Events given up on: out of attempts, or pushed out of a full retry buffer
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public int retryBufferSize() {
+        return occupied;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sms.events.acked", acked, LongAdder::sum).register(registry);
+        FunctionCounter.builder("sms.events.failed", failed, LongAdder::sum).register(registry);
+        FunctionCounter.builder("sms.events.dropped", dropped, LongAdder::sum).register(registry);
+        Gauge.builder("sms.events.retry.buffer.size", this, SmsEventProducer::retryBufferSize).register(registry);
+        if (outbox != null) {
+            Gauge.builder("sms.events.outbox.backlog", outbox, EventOutbox::backlogBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("sms.events.outbox.segments", outbox, EventOutbox::segmentCount).register(registry);
+            FunctionCounter.builder("sms.events.outbox.resends", outbox, EventOutbox::resendCount).register(registry);
+            FunctionCounter.builder("sms.events.outbox.dead.letters", outbox, EventOutbox::deadLetterCount)
+                    .register(registry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retrier.shutdownNow();
+        if (outbox != null) {
+            try {
+                outbox.close();
+            } catch (IOException e) {
+                log.warn("Failed to close SMS event outbox cleanly", e);
+            }
+        }
+        if (occupied > 0) {
+            log.warn("Shutting down with {} SMS events still waiting to be re-sent", occupied);
+        }
+    }
+
+    // Outbox drain path: failures are retried by the outbox itself, so only counted here
+    private CompletableFuture<SendResult<String, SmsEvent>> publish(SmsEvent smsEvent) {
+        return sendRecord(keyOf(smsEvent), smsEvent).whenComplete((result, ex) -> {
+                    if (ex == null) {
+                        acked.increment();
+                    } else {
+                        failed.increment();
+                    }
+                });
+    }
+
+    // A new event for a key that has events buffered or a retry in flight queues behind them;
+    // occupied is zero whenever nothing is held, so the common path takes no lock
+    private void sendOrHold(SmsEvent smsEvent) {
+        Pending pending = new Pending(smsEvent, keyOf(smsEvent), 0);
+        if (occupied > 0) {
+            lock.lock();
+            try {
+                if (retrying.contains(pending.key()) || retryBuffer.containsKey(pending.key())) {
+                    buffer(pending);
+                    log.debug("SMS event {} held behind earlier events for the same recipient", smsEvent.getEventId());
+                    updateOccupied();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        send(pending, false);
+    }
+
+    private void send(Pending pending, boolean retry) {
+        int attempt = pending.attempts() + 1;
+        CompletableFuture<SendResult<String, SmsEvent>> future;
+        try {
+            future = sendRecord(pending.key(), pending.event());
+        } catch (RuntimeException e) {
+            // Serialization errors and max.block.ms timeouts surface synchronously
+            onFailure(pending, attempt, retry, e);
+            return;
+        }
+        // Runs on the producer's I/O thread, so neither branch may block
+        future.whenComplete((result, ex) -> {
+            if (ex == null) {
+                onAck(pending.key(), retry);
+            } else {
+                onFailure(pending, attempt, retry, ex);
+            }
+        });
+    }
+
+    private String keyOf(SmsEvent smsEvent) {
+        return SmsEventKey.of(keyStrategy, keySalt, smsEvent.getPhoneNumber());
+    }
+
+    // Keyed by recipient: one number's events share a partition. Hot numbers get their assigned
+    // partition; partitionsFor is answered from the producer's cached metadata.
+    private CompletableFuture<SendResult<String, SmsEvent>> sendRecord(String key, SmsEvent smsEvent) {
+        if (partitioner.isHot(key)) {
+            return kafkaTemplate.send(TOPIC, partitioner.partition(key, kafkaTemplate.partitionsFor(TOPIC).size()), key, smsEvent);
+        }
+        return kafkaTemplate.send(TOPIC, key, smsEvent);
+    }
+
+    private void onAck(String key, boolean retry) {
+        acked.increment();
+        if (retry) {
+            boolean more;
+            lock.lock();
+            try {
+                retriesInFlight--;
+                retrying.remove(key);
+                more = retryBuffer.containsKey(key);
+                updateOccupied();
+            } finally {
+                lock.unlock();
+            }
+            if (more) {
+                // The key's next event goes out now rather than on the next interval; not from
+                // here, since sending can block and this is the producer's I/O thread
+                retrier.execute(() -> retryNext(key));
+            }
+        }
+    }
+
+    private void retryNext(String key) {
+        Pending next;
+        lock.lock();
+        try {
+            ArrayDeque<Pending> queue = retryBuffer.get(key);
+            if (queue == null || !retrying.add(key)) {
+                return;
+            }
+            next = queue.pollFirst();
+            if (queue.isEmpty()) {
+                retryBuffer.remove(key);
+            }
+            buffered--;
+            retriesInFlight++;
+        } finally {
+            lock.unlock();
+        }
+        send(next, true);
+    }
+
+    private void onFailure(Pending pending, int attempt, boolean retry, Throwable cause) {
+        failed.increment();
+        SmsEvent smsEvent = pending.event();
+        lock.lock();
+        try {
+            if (retry) {
+                retriesInFlight--;
+                retrying.remove(pending.key());
+            }
+            if (attempt >= maxAttempts) {
+                dropped.increment();
+                log.warn("Dropping SMS event {} after {} attempts: {}", smsEvent.getEventId(), attempt, cause.toString());
+            } else {
+                Pending failedPending = new Pending(smsEvent, pending.key(), attempt);
+                if (retry) {
+                    // Back in front of the events held behind it
+                    retryBuffer.computeIfAbsent(pending.key(), k -> new ArrayDeque<>()).addFirst(failedPending);
+                    buffered++;
+                } else {
+                    buffer(failedPending);
+                }
+                log.debug("SMS event {} failed on attempt {}, buffered for retry: {}", smsEvent.getEventId(), attempt, cause.toString());
+            }
+            updateOccupied();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds lock. Never waits; callers are held back by awaitRetryCapacity instead, which
+    // can't account for sends already in flight, so BLOCK and FAIL let the buffer run over
+    // capacity rather than lose an event that was admitted.
+    private void buffer(Pending pending) {
+        if (backPressure == BackPressure.DROP_OLDEST && buffered + retriesInFlight >= capacity && buffered > 0) {
+            Iterator<ArrayDeque<Pending>> oldestKey = retryBuffer.values().iterator();
+            ArrayDeque<Pending> queue = oldestKey.next();
+            Pending oldest = queue.pollFirst();
+            if (queue.isEmpty()) {
+                oldestKey.remove();
+            }
+            buffered--;
+            dropped.increment();
+            log.warn("Retry buffer full, dropping SMS event {}", oldest.event().getEventId());
+        }
+        retryBuffer.computeIfAbsent(pending.key(), k -> new ArrayDeque<>()).addLast(pending);
+        buffered++;
+    }
+
+    private void awaitRetryCapacity() {
+        if (occupied < capacity || backPressure == BackPressure.DROP_OLDEST) {
+            return;
+        }
+        if (backPressure == BackPressure.FAIL) {
+            throw new EventPublishException("SMS event retry buffer is full");
+        }
+        lock.lock();
+        try {
+            long remaining = blockTimeoutNanos;
+            while (occupied >= capacity) {
+                if (remaining <= 0) {
+                    throw new EventPublishException("Timed out waiting for room in the SMS event retry buffer");
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EventPublishException("Interrupted waiting for room in the SMS event retry buffer");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds lock
+    private void updateOccupied() {
+        int now = buffered + retriesInFlight;
+        if (now < occupied) {
+            notFull.signalAll();
+        }
+        occupied = now;
+    }
+
+    // attempts: sends made so far, 0 for an event held without being sent
+    private record Pending(SmsEvent event, String key, int attempts) {
     }
 }
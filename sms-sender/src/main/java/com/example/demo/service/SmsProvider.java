@@ -0,0 +1,11 @@
+package com.example.demo.service;
+
+// An SMS gateway. sendSms returns once the provider has accepted the message and throws
+// SmsProviderException otherwise.
+public interface SmsProvider {
+
+    // Short stable id, used in metric tags and logs
+    String name();
+
+    void sendSms(String phoneNumber, String message);
+}
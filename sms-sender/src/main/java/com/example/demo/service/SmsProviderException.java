@@ -0,0 +1,72 @@
+package com.example.demo.service;
+
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+
+import javax.net.ssl.SSLHandshakeException;
+
+// A provider call that did not result in an accepted message. Retryable failures (429, 5xx, and
+// I/O errors before the request was written) may succeed if sent again; the rest will not.
+// An I/O error after the request was written (a read timeout, a dropped connection) leaves the
+// outcome unknown: the provider may have accepted the message, so it is not sent again.
+public class SmsProviderException extends RuntimeException {
+    private final String provider;
+    private final int statusCode;
+    private final boolean retryable;
+    private final boolean notSent;
+
+    public SmsProviderException(String provider, String message, int statusCode, boolean retryable) {
+        this(provider, message, null, statusCode, retryable, false);
+    }
+
+    // I/O failures: no HTTP status, retryable only when the request never left
+    public SmsProviderException(String provider, String message, Throwable cause) {
+        this(provider, message, cause, 0, neverSent(cause), neverSent(cause));
+    }
+
+    private SmsProviderException(String provider, String message, Throwable cause, int statusCode, boolean retryable,
+            boolean notSent) {
+        super(message, cause);
+        this.provider = provider;
+        this.statusCode = statusCode;
+        this.retryable = retryable;
+        this.notSent = notSent;
+    }
+
+    // Turned away before any request was made (open circuit, full bulkhead)
+    public static SmsProviderException notSent(String provider, String message) {
+        return new SmsProviderException(provider, message, null, 0, true, true);
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    // 0 when no response was received
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    // The provider never saw the request, so another provider can take the message without
+    // risking a duplicate
+    public boolean isNotSent() {
+        return notSent;
+    }
+
+    // No response, but the request may have reached the provider
+    public boolean isOutcomeUnknown() {
+        return statusCode == 0 && !notSent;
+    }
+
+    // Connection setup failures; HttpConnectTimeoutException is an HttpTimeoutException, but
+    // unlike a request timeout it fires before anything is written
+    private static boolean neverSent(Throwable cause) {
+        return cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException
+                || cause instanceof UnknownHostException || cause instanceof SSLHandshakeException;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Works out how a message body goes over the air. A body made only of GSM 03.38 characters is
+ * sent as GSM-7: up to 160 septets in a single SMS, or parts of 153 once it has to be
+ * concatenated (the user data header takes the rest). Characters from the extension table
+ * (form feed, ^ { } \ [ ~ ] | and the euro sign) cost two septets, escape plus character, and a
+ * part never ends between the two. Any other character makes the whole body UCS-2: 70 UTF-16
+ * units, or parts of 67, never splitting a surrogate pair. Counting walks the text without
+ * allocating.
+ */
+public final class SmsSegmenter {
+    public enum Encoding {
+        GSM7, UCS2
+    }
+
+    public static final int GSM7_SINGLE = 160;
+    public static final int GSM7_PART = 153;
+    public static final int UCS2_SINGLE = 70;
+    public static final int UCS2_PART = 67;
+
+    // Basic table in code order, without the escape (0x1B)
+    private static final String GSM7_BASIC = "@\u00A3$\u00A5\u00E8\u00E9\u00F9\u00EC\u00F2\u00C7\n\u00D8\u00F8\r\u00C5\u00E5"
+            + "\u0394_\u03A6\u0393\u039B\u03A9\u03A0\u03A8\u03A3\u0398\u039E\u00C6\u00E6\u00DF\u00C9"
+            + " !\"#\u00A4%&'()*+,-./0123456789:;<=>?"
+            + "\u00A1ABCDEFGHIJKLMNOPQRSTUVWXYZ\u00C4\u00D6\u00D1\u00DC\u00A7\u00BFabcdefghijklmnopqrstuvwxyz\u00E4\u00F6\u00F1\u00FC\u00E0";
+    private static final String GSM7_EXTENSION = "\f^{}\\[~]|\u20AC";
+    // Septets per character below U+0400 (0 = not in GSM-7); the euro sign is the only one above
+    private static final byte[] SEPTETS = new byte[0x400];
+    private static final char EURO = '\u20AC';
+
+    static {
+        for (int i = 0; i < GSM7_BASIC.length(); i++) {
+            SEPTETS[GSM7_BASIC.charAt(i)] = 1;
+        }
+        for (int i = 0; i < GSM7_EXTENSION.length(); i++) {
+            char c = GSM7_EXTENSION.charAt(i);
+            if (c < SEPTETS.length) {
+                SEPTETS[c] = 2;
+            }
+        }
+    }
+
+    private SmsSegmenter() {
+    }
+
+    public static Encoding encoding(CharSequence text) {
+        return gsm7Length(text) >= 0 ? Encoding.GSM7 : Encoding.UCS2;
+    }
+
+    // Number of SMS the body is billed and sent as; an empty body still takes one
+    public static int segments(CharSequence text) {
+        int septets = gsm7Length(text);
+        if (septets >= 0) {
+            return septets <= GSM7_SINGLE ? 1 : pack(text, Encoding.GSM7, null);
+        }
+        return text.length() <= UCS2_SINGLE ? 1 : pack(text, Encoding.UCS2, null);
+    }
+
+    // The body split the way it is concatenated on the handset, a single element if it fits one SMS
+    public static List<String> parts(String text) {
+        int septets = gsm7Length(text);
+        Encoding encoding = septets >= 0 ? Encoding.GSM7 : Encoding.UCS2;
+        if (septets >= 0 ? septets <= GSM7_SINGLE : text.length() <= UCS2_SINGLE) {
+            return List.of(text);
+        }
+        List<String> parts = new ArrayList<>();
+        pack(text, encoding, parts);
+        return parts;
+    }
+
+    // Length in septets, or -1 if the text can't be sent as GSM-7
+    static int gsm7Length(CharSequence text) {
+        int septets = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            int cost = septets(text.charAt(i));
+            if (cost == 0) {
+                return -1;
+            }
+            septets += cost;
+        }
+        return septets;
+    }
+
+    private static int septets(char c) {
+        return c < SEPTETS.length ? SEPTETS[c] : c == EURO ? 2 : 0;
+    }
+
+    // Fills parts of GSM7_PART septets or UCS2_PART units, adding them to parts unless it is null
+    private static int pack(CharSequence text, Encoding encoding, List<String> parts) {
+        int partSize = encoding == Encoding.GSM7 ? GSM7_PART : UCS2_PART;
+        int count = 1;
+        int used = 0;
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length;) {
+            char c = text.charAt(i);
+            int width = 1;
+            int cost;
+            if (encoding == Encoding.GSM7) {
+                cost = septets(c);
+            } else {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    width = 2;
+                }
+                cost = width;
+            }
+            if (used + cost > partSize) {
+                if (parts != null) {
+                    parts.add(text.subSequence(start, i).toString());
+                }
+                count++;
+                start = i;
+                used = 0;
+            }
+            used += cost;
+            i += width;
+        }
+        if (parts != null) {
+            parts.add(text.subSequence(start, length).toString());
+        }
+        return count;
+    }
+}
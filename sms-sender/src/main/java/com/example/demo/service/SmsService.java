@@ -1,43 +1,213 @@
 package com.example.demo.service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import com.example.demo.service.BlacklistCache;
 import com.example.demo.model.SmsRequest;
+import com.example.demo.model.SmsResponse;
+import com.example.demo.model.SmsStatus;
 import com.example.demo.model.SmsEvent;
 
 @Service
 public class SmsService {
     private final BlacklistCache cache;
     private final SmsEventProducer eventProducer;
-    private final TwillioService twillioService;
+    private final SmsProvider provider;
+    private final RetryScheduler retries;
+    private final SendMetrics metrics;
+    // Told the outcome of each retry of a message that has an id
+    private volatile BiConsumer<String, SmsResponse> retryListener;
+
+    public SmsService(BlacklistCache cache, SmsEventProducer eventProducer, SmsProvider provider) {
+        this(cache, eventProducer, provider, null, null);
+    }
 
-    public SmsService(BlacklistCache cache, SmsEventProducer eventProducer, TwillioService twillioService) {
+    // retries may be null: a failed send is then final. metrics may be null: nothing is recorded.
+    @Autowired
+    public SmsService(BlacklistCache cache, SmsEventProducer eventProducer, SmsProvider provider,
+            RetryScheduler retries, SendMetrics metrics) {
         this.cache = cache;
         this.eventProducer = eventProducer;
-        this.twillioService = twillioService;
+        this.provider = provider;
+        this.retries = retries;
+        this.metrics = metrics != null ? metrics : SendMetrics.noop();
+    }
+
+    public void setRetryListener(BiConsumer<String, SmsResponse> retryListener) {
+        this.retryListener = retryListener;
     }
 
     public String sendSms(SmsRequest request) {
-        String phoneNumber = request.getPhoneNumber();
-        String message = request.getMessage();
+        return send(request, null).getResult();
+    }
+
+    // Full outcome of a single send; messageId (when present) is carried on the event as eventId
+    public SmsResponse send(SmsRequest request, String messageId) {
+        return attempt(request.getPhoneNumber(), request.getMessage(), messageId, 1);
+    }
+
+    // Records a send refused by the rate limiter: publishes a throttled event, nothing is sent
+    public SmsResponse throttled(SmsRequest request, String messageId, String reason) {
+        publish(new SmsEvent(request.getPhoneNumber(), request.getMessage(), SmsStatus.THROTTLED), messageId, 0);
+        return itemResponse(reason, SmsStatus.THROTTLED);
+    }
 
-        // Check if phone number is blacklisted
-        if (cache.isBlacklisted(phoneNumber)) {
-            SmsEvent event = new SmsEvent(phoneNumber, message, "blocked");
-            eventProducer.sendSmsEvent(event);
-            return "Failed: Phone number is blacklisted";
+    // One delivery attempt. Every attempt publishes its own event; a transient failure with
+    // attempts left is reported as retry_scheduled and tried again later by the retry scheduler.
+    private SmsResponse attempt(String phoneNumber, String message, String messageId, int attempt) {
+        // Check if phone number is blacklisted (again on a retry: it may have been added since)
+        long start = metrics.start();
+        boolean blacklisted = cache.isBlacklisted(phoneNumber);
+        metrics.record(SendMetrics.Stage.BLACKLIST, start);
+        if (blacklisted) {
+            publish(new SmsEvent(phoneNumber, message, SmsStatus.BLOCKED), messageId, attempt);
+            return itemResponse("Failed: Phone number is blacklisted", SmsStatus.BLOCKED);
         }
 
-        // Try to send SMS
+        // Back-pressure is applied before the provider call (not on a retry, nobody is waiting
+        // there). Once the provider has been called the outcome is what the caller gets: its event
+        // is published without waiting or failing, see SmsEventProducer.sendSmsEventsNoWait.
+        if (attempt == 1) {
+            eventProducer.awaitCapacity();
+        }
+        start = metrics.start();
         try {
-            twillioService.sendSms(phoneNumber, message);
-            SmsEvent event = new SmsEvent(phoneNumber, message, "successful");
-            eventProducer.sendSmsEvent(event);
-            return "SMS sent to " + request.getPhoneNumber();
+            provider.sendSms(phoneNumber, message);
         } catch (Exception e) {
-            SmsEvent event = new SmsEvent(phoneNumber, message, "unsuccessful");
-            eventProducer.sendSmsEvent(event);
-            return "Failed to send SMS: " + e.getMessage();
+            metrics.record(SendMetrics.Stage.PROVIDER, start);
+            String status = failureStatus(scheduleRetry(phoneNumber, message, messageId, attempt, e), e);
+            publishOutcome(new SmsEvent(phoneNumber, message, status), messageId, attempt);
+            return failedResponse(e, status, attempt);
+        }
+        metrics.record(SendMetrics.Stage.PROVIDER, start);
+        publishOutcome(new SmsEvent(phoneNumber, message, SmsStatus.SUCCESSFUL), messageId, attempt);
+        return itemResponse("SMS sent to " + phoneNumber, SmsStatus.SUCCESSFUL);
+    }
+
+    // Only transient provider failures are retried; a message the provider rejected would fail again
+    private boolean scheduleRetry(String phoneNumber, String message, String messageId, int attempt, Exception e) {
+        if (retries == null || !(e instanceof SmsProviderException failure) || !failure.isRetryable()) {
+            return false;
+        }
+        return retries.scheduleRetry(attempt, () -> {
+            SmsResponse outcome;
+            try {
+                outcome = attempt(phoneNumber, message, messageId, attempt + 1);
+            } catch (RuntimeException retryError) {
+                // E.g. Redis down for the blacklist check. Still report an outcome, or the
+                // listener's status would stay retry_scheduled; the scheduler logs the exception.
+                reportRetry(messageId,
+                        itemResponse("Failed to send SMS: " + retryError.getMessage(), SmsStatus.UNSUCCESSFUL));
+                throw retryError;
+            }
+            reportRetry(messageId, outcome);
+        });
+    }
+
+    private void reportRetry(String messageId, SmsResponse outcome) {
+        BiConsumer<String, SmsResponse> listener = retryListener;
+        if (messageId != null && listener != null) {
+            listener.accept(messageId, outcome);
+        }
+    }
+
+    // Same outcome per item as sendSms, but one blacklist lookup and one event publish for the
+    // whole batch. Responses are in request order. Like a single send, only fails before the
+    // first provider call.
+    public List<SmsResponse> sendBatch(List<SmsRequest> requests) {
+        List<String> phoneNumbers = new ArrayList<>(requests.size());
+        for (SmsRequest request : requests) {
+            phoneNumbers.add(request.getPhoneNumber());
         }
+        long start = metrics.start();
+        boolean[] blacklisted = cache.areBlacklisted(phoneNumbers);
+        metrics.record(SendMetrics.Stage.BLACKLIST, start);
+        eventProducer.awaitCapacity();
+
+        List<SmsEvent> events = new ArrayList<>(requests.size());
+        List<SmsResponse> responses = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            String phoneNumber = phoneNumbers.get(i);
+            String message = requests.get(i).getMessage();
+            if (blacklisted[i]) {
+                events.add(new SmsEvent(phoneNumber, message, SmsStatus.BLOCKED));
+                responses.add(itemResponse("Failed: Phone number is blacklisted", SmsStatus.BLOCKED));
+                continue;
+            }
+            start = metrics.start();
+            try {
+                provider.sendSms(phoneNumber, message);
+                metrics.record(SendMetrics.Stage.PROVIDER, start);
+                events.add(new SmsEvent(phoneNumber, message, SmsStatus.SUCCESSFUL));
+                responses.add(itemResponse("SMS sent to " + phoneNumber, SmsStatus.SUCCESSFUL));
+            } catch (Exception e) {
+                metrics.record(SendMetrics.Stage.PROVIDER, start);
+                String status = failureStatus(scheduleRetry(phoneNumber, message, null, 1, e), e);
+                events.add(new SmsEvent(phoneNumber, message, status));
+                responses.add(failedResponse(e, status, 1));
+            }
+        }
+        // Batch items are all on their first attempt; retries publish their own events
+        for (SmsEvent event : events) {
+            event.setAttempt(1);
+            event.setSegments(segments(event.getMessage()));
+            metrics.outcome(event.getStatus());
+        }
+        start = metrics.start();
+        eventProducer.sendSmsEventsNoWait(events);
+        metrics.record(SendMetrics.Stage.PUBLISH, start);
+        return responses;
+    }
+
+    // For events about a send that did not happen; back-pressure may fail the caller
+    private void publish(SmsEvent event, String messageId, int attempt) {
+        prepare(event, messageId, attempt);
+        long start = metrics.start();
+        eventProducer.sendSmsEvent(event);
+        metrics.record(SendMetrics.Stage.PUBLISH, start);
+    }
+
+    // For the outcome of a provider call; never fails the caller
+    private void publishOutcome(SmsEvent event, String messageId, int attempt) {
+        prepare(event, messageId, attempt);
+        long start = metrics.start();
+        eventProducer.sendSmsEventNoWait(event);
+        metrics.record(SendMetrics.Stage.PUBLISH, start);
+    }
+
+    private void prepare(SmsEvent event, String messageId, int attempt) {
+        event.setEventId(messageId);
+        event.setAttempt(attempt);
+        event.setSegments(segments(event.getMessage()));
+        metrics.outcome(event.getStatus());
+    }
+
+    private static int segments(String message) {
+        return message == null ? 0 : SmsSegmenter.segments(message);
+    }
+
+    private static String failureStatus(boolean retryScheduled, Exception e) {
+        if (retryScheduled) {
+            return SmsStatus.RETRY_SCHEDULED;
+        }
+        return e instanceof SmsProviderException failure && failure.isOutcomeUnknown()
+                ? SmsStatus.UNKNOWN : SmsStatus.UNSUCCESSFUL;
+    }
+
+    private SmsResponse failedResponse(Exception e, String status, int attempt) {
+        String result = "Failed to send SMS: " + e.getMessage();
+        if (status.equals(SmsStatus.RETRY_SCHEDULED)) {
+            result += " (attempt " + attempt + " of " + retries.maxAttempts() + ", retry scheduled)";
+        }
+        return itemResponse(result, status);
+    }
+
+    private static SmsResponse itemResponse(String result, String status) {
+        SmsResponse response = new SmsResponse(result);
+        response.setStatus(status);
+        return response;
     }
 }
@@ -1,11 +1,93 @@
 package com.example.demo.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import com.example.demo.config.ProviderProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Twilio Messages API client (POST /2010-04-01/Accounts/{sid}/Messages.json). Calls go through
+ * the shared provider HTTP client, so they reuse pooled keep-alive or multiplexed HTTP/2
+ * connections. Each call is timed into sms.provider.latency, tagged with the outcome.
+ */
 @Service
-public class TwillioService{
-    public TwillioService(){}
-    public void sendSms(String phoneNumber, String message){
-        // Logic to send SMS via Twilio API would go here
-        System.out.println("Sending SMS to " + phoneNumber + ": " + message);
+@ConditionalOnProperty(name = "sms.provider.twilio.enabled", matchIfMissing = true)
+public class TwillioService implements SmsProvider {
+    private static final String NAME = "twilio";
+
+    private final HttpClient client;
+    private final URI messagesUri;
+    private final String authorization;
+    private final String from;
+    private final Duration readTimeout;
+    private final ProviderCallTimers timers;
+    private final ProviderConnectionMetrics connectionMetrics;
+
+    public TwillioService(HttpClient providerHttpClient, ProviderProperties properties, MeterRegistry registry,
+            ProviderConnectionMetrics connectionMetrics) {
+        ProviderProperties.Twilio twilio = properties.getTwilio();
+        this.client = providerHttpClient;
+        this.messagesUri = URI.create(stripTrailingSlash(twilio.getBaseUrl()) + "/2010-04-01/Accounts/"
+                + twilio.getAccountSid() + "/Messages.json");
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString(
+                (twilio.getAccountSid() + ":" + twilio.getAuthToken()).getBytes(StandardCharsets.UTF_8));
+        this.from = twilio.getFrom();
+        this.readTimeout = properties.getReadTimeout();
+        this.timers = new ProviderCallTimers(registry, NAME);
+        this.connectionMetrics = connectionMetrics;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void sendSms(String phoneNumber, String message) {
+        HttpRequest request = HttpRequest.newBuilder(messagesUri)
+                .timeout(readTimeout)
+                .header("Authorization", authorization)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        FormEncoding.encode("To", phoneNumber, "From", from, "Body", message)))
+                .build();
+        long start = System.nanoTime();
+        Timer timer = timers.success();
+        try {
+            int code = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (code >= 200 && code < 300) {
+                return;
+            }
+            timer = timers.get(code >= 500 ? "5xx" : "4xx");
+            // 429 and 5xx are the provider's problem and may clear up; other 4xx are ours
+            throw new SmsProviderException(NAME, "Provider returned HTTP " + code, code, code == 429 || code >= 500);
+        } catch (IOException e) {
+            timer = timers.get("io_error");
+            throw new SmsProviderException(NAME, "Provider call failed: " + e, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timer = timers.get("io_error");
+            throw new SmsProviderException(NAME, "Interrupted waiting for the provider", e);
+        } finally {
+            connectionMetrics.recordCall();
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.config.ProviderProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Vonage SMS API client (POST /sms/json), sharing the provider HTTP client with the other
+ * providers. Vonage answers 200 even when it rejects a message; the per-message status in the
+ * body decides the outcome.
+ */
+@Service
+@ConditionalOnProperty(name = "sms.provider.vonage.enabled")
+public class VonageService implements SmsProvider {
+    private static final String NAME = "vonage";
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpClient client;
+    private final URI smsUri;
+    private final ProviderProperties.Vonage settings;
+    private final Duration readTimeout;
+    private final ProviderCallTimers timers;
+    private final ProviderConnectionMetrics connectionMetrics;
+
+    public VonageService(HttpClient providerHttpClient, ProviderProperties properties, MeterRegistry registry,
+            ProviderConnectionMetrics connectionMetrics) {
+        this.client = providerHttpClient;
+        this.settings = properties.getVonage();
+        this.smsUri = URI.create(TwillioService.stripTrailingSlash(settings.getBaseUrl()) + "/sms/json");
+        this.readTimeout = properties.getReadTimeout();
+        this.timers = new ProviderCallTimers(registry, NAME);
+        this.connectionMetrics = connectionMetrics;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void sendSms(String phoneNumber, String message) {
+        HttpRequest request = HttpRequest.newBuilder(smsUri)
+                .timeout(readTimeout)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(FormEncoding.encode(
+                        "api_key", settings.getApiKey(),
+                        "api_secret", settings.getApiSecret(),
+                        "from", settings.getFrom(),
+                        // Vonage takes numbers without the leading '+'
+                        "to", phoneNumber.startsWith("+") ? phoneNumber.substring(1) : phoneNumber,
+                        "text", message)))
+                .build();
+        long start = System.nanoTime();
+        Timer timer = timers.success();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            int code = response.statusCode();
+            if (code < 200 || code >= 300) {
+                timer = timers.get(code >= 500 ? "5xx" : "4xx");
+                throw new SmsProviderException(NAME, "Provider returned HTTP " + code, code, code == 429 || code >= 500);
+            }
+            String body = response.body();
+            JsonNode first = JSON.readTree(body == null || body.isEmpty() ? "{}" : body).path("messages").path(0);
+            String status = first.path("status").asText("");
+            if (!status.equals("0")) {
+                timer = timers.get("rejected");
+                // 1 = throttled, 5 = internal error; everything else is about the message itself
+                throw new SmsProviderException(NAME, "Provider rejected message: status " + status + " "
+                        + first.path("error-text").asText(""), code, status.equals("1") || status.equals("5"));
+            }
+        } catch (IOException e) {
+            timer = timers.get("io_error");
+            throw new SmsProviderException(NAME, "Provider call failed: " + e, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timer = timers.get("io_error");
+            throw new SmsProviderException(NAME, "Interrupted waiting for the provider", e);
+        } finally {
+            connectionMetrics.recordCall();
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.validation;
+
+import com.example.demo.service.E164;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+public class PhoneNumberValidator implements ConstraintValidator<PhoneNumber, CharSequence> {
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || E164.isValid(value);
+    }
+}
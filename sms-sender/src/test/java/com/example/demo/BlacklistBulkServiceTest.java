@@ -0,0 +1,102 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.example.demo.config.BlacklistProperties;
+import com.example.demo.model.BulkJob;
+import com.example.demo.service.BlacklistBulkService;
+import com.example.demo.service.BlacklistCache;
+
+class BlacklistBulkServiceTest {
+
+    private InMemoryRedis redis;
+    private StringRedisTemplate template;
+    private BlacklistBulkService bulkService;
+
+    @BeforeEach
+    void setUp() {
+        redis = new InMemoryRedis();
+        template = redis.newTemplate();
+        BlacklistProperties properties = new BlacklistProperties();
+        properties.getBulk().setBatchSize(2);
+        bulkService = new BlacklistBulkService(new BlacklistCache(template, properties), template, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkService.shutdown();
+        redis.close();
+    }
+
+    @Test
+    void testImportCsvWritesPipelinedBatches() throws Exception {
+        String csv = """
+                phoneNumber,reason
+                +1234567890,carrier DNC
+                "+1987654321",regulatory
+
+                15551234567
+                not-a-number
+                +1222333444,
+                """;
+        BulkJob job = new BulkJob("job-1", "import");
+
+        bulkService.importNumbers(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), job);
+
+        assertEquals("completed", job.getState());
+        assertEquals(4, job.getProcessed());
+        assertEquals(2, job.getRejected());
+        assertEquals(Set.of("blacklist:+1234567890", "blacklist:+1987654321", "blacklist:+15551234567",
+                "blacklist:+1222333444"), redis.keyspace().keySet());
+        // Batches of 2: one full batch, then one full batch at end of input
+        verify(template, times(2)).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void testExportStreamsEveryNumber() {
+        redis.keyspace().put("blacklist:+1234567890", "1");
+        redis.keyspace().put("blacklist:+1987654321", "1");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        BulkJob job = bulkService.startExport();
+        bulkService.export(job, out);
+
+        Set<String> exported = Set.of(out.toString(StandardCharsets.UTF_8).split("\n"));
+        assertEquals(Set.of("+1234567890", "+1987654321"), exported);
+        assertEquals("completed", job.getState());
+        assertEquals(2, job.getProcessed());
+        assertNotNull(bulkService.getJob(job.getJobId()));
+    }
+
+    @Test
+    void testStartImportRunsInBackground() throws Exception {
+        BulkJob job = bulkService.startImport(
+                new ByteArrayInputStream("+1234567890\n+1987654321\n+1555000111\n".getBytes(StandardCharsets.UTF_8)));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"completed".equals(job.getState()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals("completed", job.getState());
+        assertEquals(3, job.getProcessed());
+        assertTrue(job.getThroughputPerSecond() > 0);
+        assertEquals(3, redis.keyspace().size());
+    }
+}
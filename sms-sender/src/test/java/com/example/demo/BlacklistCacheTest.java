@@ -1,17 +1,24 @@
 package com.example.demo;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.redis.RedisConnectionFailureException;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import com.example.demo.config.BlacklistProperties;
 import com.example.demo.service.BlacklistCache;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -33,19 +40,19 @@ public class BlacklistCacheTest {
     @Test
     public void testIsBlacklistedReturnsTrueWhenPhoneNumberExists() {
         String phoneNumber = "+1234567890";
-        when(redisTemplate.hasKey(phoneNumber)).thenReturn(true);
+        when(redisTemplate.countExistingKeys(keys(phoneNumber))).thenReturn(1L);
 
         assertTrue(blacklistCache.isBlacklisted(phoneNumber));
-        verify(redisTemplate).hasKey(phoneNumber);
+        verify(redisTemplate).countExistingKeys(keys(phoneNumber));
     }
 
     @Test
     public void testIsBlacklistedReturnsFalseWhenPhoneNumberDoesNotExist() {
         String phoneNumber = "+1234567890";
-        when(redisTemplate.hasKey(phoneNumber)).thenReturn(false);
+        when(redisTemplate.countExistingKeys(keys(phoneNumber))).thenReturn(0L);
 
         assertFalse(blacklistCache.isBlacklisted(phoneNumber));
-        verify(redisTemplate).hasKey(phoneNumber);
+        verify(redisTemplate).countExistingKeys(keys(phoneNumber));
     }
 
     @Test
@@ -56,7 +63,7 @@ public class BlacklistCacheTest {
         blacklistCache.addToBlacklist(phoneNumber);
 
         verify(redisTemplate).opsForValue();
-        verify(valueOps).set(phoneNumber, "1");
+        verify(valueOps).set("blacklist:" + phoneNumber, "1");
     }
 
     @Test
@@ -65,6 +72,87 @@ public class BlacklistCacheTest {
 
         blacklistCache.removeFromBlacklist(phoneNumber);
 
-        verify(redisTemplate).delete(phoneNumber);
+        verify(redisTemplate).delete(keys(phoneNumber));
+    }
+
+    @Test
+    public void testLegacyKeyWithoutPlusStillMatches() {
+        // Written before numbers were canonicalized; only the legacy key exists
+        when(redisTemplate.countExistingKeys(List.of("blacklist:+1234567890", "blacklist:1234567890"))).thenReturn(1L);
+
+        assertTrue(blacklistCache.isBlacklisted("1234567890"));
+    }
+
+    @Test
+    public void testNearCacheServesRepeatedHitsAndMisses() {
+        when(redisTemplate.countExistingKeys(keys("+1111111111"))).thenReturn(1L);
+        when(redisTemplate.countExistingKeys(keys("+2222222222"))).thenReturn(0L);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(blacklistCache.isBlacklisted("+1111111111"));
+            assertFalse(blacklistCache.isBlacklisted("+2222222222"));
+        }
+
+        verify(redisTemplate, times(1)).countExistingKeys(keys("+1111111111"));
+        verify(redisTemplate, times(1)).countExistingKeys(keys("+2222222222"));
+        assertEquals(4, blacklistCache.nearCacheStats().hitCount());
+        assertEquals(2, blacklistCache.nearCacheStats().missCount());
+    }
+
+    @Test
+    public void testAddToBlacklistInvalidatesCachedMiss() {
+        String phoneNumber = "+1234567890";
+        when(redisTemplate.countExistingKeys(keys(phoneNumber))).thenReturn(0L, 1L);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+
+        assertFalse(blacklistCache.isBlacklisted(phoneNumber));
+        blacklistCache.addToBlacklist(phoneNumber);
+
+        assertTrue(blacklistCache.isBlacklisted(phoneNumber));
+        verify(redisTemplate, times(2)).countExistingKeys(keys(phoneNumber));
+    }
+
+    @Test
+    public void testRemoveFromBlacklistInvalidatesCachedHit() {
+        String phoneNumber = "+1234567890";
+        when(redisTemplate.countExistingKeys(keys(phoneNumber))).thenReturn(1L, 0L);
+
+        assertTrue(blacklistCache.isBlacklisted(phoneNumber));
+        blacklistCache.removeFromBlacklist(phoneNumber);
+
+        assertFalse(blacklistCache.isBlacklisted(phoneNumber));
+        verify(redisTemplate, times(2)).countExistingKeys(keys(phoneNumber));
+    }
+
+    @Test
+    public void testFailedLookupIsNotCached() {
+        String phoneNumber = "+1234567890";
+        when(redisTemplate.countExistingKeys(keys(phoneNumber)))
+                .thenThrow(new RedisConnectionFailureException("Connection refused"))
+                .thenReturn(1L);
+
+        assertThrows(RedisConnectionFailureException.class, () -> blacklistCache.isBlacklisted(phoneNumber));
+
+        assertTrue(blacklistCache.isBlacklisted(phoneNumber));
+        verify(redisTemplate, times(2)).countExistingKeys(keys(phoneNumber));
+    }
+
+    @Test
+    public void testNearCacheDisabledAlwaysGoesToRedis() {
+        BlacklistProperties properties = new BlacklistProperties();
+        properties.getNearCache().setEnabled(false);
+        BlacklistCache uncached = new BlacklistCache(redisTemplate, properties);
+        when(redisTemplate.countExistingKeys(keys("+1234567890"))).thenReturn(1L);
+
+        assertTrue(uncached.isBlacklisted("+1234567890"));
+        assertTrue(uncached.isBlacklisted("+1234567890"));
+
+        verify(redisTemplate, times(2)).countExistingKeys(keys("+1234567890"));
+        assertEquals(0, uncached.nearCacheStats().requestCount());
+    }
+
+    // The canonical key and the legacy one without the '+'
+    private static List<String> keys(String phoneNumber) {
+        return List.of("blacklist:" + phoneNumber, "blacklist:" + phoneNumber.substring(1));
     }
 }
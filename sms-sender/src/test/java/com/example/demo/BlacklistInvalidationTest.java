@@ -0,0 +1,167 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.BlacklistProperties;
+import com.example.demo.service.BlacklistCache;
+import com.example.demo.service.BlacklistInvalidationListener;
+
+class BlacklistInvalidationTest {
+
+    private static final long MAX_PROPAGATION_MILLIS = 1000;
+
+    private InMemoryRedis redis;
+    private BlacklistCache nodeA;
+    private BlacklistCache nodeB;
+
+    @BeforeEach
+    void setUp() {
+        redis = new InMemoryRedis();
+        BlacklistProperties properties = new BlacklistProperties();
+        // Long TTL so only the invalidation message can make node B see the change
+        properties.getNearCache().setTtl(Duration.ofHours(1));
+
+        nodeA = new BlacklistCache(redis.newTemplate(), properties);
+        nodeB = new BlacklistCache(redis.newTemplate(), properties);
+        redis.subscribe(properties.getInvalidationChannel(), new BlacklistInvalidationListener(nodeA));
+        redis.subscribe(properties.getInvalidationChannel(), new BlacklistInvalidationListener(nodeB));
+    }
+
+    @AfterEach
+    void tearDown() {
+        redis.close();
+    }
+
+    @Test
+    void testAddOnOneNodeIsSeenByOtherNode() throws InterruptedException {
+        String phoneNumber = "+1234567890";
+        assertFalse(nodeB.isBlacklisted(phoneNumber)); // caches the miss
+
+        nodeA.addToBlacklist(phoneNumber);
+
+        assertTrue(within(MAX_PROPAGATION_MILLIS, () -> nodeB.isBlacklisted(phoneNumber)));
+    }
+
+    @Test
+    void testRemoveOnOneNodeIsSeenByOtherNode() throws InterruptedException {
+        String phoneNumber = "+1234567890";
+        redis.keyspace().put("blacklist:" + phoneNumber, "1");
+        assertTrue(nodeB.isBlacklisted(phoneNumber)); // caches the hit
+
+        nodeA.removeFromBlacklist(phoneNumber);
+
+        assertTrue(within(MAX_PROPAGATION_MILLIS, () -> !nodeB.isBlacklisted(phoneNumber)));
+    }
+
+    @Test
+    void testResubscribeRebuildsBloomFilter() throws InterruptedException {
+        BlacklistCache node = bloomNode(Duration.ofHours(1));
+        BlacklistInvalidationListener listener = new BlacklistInvalidationListener(node);
+        byte[] channel = new BlacklistProperties().getInvalidationChannel().getBytes();
+        listener.onChannelSubscribed(channel, 1);
+        node.rebuildBloomFilter();
+        String phoneNumber = "+1234567890";
+        // Added while the subscription was down: the message never arrives
+        redis.keyspace().put("blacklist:" + phoneNumber, "1");
+        assertFalse(node.isBlacklisted(phoneNumber));
+
+        listener.onChannelSubscribed(channel, 1);
+
+        assertTrue(node.isBlacklisted(phoneNumber)); // straight to Redis until the rebuild is done
+        long negatives = node.bloomNegativeCount();
+        assertTrue(within(MAX_PROPAGATION_MILLIS,
+                () -> !node.isBlacklisted("+1999999999") && node.bloomNegativeCount() > negatives));
+        assertTrue(node.isBlacklisted(phoneNumber));
+        node.shutdown();
+    }
+
+    @Test
+    void testBloomFilterRebuiltPeriodically() throws InterruptedException {
+        BlacklistCache node = bloomNode(Duration.ofMillis(50));
+        node.rebuildBloomFilter();
+        String phoneNumber = "+1234567890";
+        redis.keyspace().put("blacklist:" + phoneNumber, "1");
+        assertFalse(node.isBlacklisted(phoneNumber));
+
+        assertTrue(within(MAX_PROPAGATION_MILLIS, () -> node.isBlacklisted(phoneNumber)));
+        node.shutdown();
+    }
+
+    @Test
+    void testBulkAddPublishesOneMessageAppliedPerNumber() throws InterruptedException {
+        BlacklistCache localNode = localSetNode(Duration.ofHours(1));
+        localNode.rebuildLocalSet();
+        List<String> messages = new CopyOnWriteArrayList<>();
+        redis.subscribe(new BlacklistProperties().getInvalidationChannel(),
+                (message, pattern) -> messages.add(new String(message.getBody(), StandardCharsets.UTF_8)));
+        redis.subscribe(new BlacklistProperties().getInvalidationChannel(),
+                new BlacklistInvalidationListener(localNode));
+        List<String> phoneNumbers = List.of("+15550000001", "+15550000002", "+15550000003");
+        phoneNumbers.forEach(phoneNumber -> assertFalse(localNode.isBlacklisted(phoneNumber)));
+        String unannounced = "+15559999999";
+        redis.keyspace().put("blacklist:" + unannounced, "1");
+
+        nodeA.addAllToBlacklist(phoneNumbers);
+
+        assertTrue(within(MAX_PROPAGATION_MILLIS,
+                () -> phoneNumbers.stream().allMatch(localNode::isBlacklisted)));
+        assertTrue(within(MAX_PROPAGATION_MILLIS, () -> !messages.isEmpty()));
+        assertEquals(List.of(BlacklistCache.BULK_ADD + String.join("\n", phoneNumbers)), messages);
+        // Applied to the live local set rather than dropping it for a rebuild from Redis, which
+        // would also have picked up this number written behind the cache's back
+        assertFalse(localNode.isBlacklisted(unannounced));
+        localNode.shutdown();
+    }
+
+    @Test
+    void testLocalSetRebuiltPeriodically() throws InterruptedException {
+        BlacklistCache localNode = localSetNode(Duration.ofMillis(50));
+        localNode.rebuildLocalSet();
+        String phoneNumber = "+1234567890";
+        redis.keyspace().put("blacklist:" + phoneNumber, "1");
+        assertFalse(localNode.isBlacklisted(phoneNumber));
+
+        assertTrue(within(MAX_PROPAGATION_MILLIS, () -> localNode.isBlacklisted(phoneNumber)));
+        localNode.shutdown();
+    }
+
+    private BlacklistCache localSetNode(Duration rebuildInterval) {
+        BlacklistProperties properties = new BlacklistProperties();
+        properties.getLocalSet().setEnabled(true);
+        properties.getLocalSet().setExpectedSize(1000);
+        properties.getLocalSet().setRebuildInterval(rebuildInterval);
+        return new BlacklistCache(redis.newTemplate(), properties);
+    }
+
+    private BlacklistCache bloomNode(Duration rebuildInterval) {
+        BlacklistProperties properties = new BlacklistProperties();
+        properties.getNearCache().setEnabled(false);
+        properties.getBloomFilter().setEnabled(true);
+        properties.getBloomFilter().setExpectedInsertions(1000);
+        properties.getBloomFilter().setRebuildInterval(rebuildInterval);
+        return new BlacklistCache(redis.newTemplate(), properties);
+    }
+
+    private static boolean within(long millis, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return condition.getAsBoolean();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.example.demo.config.BlacklistProperties;
+import com.example.demo.service.BlacklistCache;
+import com.example.demo.service.BloomFilter;
+
+class BloomFilterTest {
+
+    @Test
+    void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01, 1 << 20);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("+1555" + (1_000_000 + i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("+1555" + (1_000_000 + i)));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRateCloseToConfigured() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01, 1 << 20);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("+1555" + (1_000_000 + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("+4477" + (10_000_000 + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives / 100_000.0 < 0.02);
+        assertTrue(filter.expectedFpp() < 0.02);
+    }
+
+    @Test
+    void testMemoryBudgetCapsSize() {
+        BloomFilter filter = new BloomFilter(1_000_000, 0.001, 64 * 1024);
+
+        assertEquals(64 * 1024, filter.byteSize());
+    }
+
+    @Test
+    void testInvalidSizingRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(1000, 1.5, 1024));
+    }
+
+    @Test
+    void testBlacklistCacheSkipsRedisForDefiniteNegatives() {
+        try (InMemoryRedis redis = new InMemoryRedis()) {
+            redis.keyspace().put("blacklist:+1234567890", "1");
+            StringRedisTemplate template = redis.newTemplate();
+            BlacklistProperties properties = new BlacklistProperties();
+            properties.getBloomFilter().setEnabled(true);
+            properties.getBloomFilter().setExpectedInsertions(1000);
+            BlacklistCache cache = new BlacklistCache(template, properties);
+
+            cache.rebuildBloomFilter();
+
+            assertFalse(cache.isBlacklisted("+1999999999"));
+            assertTrue(cache.isBlacklisted("+1234567890"));
+            assertEquals(1, cache.bloomNegativeCount());
+            verify(template, never()).countExistingKeys(List.of("blacklist:+1999999999", "blacklist:1999999999"));
+        }
+    }
+
+    @Test
+    void testAddAfterRebuildIsVisible() {
+        try (InMemoryRedis redis = new InMemoryRedis()) {
+            StringRedisTemplate template = redis.newTemplate();
+            BlacklistProperties properties = new BlacklistProperties();
+            properties.getBloomFilter().setEnabled(true);
+            properties.getBloomFilter().setExpectedInsertions(1000);
+            BlacklistCache cache = new BlacklistCache(template, properties);
+            cache.rebuildBloomFilter();
+
+            cache.addToBlacklist("+1234567890");
+
+            assertTrue(cache.isBlacklisted("+1234567890"));
+        }
+    }
+
+    @Test
+    void testBloomFilterDisabledByDefault() {
+        try (InMemoryRedis redis = new InMemoryRedis()) {
+            StringRedisTemplate template = redis.newTemplate();
+            BlacklistCache cache = new BlacklistCache(template);
+            cache.rebuildBloomFilter();
+
+            assertFalse(cache.isBlacklisted("+1999999999"));
+            verify(template).countExistingKeys(any());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.service.E164;
+
+class E164Test {
+
+    @Test
+    void testNormalizeAddsPlus() {
+        assertEquals("+15551234567", E164.normalize("15551234567"));
+    }
+
+    @Test
+    void testCanonicalNumberReturnedAsIs() {
+        String phoneNumber = "+15551234567";
+        assertSame(phoneNumber, E164.normalize(phoneNumber));
+    }
+
+    @Test
+    void testInvalidNumbersRejected() {
+        assertNull(E164.normalize(null));
+        assertNull(E164.normalize(""));
+        assertNull(E164.normalize("+"));
+        assertNull(E164.normalize("0123456789"));
+        assertNull(E164.normalize("+123456789"));
+        assertNull(E164.normalize("+1234567890123456"));
+        assertNull(E164.normalize("+123-456-7890"));
+        assertNull(E164.normalize("++1234567890"));
+        assertNull(E164.normalize("+1234567890\n"));
+        // Arabic-Indic digits are digits to Character.isDigit, not to E.164
+        assertNull(E164.normalize("+١٢٣٤٥٦٧٨٩٠"));
+    }
+
+    @Test
+    void testCanonicalLeavesInvalidNumbersUnchanged() {
+        assertEquals("+15551234567", E164.canonical("15551234567"));
+        assertEquals("12345", E164.canonical("12345"));
+        assertNull(E164.canonical(null));
+    }
+
+    @Test
+    void testAgreesWithFormerPattern() {
+        Pattern pattern = Pattern.compile("^\\+?[1-9]\\d{9,14}$");
+        String[] samples = { "+1234567890", "1234567890", "+123456789012345", "123456789012345", "+1234567890123456",
+                "+0234567890", "+123456789", "123456789", "+12a4567890", " +1234567890", "+1234567890 ", "",
+                "+", "1", "+99999999999999", "+١٢٣٤٥٦٧٨٩٠" };
+        for (String sample : samples) {
+            assertEquals(pattern.matcher(sample).matches(), E164.isValid(sample), sample);
+        }
+        assertTrue(E164.isValid("+447700900000"));
+        assertFalse(E164.isValid("447700900000x"));
+    }
+}
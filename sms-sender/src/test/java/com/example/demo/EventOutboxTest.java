@@ -0,0 +1,219 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.example.demo.config.SmsKafkaProperties;
+import com.example.demo.model.SmsEvent;
+import com.example.demo.service.EventOutbox;
+import com.example.demo.service.SegmentLog;
+import com.example.demo.service.SmsEventBinaryDeserializer;
+
+class EventOutboxTest {
+
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+
+    @TempDir
+    Path directory;
+
+    private final List<String> published = new CopyOnWriteArrayList<>();
+
+    @Test
+    void testEventsAreDrainedInOrder() throws Exception {
+        try (EventOutbox outbox = new EventOutbox(settings(DataSize.ofMegabytes(1)), this::publish)) {
+            for (int i = 0; i < 100; i++) {
+                outbox.append(event(i), TIMEOUT);
+            }
+
+            awaitTrue(() -> outbox.backlogBytes() == 0);
+        }
+        assertEquals(expected(100), published);
+    }
+
+    @Test
+    void testFailedSendIsRetriedFromLastCommit() throws Exception {
+        // Only called from the drainer thread
+        Random random = new Random(42);
+        Function<SmsEvent, CompletableFuture<?>> flaky = event -> {
+            if (random.nextInt(5) == 0) {
+                return CompletableFuture.failedFuture(new RuntimeException("broker unavailable"));
+            }
+            return publish(event);
+        };
+        try (EventOutbox outbox = new EventOutbox(settings(DataSize.ofMegabytes(1)), flaky)) {
+            for (int i = 0; i < 50; i++) {
+                outbox.append(event(i), TIMEOUT);
+            }
+
+            awaitTrue(() -> outbox.backlogBytes() == 0);
+            assertTrue(outbox.resendCount() > 0);
+            assertEquals(0, outbox.deadLetterCount());
+        }
+        // At-least-once: every event arrives, some more than once
+        assertTrue(published.containsAll(expected(50)));
+    }
+
+    @Test
+    void testUnsendableEventIsDeadLetteredAndSkipped() throws Exception {
+        Function<SmsEvent, CompletableFuture<?>> rejecting = event -> {
+            if (event.getMessage().equals("Message 5")) {
+                // KafkaTemplate wraps the producer's exception
+                return CompletableFuture.failedFuture(
+                        new RuntimeException("send failed", new RecordTooLargeException("too large")));
+            }
+            return publish(event);
+        };
+        try (EventOutbox outbox = new EventOutbox(settings(DataSize.ofMegabytes(1)), rejecting)) {
+            for (int i = 0; i < 10; i++) {
+                outbox.append(event(i), TIMEOUT);
+            }
+
+            awaitTrue(() -> outbox.backlogBytes() == 0);
+            assertEquals(1, outbox.deadLetterCount());
+            assertEquals(0, outbox.resendCount());
+        }
+        List<String> expected = expected(10);
+        expected.remove("Message 5");
+        assertEquals(expected, published);
+        try (SegmentLog deadLetters = new SegmentLog(directory.resolve("dead-letter"), 4096)) {
+            SegmentLog.Record record = deadLetters.read(0);
+            assertEquals("Message 5", new SmsEventBinaryDeserializer().deserialize(null, record.payload()).getMessage());
+            assertNull(deadLetters.read(record.nextPosition()));
+        }
+    }
+
+    @Test
+    void testCorruptRecordIsDeadLetteredAndSkipped() throws Exception {
+        try (SegmentLog log = new SegmentLog(directory, 1 << 20)) {
+            log.append("not an event".getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (EventOutbox outbox = new EventOutbox(settings(DataSize.ofMegabytes(1)), this::publish)) {
+            outbox.append(event(0), TIMEOUT);
+
+            awaitTrue(() -> outbox.backlogBytes() == 0);
+            assertEquals(1, outbox.deadLetterCount());
+        }
+        assertEquals(expected(1), published);
+    }
+
+    @Test
+    void testEventsSurviveRestart() throws Exception {
+        // Broker down for the whole first run: nothing is ever acknowledged
+        try (EventOutbox outbox = new EventOutbox(settings(DataSize.ofMegabytes(1)),
+                event -> new CompletableFuture<>())) {
+            for (int i = 0; i < 100; i++) {
+                outbox.append(event(i), TIMEOUT);
+            }
+        }
+
+        try (EventOutbox outbox = new EventOutbox(settings(DataSize.ofMegabytes(1)), this::publish)) {
+            awaitTrue(() -> outbox.backlogBytes() == 0);
+        }
+        assertEquals(expected(100), published);
+    }
+
+    @Test
+    void testAcknowledgedSegmentsAreDeleted() throws Exception {
+        try (EventOutbox outbox = new EventOutbox(settings(DataSize.ofKilobytes(4)), this::publish)) {
+            List<SmsEvent> events = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                events.add(event(i));
+            }
+            outbox.appendAll(events, TIMEOUT);
+
+            awaitTrue(() -> outbox.backlogBytes() == 0);
+            assertEquals(1, outbox.segmentCount());
+        }
+        assertEquals(expected(1000), published);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(file -> file.toString().endsWith(".log")).count());
+        }
+    }
+
+    @Test
+    void testTornWriteIsDiscardedOnOpen() throws IOException {
+        long end;
+        try (SegmentLog log = new SegmentLog(directory, 4096)) {
+            log.append("first".getBytes(StandardCharsets.UTF_8));
+            end = log.append("second".getBytes(StandardCharsets.UTF_8));
+        }
+        // A record header with no matching payload, as left by a crash mid-append
+        try (FileChannel segment = FileChannel.open(directory.resolve(String.format("%020d.log", 0)),
+                StandardOpenOption.WRITE)) {
+            segment.write(ByteBuffer.allocate(8).putInt(0, 5).putInt(4, 12345), end);
+        }
+
+        try (SegmentLog log = new SegmentLog(directory, 4096)) {
+            assertEquals(end, log.writePosition());
+            SegmentLog.Record first = log.read(0);
+            assertEquals("first", new String(first.payload(), StandardCharsets.UTF_8));
+            SegmentLog.Record second = log.read(first.nextPosition());
+            assertEquals("second", new String(second.payload(), StandardCharsets.UTF_8));
+            assertNull(log.read(second.nextPosition()));
+        }
+    }
+
+    private CompletableFuture<?> publish(SmsEvent event) {
+        published.add(event.getMessage());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private SmsKafkaProperties.Outbox settings(DataSize segmentSize) {
+        SmsKafkaProperties.Outbox settings = new SmsKafkaProperties.Outbox();
+        settings.setEnabled(true);
+        settings.setDirectory(directory.toString());
+        settings.setSegmentSize(segmentSize);
+        settings.setFlushInterval(Duration.ofMillis(1));
+        settings.setRetryInterval(Duration.ofMillis(10));
+        return settings;
+    }
+
+    private static SmsEvent event(int i) {
+        SmsEvent event = new SmsEvent("+1234567890", "Message " + i, "successful");
+        event.setEventId("id-" + i);
+        return event;
+    }
+
+    private static List<String> expected(int count) {
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add("Message " + i);
+        }
+        return messages;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met in time");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.SmsKafkaProperties;
+import com.example.demo.service.HotNumberPartitioner;
+
+class HotNumberPartitionerTest {
+
+    private static final int PARTITIONS = 4;
+
+    @Test
+    void testHotNumbersSpreadOverAllPartitions() {
+        HotNumberPartitioner partitioner = new HotNumberPartitioner(List.of("+15550000004", "+15550000002", "+15550000003", "+15550000001"));
+
+        Set<Integer> used = new HashSet<>();
+        for (String number : List.of("+15550000001", "+15550000002", "+15550000003", "+15550000004")) {
+            used.add(partitioner.partition(number, PARTITIONS));
+        }
+
+        assertEquals(Set.of(0, 1, 2, 3), used);
+    }
+
+    @Test
+    void testSameKeyAlwaysSamePartition() {
+        HotNumberPartitioner first = new HotNumberPartitioner(List.of("+15550000001", "+15550000002"));
+        // Another replica configured with the same numbers in a different order
+        HotNumberPartitioner second = new HotNumberPartitioner(List.of("+15550000002", "+15550000001"));
+
+        for (String number : List.of("+15550000001", "+15550000002")) {
+            assertEquals(first.partition(number, PARTITIONS), second.partition(number, PARTITIONS));
+        }
+    }
+
+    @Test
+    void testOtherKeysLeftToDefaultPartitioner() {
+        HotNumberPartitioner partitioner = new HotNumberPartitioner(List.of("+15550000001"));
+
+        assertFalse(partitioner.isHot("+12025550123"));
+        assertNull(partitioner.partition("+12025550123", PARTITIONS));
+        assertNull(partitioner.partition(null, PARTITIONS));
+    }
+
+    @Test
+    void testHotNumbersFromProperties() {
+        SmsKafkaProperties properties = new SmsKafkaProperties();
+        properties.setKeyStrategy(SmsKafkaProperties.KeyStrategy.PHONE_NUMBER);
+        properties.getPartitioner().setHotNumbers(List.of("15550000002", "+15550000001"));
+
+        assertFalse(HotNumberPartitioner.of(properties).isHot("+15550000001"));
+
+        properties.getPartitioner().setEnabled(true);
+        HotNumberPartitioner partitioner = HotNumberPartitioner.of(properties);
+
+        assertTrue(partitioner.isHot("+15550000002"));
+        assertEquals(0, partitioner.partition("+15550000001", PARTITIONS));
+        assertEquals(1, partitioner.partition("+15550000002", PARTITIONS));
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.example.demo.config.IdempotencyProperties;
+import com.example.demo.model.SmsResponse;
+import com.example.demo.service.IdempotencyStore;
+
+class IdempotencyStoreTest {
+
+    private final AtomicLong ticker = new AtomicLong();
+
+    @Test
+    void testFirstRequestOwnsKeyAndRetryGetsItsResponse() {
+        IdempotencyStore store = store(new IdempotencyProperties(), null);
+        String key = store.key("client", "key-1");
+
+        assertEquals(IdempotencyStore.State.NEW, store.claim(key).state());
+        assertEquals(IdempotencyStore.State.IN_PROGRESS, store.claim(key).state());
+
+        store.complete(key, new IdempotencyStore.Outcome(200, new SmsResponse("SMS sent to +1234567890")));
+        IdempotencyStore.Claim retry = store.claim(key);
+
+        assertEquals(IdempotencyStore.State.DONE, retry.state());
+        assertEquals(200, retry.outcome().httpStatus());
+        assertEquals("SMS sent to +1234567890", retry.outcome().response().getResult());
+        assertEquals(1, store.replayedCount());
+    }
+
+    @Test
+    void testReleasedKeyCanBeUsedAgain() {
+        IdempotencyStore store = store(new IdempotencyProperties(), null);
+        String key = store.key("client", "key-1");
+
+        store.claim(key);
+        store.release(key);
+
+        assertEquals(IdempotencyStore.State.NEW, store.claim(key).state());
+    }
+
+    @Test
+    void testKeysExpireAfterTtl() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setTtl(Duration.ofMinutes(10));
+        IdempotencyStore store = store(properties, null);
+        String key = store.key("client", "key-1");
+        store.claim(key);
+        store.complete(key, new IdempotencyStore.Outcome(200, new SmsResponse("SMS sent to +1234567890")));
+
+        ticker.addAndGet(TimeUnit.MINUTES.toNanos(11));
+
+        assertEquals(IdempotencyStore.State.NEW, store.claim(key).state());
+    }
+
+    @Test
+    void testKeysAreScopedPerClient() {
+        IdempotencyStore store = store(new IdempotencyProperties(), null);
+
+        assertNotEquals(store.key("a:b", "c"), store.key("a", "b:c"));
+        assertNull(store.key("client", null));
+        assertNull(store.key("client", " "));
+    }
+
+    @Test
+    void testDisabled() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setEnabled(false);
+
+        assertNull(store(properties, null).key("client", "key-1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testResponseStoredOnAnotherReplicaIsReplayed() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setMode(IdempotencyProperties.Mode.REDIS);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), eq(""), any(Duration.class))).thenReturn(false);
+        when(values.get(anyString()))
+                .thenReturn("{\"httpStatus\":202,\"response\":{\"result\":\"Queued for delivery\","
+                        + "\"messageId\":\"msg-1\",\"status\":\"queued\"}}");
+        IdempotencyStore store = store(properties, redisTemplate);
+
+        IdempotencyStore.Claim claim = store.claim(store.key("client", "key-1"));
+
+        assertEquals(IdempotencyStore.State.DONE, claim.state());
+        assertEquals(202, claim.outcome().httpStatus());
+        assertEquals("msg-1", claim.outcome().response().getMessageId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRedisClaimAndCompletion() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setMode(IdempotencyProperties.Mode.REDIS);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), eq(""), any(Duration.class))).thenReturn(true);
+        IdempotencyStore store = store(properties, redisTemplate);
+        String key = store.key("client", "key-1");
+
+        assertEquals(IdempotencyStore.State.NEW, store.claim(key).state());
+        store.complete(key, new IdempotencyStore.Outcome(200, new SmsResponse("SMS sent to +1234567890")));
+
+        verify(values).setIfAbsent("idempotency:" + key, "", properties.getInProgressTtl());
+        verify(values).set(eq("idempotency:" + key), anyString(), eq(properties.getTtl()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRunningClaimsAreRenewedUntilCompleted() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setMode(IdempotencyProperties.Mode.REDIS);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), eq(""), any(Duration.class))).thenReturn(true);
+        IdempotencyStore store = store(properties, redisTemplate);
+        String key = store.key("client", "key-1");
+        store.claim(key);
+
+        store.renewClaims();
+        store.complete(key, new IdempotencyStore.Outcome(200, new SmsResponse("SMS sent to +1234567890")));
+        store.renewClaims();
+
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(List.of("idempotency:" + key)), eq(""),
+                eq(Long.toString(properties.getInProgressTtl().toMillis())));
+        store.shutdown();
+    }
+
+    @Test
+    void testRedisDownFallsBackToLocalKeys() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setMode(IdempotencyProperties.Mode.REDIS);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenThrow(new RedisConnectionFailureException("Connection refused"));
+        IdempotencyStore store = store(properties, redisTemplate);
+        String key = store.key("client", "key-1");
+
+        assertEquals(IdempotencyStore.State.NEW, store.claim(key).state());
+        assertEquals(IdempotencyStore.State.IN_PROGRESS, store.claim(key).state());
+    }
+
+    private IdempotencyStore store(IdempotencyProperties properties, StringRedisTemplate redisTemplate) {
+        return new IdempotencyStore(properties, redisTemplate, ticker::get);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.demo;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+/**
+ * Stand-in for a shared Redis server: every template handed out reads and writes the same
+ * keyspace, and pub/sub messages are delivered asynchronously like a real subscriber connection.
+ */
+class InMemoryRedis implements AutoCloseable {
+    private final Map<String, String> keyspace = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sets = new ConcurrentHashMap<>();
+    private final Map<String, List<MessageListener>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor();
+
+    @SuppressWarnings("unchecked")
+    StringRedisTemplate newTemplate() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+        SetOperations<String, String> setOps = mock(SetOperations.class);
+        when(template.opsForValue()).thenReturn(valueOps);
+        when(template.opsForSet()).thenReturn(setOps);
+        when(template.hasKey(anyString())).thenAnswer(inv -> keyspace.containsKey(inv.<String>getArgument(0)));
+        when(template.countExistingKeys(any())).thenAnswer(inv -> inv.<Collection<?>>getArgument(0).stream()
+                .filter(keyspace::containsKey)
+                .count());
+        when(template.delete(anyString())).thenAnswer(inv -> keyspace.remove(inv.<String>getArgument(0)) != null);
+        when(template.delete(any(Collection.class))).thenAnswer(inv -> inv.<Collection<?>>getArgument(0).stream()
+                .filter(key -> keyspace.remove(key) != null)
+                .count());
+        doAnswer(inv -> keyspace.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(valueOps).set(anyString(), anyString());
+        when(template.convertAndSend(anyString(), any()))
+                .thenAnswer(inv -> publish(inv.getArgument(0), String.valueOf(inv.<Object>getArgument(1))));
+        when(valueOps.multiGet(any())).thenAnswer(inv -> {
+            List<String> values = new ArrayList<>();
+            for (Object key : inv.<Collection<?>>getArgument(0)) {
+                values.add(keyspace.get(key));
+            }
+            return values;
+        });
+        // The cast picks isMember(K, Object); a bare any() would bind to the varargs overload
+        when(setOps.isMember(anyString(), (Object) any()))
+                .thenAnswer(inv -> set(inv.getArgument(0)).contains(inv.<Object>getArgument(1)));
+        when(setOps.add(anyString(), any(String[].class))).thenAnswer(inv -> sAdd(inv.getArguments()));
+        when(setOps.remove(anyString(), any(Object[].class))).thenAnswer(inv -> sRem(inv.getArguments()));
+        when(setOps.members(anyString())).thenAnswer(inv -> Set.copyOf(set(inv.getArgument(0))));
+        when(template.scan(any(ScanOptions.class))).thenAnswer(inv -> scan(inv.<ScanOptions>getArgument(0)));
+        when(template.executePipelined(any(RedisCallback.class)))
+                .thenAnswer(inv -> pipeline(inv.<RedisCallback<?>>getArgument(0)));
+        return template;
+    }
+
+    void subscribe(String channel, MessageListener listener) {
+        subscribers.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    Map<String, String> keyspace() {
+        return keyspace;
+    }
+
+    Map<String, Set<String>> sets() {
+        return sets;
+    }
+
+    private Set<String> set(String key) {
+        return sets.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet());
+    }
+
+    // Arguments as Mockito expands them: key followed by the varargs members
+    private long sAdd(Object[] args) {
+        long added = 0;
+        for (int i = 1; i < args.length; i++) {
+            added += set((String) args[0]).add((String) args[i]) ? 1 : 0;
+        }
+        return added;
+    }
+
+    private long sRem(Object[] args) {
+        long removed = 0;
+        for (int i = 1; i < args.length; i++) {
+            removed += set((String) args[0]).remove(args[i]) ? 1 : 0;
+        }
+        return removed;
+    }
+
+    // Supports the * and [...] glob forms the application uses; scans both strings and non-empty sets
+    @SuppressWarnings("unchecked")
+    private Cursor<String> scan(ScanOptions options) {
+        Pattern pattern = Pattern.compile(options.getPattern() == null ? ".*" : globToRegex(options.getPattern()));
+        List<String> matching = new ArrayList<>();
+        keyspace.keySet().stream().filter(k -> pattern.matcher(k).matches()).forEach(matching::add);
+        sets.entrySet().stream().filter(e -> !e.getValue().isEmpty() && pattern.matcher(e.getKey()).matches())
+                .forEach(e -> matching.add(e.getKey()));
+        Iterator<String> keys = matching.iterator();
+        Cursor<String> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(inv -> keys.hasNext());
+        when(cursor.next()).thenAnswer(inv -> keys.next());
+        return cursor;
+    }
+
+    // Commands run immediately and their replies are returned in order, like executePipelined
+    private List<Object> pipeline(RedisCallback<?> callback) {
+        List<Object> replies = new ArrayList<>();
+        StringRedisConnection connection = mock(StringRedisConnection.class);
+        when(connection.set(anyString(), anyString()))
+                .thenAnswer(inv -> reply(replies, keyspace.put(inv.getArgument(0), inv.getArgument(1)) == null));
+        when(connection.publish(anyString(), anyString()))
+                .thenAnswer(inv -> reply(replies, publish(inv.getArgument(0), inv.getArgument(1))));
+        when(connection.sAdd(anyString(), any(String[].class)))
+                .thenAnswer(inv -> reply(replies, sAdd(inv.getArguments())));
+        when(connection.sIsMember(anyString(), anyString()))
+                .thenAnswer(inv -> reply(replies, set(inv.getArgument(0)).contains(inv.<String>getArgument(1))));
+        callback.doInRedis(connection);
+        return replies;
+    }
+
+    // Pipelined commands return null to the caller; the reply shows up in the executePipelined list
+    private static Object reply(List<Object> replies, Object value) {
+        replies.add(value);
+        return null;
+    }
+
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        boolean inClass = false;
+        for (char c : glob.toCharArray()) {
+            if (inClass) {
+                regex.append(c == '+' ? "\\+" : String.valueOf(c));
+                inClass = c != ']';
+            } else if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else if (c == '[') {
+                regex.append('[');
+                inClass = true;
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+
+    private long publish(String channel, String body) {
+        List<MessageListener> listeners = subscribers.getOrDefault(channel, List.of());
+        DefaultMessage message = new DefaultMessage(channel.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+        for (MessageListener listener : listeners) {
+            delivery.execute(() -> listener.onMessage(message, null));
+        }
+        return listeners.size();
+    }
+
+    @Override
+    public void close() {
+        delivery.shutdownNow();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+
+import com.example.demo.config.KafkaProducerConfig;
+import com.example.demo.config.SmsKafkaProperties;
+import com.example.demo.model.SmsEvent;
+
+class KafkaProducerConfigTest {
+
+    @Test
+    void testProfileSettingsApplied() {
+        DefaultKafkaProducerFactory<String, SmsEvent> factory = customize(SmsKafkaProperties.ProducerProfile.HIGH_THROUGHPUT,
+                Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092"));
+
+        Map<String, Object> configs = factory.getConfigurationProperties();
+        assertEquals(20, configs.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(262_144, configs.get(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals("lz4", configs.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals("all", configs.get(ProducerConfig.ACKS_CONFIG));
+        assertEquals(true, configs.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+    }
+
+    @Test
+    void testExplicitProducerPropertiesWinOverProfile() {
+        DefaultKafkaProducerFactory<String, SmsEvent> factory = customize(SmsKafkaProperties.ProducerProfile.LOW_LATENCY,
+                Map.of(ProducerConfig.LINGER_MS_CONFIG, 5));
+
+        Map<String, Object> configs = factory.getConfigurationProperties();
+        assertEquals(5, configs.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals("none", configs.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+    }
+
+    @Test
+    void testDefaultProfileLeavesClientDefaults() {
+        DefaultKafkaProducerFactory<String, SmsEvent> factory = customize(SmsKafkaProperties.ProducerProfile.DEFAULT,
+                Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092"));
+
+        assertEquals(Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092"), factory.getConfigurationProperties());
+    }
+
+    private static DefaultKafkaProducerFactory<String, SmsEvent> customize(SmsKafkaProperties.ProducerProfile profile,
+            Map<String, Object> explicit) {
+        SmsKafkaProperties properties = new SmsKafkaProperties();
+        properties.setProducerProfile(profile);
+        DefaultKafkaProducerFactory<String, SmsEvent> factory = new DefaultKafkaProducerFactory<>(new HashMap<>(explicit));
+        new KafkaProducerConfig().producerProfileCustomizer(properties).customize(factory);
+        return factory;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.example.demo.config.BlacklistProperties;
+import com.example.demo.model.BulkJob;
+import com.example.demo.service.BlacklistBulkService;
+import com.example.demo.service.BlacklistCache;
+import com.example.demo.service.LongHashSet;
+import com.example.demo.service.PhoneNumberCodec;
+
+class PackedBlacklistTest {
+
+    private InMemoryRedis redis;
+    private StringRedisTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        redis = new InMemoryRedis();
+        template = redis.newTemplate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        redis.close();
+    }
+
+    @Test
+    void testCodecRoundTripKeepsPlusSign() {
+        assertEquals("+15551234567", PhoneNumberCodec.decode(PhoneNumberCodec.encode("+15551234567")));
+        assertEquals("15551234567", PhoneNumberCodec.decode(PhoneNumberCodec.encode("15551234567")));
+        assertEquals("+123456789012345", PhoneNumberCodec.decode(PhoneNumberCodec.encode("+123456789012345")));
+    }
+
+    @Test
+    void testCodecRejectsNonNumbers() {
+        assertEquals(PhoneNumberCodec.INVALID, PhoneNumberCodec.encode(""));
+        assertEquals(PhoneNumberCodec.INVALID, PhoneNumberCodec.encode("+"));
+        assertEquals(PhoneNumberCodec.INVALID, PhoneNumberCodec.encode("0123456789"));
+        assertEquals(PhoneNumberCodec.INVALID, PhoneNumberCodec.encode("+123-456-7890"));
+        assertEquals(PhoneNumberCodec.INVALID, PhoneNumberCodec.encode("+1234567890123456"));
+    }
+
+    @Test
+    void testLongHashSetAddRemoveAndGrow() {
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        for (long v = 1; v <= 10_000; v++) {
+            set.add(v * 7919);
+            expected.add(v * 7919);
+        }
+        for (long v = 1; v <= 10_000; v += 3) {
+            set.remove(v * 7919);
+            expected.remove(v * 7919);
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (long v = 1; v <= 10_000; v++) {
+            assertEquals(expected.contains(v * 7919), set.contains(v * 7919));
+        }
+        assertThrows(IllegalArgumentException.class, () -> set.add(0));
+    }
+
+    @Test
+    void testPackedStorageUsesBucketedSets() {
+        BlacklistCache cache = new BlacklistCache(template, properties(BlacklistProperties.Storage.PACKED));
+
+        cache.addToBlacklist("+15551234567");
+
+        assertTrue(redis.keyspace().isEmpty());
+        assertEquals(1, redis.sets().values().stream().mapToInt(Set::size).sum());
+        assertTrue(cache.isBlacklisted("+15551234567"));
+        // Same entry with or without the leading +
+        assertTrue(cache.isBlacklisted("15551234567"));
+
+        cache.removeFromBlacklist("+15551234567");
+        assertFalse(cache.isBlacklisted("+15551234567"));
+    }
+
+    @Test
+    void testMigratingStorageWritesBothLayoutsAndReadsEither() {
+        redis.keyspace().put("blacklist:+15550000001", "1");
+        BlacklistCache cache = new BlacklistCache(template, properties(BlacklistProperties.Storage.MIGRATING));
+
+        cache.addToBlacklist("+15550000002");
+
+        assertTrue(redis.keyspace().containsKey("blacklist:+15550000002"));
+        assertEquals(1, redis.sets().values().stream().mapToInt(Set::size).sum());
+        assertTrue(cache.isBlacklisted("+15550000001"));
+        assertTrue(cache.isBlacklisted("+15550000002"));
+    }
+
+    @Test
+    void testMigrationBackfillsPackedLayout() {
+        redis.keyspace().put("blacklist:+15550000001", "1");
+        redis.keyspace().put("blacklist:15550000002", "1");
+        BlacklistProperties properties = properties(BlacklistProperties.Storage.MIGRATING);
+        BlacklistBulkService bulkService = new BlacklistBulkService(new BlacklistCache(template, properties), template,
+                properties);
+        BulkJob job = new BulkJob("job-1", "migrate");
+
+        bulkService.migrateToPacked(job);
+        bulkService.shutdown();
+
+        assertEquals(2, job.getProcessed());
+        BlacklistCache packedOnly = new BlacklistCache(template, properties(BlacklistProperties.Storage.PACKED));
+        assertTrue(packedOnly.isBlacklisted("+15550000001"));
+        assertTrue(packedOnly.isBlacklisted("15550000002"));
+    }
+
+    @Test
+    void testLocalSetAnswersWithoutRedis() {
+        BlacklistProperties properties = properties(BlacklistProperties.Storage.PACKED);
+        properties.getLocalSet().setEnabled(true);
+        BlacklistCache cache = new BlacklistCache(template, properties);
+        cache.addAllToBlacklist(List.of("+15550000001", "+15550000002"));
+
+        cache.rebuildLocalSet();
+        cache.addToBlacklist("+15550000003");
+        cache.removeFromBlacklist("+15550000002");
+
+        assertTrue(cache.isBlacklisted("+15550000001"));
+        assertFalse(cache.isBlacklisted("+15550000002"));
+        assertTrue(cache.isBlacklisted("+15550000003"));
+        assertFalse(cache.isBlacklisted("+15559999999"));
+        verify(template.opsForSet(), never()).isMember(anyString(), any());
+    }
+
+    @Test
+    void testLocalSetPicksUpRemoteChanges() {
+        BlacklistProperties properties = properties(BlacklistProperties.Storage.PACKED);
+        properties.getLocalSet().setEnabled(true);
+        BlacklistCache nodeA = new BlacklistCache(template, properties);
+        BlacklistCache nodeB = new BlacklistCache(redis.newTemplate(), properties);
+        nodeB.rebuildLocalSet();
+
+        nodeA.addToBlacklist("+15550000001");
+        nodeB.onRemoteChange("+15550000001");
+
+        assertTrue(nodeB.isBlacklisted("+15550000001"));
+    }
+
+    private static BlacklistProperties properties(BlacklistProperties.Storage storage) {
+        BlacklistProperties properties = new BlacklistProperties();
+        properties.setStorage(storage);
+        properties.setPackedBuckets(16);
+        return properties;
+    }
+}
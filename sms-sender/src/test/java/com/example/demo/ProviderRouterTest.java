@@ -0,0 +1,291 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.ProviderProperties;
+import com.example.demo.service.ProviderRouter;
+import com.example.demo.service.SmsProvider;
+import com.example.demo.service.SmsProviderException;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+class ProviderRouterTest {
+
+    // Fake providers "take" time by advancing this clock instead of sleeping
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testSlowProviderGetsLessTraffic() {
+        FakeProvider fast = new FakeProvider("fast", 20);
+        FakeProvider slow = new FakeProvider("slow", 200);
+        ProviderRouter router = router(fast, slow);
+
+        sendMany(router, 2000);
+
+        assertTrue(fast.calls > 1600, "fast provider got " + fast.calls);
+        assertTrue(slow.calls >= 50, "slow provider still probed, got " + slow.calls);
+    }
+
+    @Test
+    void testFailingProviderLosesTrafficAndFailoverHidesErrors() {
+        FakeProvider flaky = new FakeProvider("flaky", 50);
+        flaky.errorRate = 0.5;
+        FakeProvider healthy = new FakeProvider("healthy", 50);
+        ProviderRouter router = router(flaky, healthy);
+
+        // Every message still goes out: a connection that failed is re-sent through the other provider
+        sendMany(router, 2000);
+
+        assertTrue(healthy.calls > 1600, "healthy provider got " + healthy.calls);
+    }
+
+    @Test
+    void testTrafficShiftsBackAfterRecovery() {
+        FakeProvider primary = new FakeProvider("primary", 20);
+        FakeProvider backup = new FakeProvider("backup", 60);
+        ProviderRouter router = router(primary, backup);
+
+        primary.latencyMillis = 500;
+        sendMany(router, 1000);
+        assertTrue(backup.calls > primary.calls);
+
+        primary.latencyMillis = 20;
+        primary.calls = 0;
+        backup.calls = 0;
+        sendMany(router, 2000);
+        assertTrue(primary.calls > backup.calls, "primary " + primary.calls + " vs backup " + backup.calls);
+    }
+
+    @Test
+    void testNonRetryableErrorIsNotFailedOver() {
+        FakeProvider rejecting = new FakeProvider("rejecting", 20);
+        rejecting.rejectAll = true;
+        FakeProvider other = new FakeProvider("other", 20);
+        ProviderRouter router = router(rejecting, other);
+
+        int failures = 0;
+        for (int i = 0; i < 200; i++) {
+            try {
+                router.sendSms("+1234567890", "Hello");
+            } catch (SmsProviderException e) {
+                assertEquals(400, e.getStatusCode());
+                failures++;
+            }
+        }
+
+        // Each rejection reached the caller and the other provider only got its own share
+        assertEquals(rejecting.calls, failures);
+        assertEquals(200, rejecting.calls + other.calls);
+    }
+
+    @Test
+    void testServerErrorIsNotFailedOver() {
+        FakeProvider failing = new FakeProvider("failing", 20);
+        failing.errorRate = 1;
+        failing.error = name -> new SmsProviderException(name, "unavailable", 503, true);
+        FakeProvider other = new FakeProvider("other", 20);
+        ProviderRouter router = router(failing, other);
+
+        int failures = sendCountingFailures(router, 200, e -> {
+            assertEquals(503, e.getStatusCode());
+            assertTrue(e.isRetryable());
+        });
+
+        // The request was written, so another provider could deliver it a second time
+        assertEquals(failing.calls, failures);
+        assertEquals(200, failing.calls + other.calls);
+    }
+
+    @Test
+    void testReadTimeoutIsNotFailedOverAndReportedUnknown() {
+        FakeProvider timingOut = new FakeProvider("timing-out", 20);
+        timingOut.errorRate = 1;
+        timingOut.error = name -> new SmsProviderException(name, "timed out", new HttpTimeoutException("request timed out"));
+        FakeProvider other = new FakeProvider("other", 20);
+        ProviderRouter router = router(timingOut, other);
+
+        int failures = sendCountingFailures(router, 200, e -> {
+            assertFalse(e.isRetryable());
+            assertTrue(e.isOutcomeUnknown());
+        });
+
+        assertEquals(timingOut.calls, failures);
+        assertEquals(200, timingOut.calls + other.calls);
+        // Still counts against the provider's health
+        assertTrue(router.scores().get(0) > router.scores().get(1));
+    }
+
+    @Test
+    void testFailoverDisabled() {
+        FakeProvider down = new FakeProvider("down", 20);
+        down.errorRate = 1;
+        FakeProvider up = new FakeProvider("up", 20);
+        ProviderProperties properties = new ProviderProperties();
+        properties.getRouting().setFailover(false);
+        ProviderRouter router = new ProviderRouter(List.of(down, up), properties, clock::get, new Random(1));
+
+        int failures = 0;
+        for (int i = 0; i < 200; i++) {
+            try {
+                router.sendSms("+1234567890", "Hello");
+            } catch (SmsProviderException e) {
+                failures++;
+            }
+        }
+
+        assertEquals(down.calls, failures);
+        assertTrue(failures > 0);
+    }
+
+    @Test
+    void testOpenCircuitFailsFast() {
+        FakeProvider down = new FakeProvider("down", 20);
+        down.errorRate = 1;
+        ProviderProperties properties = new ProviderProperties();
+        properties.getCircuitBreaker().setSlidingWindowSize(5);
+        properties.getCircuitBreaker().setMinimumNumberOfCalls(5);
+        ProviderRouter router = new ProviderRouter(List.of(down), properties, clock::get, new Random(1));
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(SmsProviderException.class, () -> router.sendSms("+1234567890", "Hello"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, router.circuitState("down"));
+
+        SmsProviderException e = assertThrows(SmsProviderException.class,
+                () -> router.sendSms("+1234567890", "Hello"));
+        assertTrue(e.isRetryable());
+        assertEquals(5, down.calls);
+    }
+
+    @Test
+    void testOpenCircuitTakesProviderOutOfRotation() {
+        FakeProvider down = new FakeProvider("down", 20);
+        down.errorRate = 1;
+        FakeProvider up = new FakeProvider("up", 50);
+        ProviderProperties properties = new ProviderProperties();
+        properties.getCircuitBreaker().setSlidingWindowSize(10);
+        properties.getCircuitBreaker().setMinimumNumberOfCalls(10);
+        ProviderRouter router = new ProviderRouter(List.of(down, up), properties, clock::get, new Random(42));
+
+        sendMany(router, 1000);
+
+        assertEquals(CircuitBreaker.State.OPEN, router.circuitState("down"));
+        assertEquals(10, down.calls);
+        assertEquals(1000, up.calls);
+    }
+
+    @Test
+    void testBulkheadRejectsCallsOverLimit() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SmsProvider hung = new SmsProvider() {
+            @Override
+            public String name() {
+                return "hung";
+            }
+
+            @Override
+            public void sendSms(String phoneNumber, String message) {
+                inFlight.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        ProviderProperties properties = new ProviderProperties();
+        properties.getBulkhead().setMaxConcurrentCalls(1);
+        ProviderRouter router = new ProviderRouter(List.of(hung), properties, clock::get, new Random(1));
+
+        Thread caller = new Thread(() -> router.sendSms("+1234567890", "first"));
+        caller.start();
+        assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+
+        SmsProviderException e = assertThrows(SmsProviderException.class,
+                () -> router.sendSms("+1234567890", "second"));
+        assertTrue(e.getMessage().contains("busy"));
+
+        release.countDown();
+        caller.join(5000);
+        router.sendSms("+1234567890", "third");
+    }
+
+    @Test
+    void testNoProviders() {
+        assertThrows(IllegalStateException.class,
+                () -> new ProviderRouter(List.of(), new ProviderProperties(), clock::get, new Random(1)));
+    }
+
+    private ProviderRouter router(SmsProvider... providers) {
+        return new ProviderRouter(List.of(providers), new ProviderProperties(), clock::get, new Random(42));
+    }
+
+    private static int sendCountingFailures(ProviderRouter router, int messages, Consumer<SmsProviderException> check) {
+        int failures = 0;
+        for (int i = 0; i < messages; i++) {
+            try {
+                router.sendSms("+1234567890", "Message " + i);
+            } catch (SmsProviderException e) {
+                check.accept(e);
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    private static void sendMany(ProviderRouter router, int messages) {
+        for (int i = 0; i < messages; i++) {
+            router.sendSms("+1234567890", "Message " + i);
+        }
+    }
+
+    private class FakeProvider implements SmsProvider {
+        private final String name;
+        private final Random random = new Random(7);
+        long latencyMillis;
+        double errorRate;
+        // What a failure (errorRate) looks like; by default the connection could not be set up
+        Function<String, SmsProviderException> error =
+                name -> new SmsProviderException(name, "unavailable", new ConnectException("Connection refused"));
+        boolean rejectAll;
+        int calls;
+
+        FakeProvider(String name, long latencyMillis) {
+            this.name = name;
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public void sendSms(String phoneNumber, String message) {
+            calls++;
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+            if (rejectAll) {
+                throw new SmsProviderException(name, "invalid number", 400, false);
+            }
+            if (random.nextDouble() < errorRate) {
+                throw error.apply(name);
+            }
+        }
+    }
+}
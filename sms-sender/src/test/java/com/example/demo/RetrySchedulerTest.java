@@ -0,0 +1,117 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.SendProperties;
+import com.example.demo.service.RetryScheduler;
+
+class RetrySchedulerTest {
+
+    private RetryScheduler scheduler;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testTasksRunAfterTheirDelayInDeadlineOrder() throws Exception {
+        scheduler = new RetryScheduler(properties(16, 1000));
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        long start = System.nanoTime();
+
+        // 300ms is more than one turn of a 16 x 10ms wheel
+        scheduler.schedule(TimeUnit.MILLISECONDS.toNanos(300), () -> { order.add(300); done.countDown(); });
+        scheduler.schedule(TimeUnit.MILLISECONDS.toNanos(50), () -> { order.add(50); done.countDown(); });
+        scheduler.schedule(TimeUnit.MILLISECONDS.toNanos(120), () -> { order.add(120); done.countDown(); });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+        assertEquals(List.of(50, 120, 300), order);
+    }
+
+    @Test
+    void testManyPendingRetries() throws Exception {
+        int retries = 200_000;
+        scheduler = new RetryScheduler(properties(512, retries));
+        CountDownLatch done = new CountDownLatch(retries);
+
+        for (int i = 0; i < retries; i++) {
+            scheduler.schedule(TimeUnit.MILLISECONDS.toNanos(i % 500), done::countDown);
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS), done.getCount() + " retries never ran");
+    }
+
+    @Test
+    void testPendingLimit() {
+        scheduler = new RetryScheduler(properties(16, 2));
+
+        assertTrue(scheduler.schedule(TimeUnit.HOURS.toNanos(1), () -> { }));
+        assertTrue(scheduler.schedule(TimeUnit.HOURS.toNanos(1), () -> { }));
+        assertFalse(scheduler.schedule(TimeUnit.HOURS.toNanos(1), () -> { }));
+        assertEquals(2, scheduler.pendingCount());
+    }
+
+    @Test
+    void testAttemptBudget() {
+        SendProperties properties = properties(16, 1000);
+        properties.getRetry().setMaxAttempts(3);
+        scheduler = new RetryScheduler(properties);
+
+        assertTrue(scheduler.scheduleRetry(1, () -> { }));
+        assertTrue(scheduler.scheduleRetry(2, () -> { }));
+        assertFalse(scheduler.scheduleRetry(3, () -> { }));
+    }
+
+    @Test
+    void testBackoffGrowsWithJitterAndCap() {
+        SendProperties properties = properties(16, 1000);
+        properties.getRetry().setInitialBackoff(Duration.ofSeconds(1));
+        properties.getRetry().setMaxBackoff(Duration.ofSeconds(10));
+        properties.getRetry().setJitter(0.5);
+        scheduler = new RetryScheduler(properties);
+
+        for (int i = 0; i < 1000; i++) {
+            assertBetween(scheduler.backoffNanos(1), 0.5, 1);
+            assertBetween(scheduler.backoffNanos(3), 2, 4);
+            assertBetween(scheduler.backoffNanos(10), 5, 10);
+        }
+    }
+
+    @Test
+    void testDisabled() {
+        SendProperties properties = properties(16, 1000);
+        properties.getRetry().setEnabled(false);
+        scheduler = new RetryScheduler(properties);
+
+        assertFalse(scheduler.scheduleRetry(1, () -> { }));
+    }
+
+    private static void assertBetween(long nanos, double minSeconds, double maxSeconds) {
+        double seconds = nanos / 1e9;
+        assertTrue(seconds >= minSeconds && seconds <= maxSeconds, seconds + "s");
+    }
+
+    private static SendProperties properties(int wheelSize, int maxPending) {
+        SendProperties properties = new SendProperties();
+        properties.getRetry().setTick(Duration.ofMillis(10));
+        properties.getRetry().setWheelSize(wheelSize);
+        properties.getRetry().setMaxPending(maxPending);
+        return properties;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.service.SendMetrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SendMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SendMetrics metrics = new SendMetrics(registry);
+
+    @Test
+    void testStageLatencyRecorded() {
+        metrics.record(SendMetrics.Stage.BLACKLIST, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(3));
+
+        Timer timer = registry.get("sms.send.stage").tag("stage", "blacklist").timer();
+        assertEquals(1, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.MILLISECONDS) >= 3);
+        assertEquals(0, registry.get("sms.send.stage").tag("stage", "provider").timer().count());
+    }
+
+    @Test
+    void testOutcomesCountedByStatus() {
+        metrics.outcome("successful");
+        metrics.outcome("successful");
+        metrics.outcome("blocked");
+        metrics.outcome("something-else");
+
+        assertEquals(2, registry.get("sms.send.outcome").tag("status", "successful").counter().count());
+        assertEquals(1, registry.get("sms.send.outcome").tag("status", "blocked").counter().count());
+        assertEquals(0, registry.get("sms.send.outcome").tag("status", "unsuccessful").counter().count());
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.example.demo.config.RateLimitProperties;
+import com.example.demo.service.RedisRateLimiter;
+import com.example.demo.service.SendRateLimiter;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+class SendRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testRecipientBurstThenThrottled() {
+        SendRateLimiter limiter = limiter(properties(3, Duration.ofSeconds(30)));
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(limiter.check("client-" + i, "+1234567890"));
+        }
+        SendRateLimiter.Throttle throttle = limiter.check("client-3", "+1234567890");
+
+        assertNotNull(throttle);
+        assertEquals(SendRateLimiter.Scope.RECIPIENT, throttle.scope());
+        // One token every 10s
+        assertEquals(10, throttle.retryAfterSeconds());
+        assertEquals(1, limiter.throttledCount(SendRateLimiter.Scope.RECIPIENT));
+        // Other recipients have their own bucket
+        assertNull(limiter.check("client-3", "+9876543210"));
+    }
+
+    @Test
+    void testTokensRefillOverTime() {
+        SendRateLimiter limiter = limiter(properties(3, Duration.ofSeconds(30)));
+        for (int i = 0; i < 3; i++) {
+            limiter.check("client", "+1234567890");
+        }
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        assertNotNull(limiter.check("client", "+1234567890"));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertNull(limiter.check("client", "+1234567890"));
+        assertNotNull(limiter.check("client", "+1234567890"));
+    }
+
+    @Test
+    void testClientLimitCheckedFirst() {
+        RateLimitProperties properties = properties(100, Duration.ofMinutes(1));
+        properties.getClient().setCapacity(2);
+        SendRateLimiter limiter = limiter(properties);
+
+        assertNull(limiter.check("client", "+1111111111"));
+        assertNull(limiter.check("client", "+2222222222"));
+        SendRateLimiter.Throttle throttle = limiter.check("client", "+3333333333");
+
+        assertEquals(SendRateLimiter.Scope.CLIENT, throttle.scope());
+        assertEquals(0, limiter.throttledCount(SendRateLimiter.Scope.RECIPIENT));
+        assertNull(limiter.check("other-client", "+3333333333"));
+    }
+
+    @Test
+    void testDisabled() {
+        RateLimitProperties properties = properties(1, Duration.ofMinutes(1));
+        properties.setEnabled(false);
+        SendRateLimiter limiter = limiter(properties);
+
+        for (int i = 0; i < 10; i++) {
+            assertNull(limiter.check("client", "+1234567890"));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSharedLimitFailsOpenWhenRedisIsDown() {
+        RateLimitProperties properties = properties(1, Duration.ofMinutes(1));
+        properties.setMode(RateLimitProperties.Mode.REDIS);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("Connection refused"));
+        SendRateLimiter limiter = new SendRateLimiter(properties, redisTemplate, clock::get);
+
+        assertNull(limiter.check("client", "+1234567890"));
+        // The local bucket still applies
+        assertNotNull(limiter.check("client", "+1234567890"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRedisOutageWarnsOncePerInterval() {
+        RateLimitProperties properties = properties(1000, Duration.ofMinutes(1));
+        properties.setMode(RateLimitProperties.Mode.REDIS);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("Connection refused"));
+        SendRateLimiter limiter = new SendRateLimiter(properties, redisTemplate, clock::get);
+        Logger logger = (Logger) LoggerFactory.getLogger(RedisRateLimiter.class);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        try {
+            for (int i = 0; i < 100; i++) {
+                limiter.check("client", "+1555" + (1_000_000 + i));
+            }
+        } finally {
+            logger.detachAppender(appender);
+        }
+
+        // One per shared bucket (client, recipient), not one per call
+        assertEquals(2, appender.list.stream().filter(event -> event.getLevel() == Level.WARN).count());
+    }
+
+    @Test
+    void testDisabledByDefault() {
+        SendRateLimiter limiter = limiter(new RateLimitProperties());
+
+        for (int i = 0; i < 1000; i++) {
+            assertNull(limiter.check("client", "+1234567890"));
+        }
+    }
+
+    private SendRateLimiter limiter(RateLimitProperties properties) {
+        return new SendRateLimiter(properties, null, clock::get);
+    }
+
+    private static RateLimitProperties properties(int recipientCapacity, Duration recipientPeriod) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setEnabled(true);
+        properties.getRecipient().setCapacity(recipientCapacity);
+        properties.getRecipient().setPeriod(recipientPeriod);
+        return properties;
+    }
+}
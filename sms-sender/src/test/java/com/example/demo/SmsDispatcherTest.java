@@ -0,0 +1,187 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.example.demo.config.SendProperties;
+import com.example.demo.model.SmsRequest;
+import com.example.demo.model.SmsResponse;
+import com.example.demo.service.BlacklistCache;
+import com.example.demo.service.RetryScheduler;
+import com.example.demo.service.SmsDispatcher;
+import com.example.demo.service.SmsEventProducer;
+import com.example.demo.service.SmsProvider;
+import com.example.demo.service.SmsProviderException;
+import com.example.demo.service.SmsService;
+
+class SmsDispatcherTest {
+
+    private final SmsService smsService = mock(SmsService.class);
+    private SmsDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void testSubmitReturnsQueuedThenFinalStatus() throws InterruptedException {
+        dispatcher = new SmsDispatcher(smsService, new SendProperties());
+        SmsResponse sent = new SmsResponse("SMS sent to +1234567890");
+        sent.setStatus("successful");
+        when(smsService.send(any(SmsRequest.class), anyString())).thenReturn(sent);
+
+        SmsResponse queued = dispatcher.submit(new SmsRequest("+1234567890", "Hello"));
+
+        assertEquals("queued", queued.getStatus());
+        assertNotNull(queued.getMessageId());
+        SmsResponse finalStatus = awaitStatus(queued.getMessageId(), "successful");
+        assertEquals(queued.getMessageId(), finalStatus.getMessageId());
+        verify(smsService).send(any(SmsRequest.class), anyString());
+    }
+
+    @Test
+    void testFullQueueRejects() throws InterruptedException {
+        SendProperties properties = new SendProperties();
+        properties.getAsync().setWorkers(1);
+        properties.getAsync().setQueueCapacity(1);
+        dispatcher = new SmsDispatcher(smsService, properties);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(smsService.send(any(SmsRequest.class), anyString())).thenAnswer(inv -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new SmsResponse("SMS sent");
+        });
+
+        dispatcher.submit(new SmsRequest("+1111111111", "Busy worker"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        dispatcher.submit(new SmsRequest("+2222222222", "Waits in queue"));
+
+        assertThrows(RejectedExecutionException.class,
+                () -> dispatcher.submit(new SmsRequest("+3333333333", "Rejected")));
+        release.countDown();
+    }
+
+    @Test
+    void testVirtualThreadWorkers() throws InterruptedException {
+        SendProperties properties = new SendProperties();
+        properties.getAsync().setVirtualThreads(true);
+        dispatcher = new SmsDispatcher(smsService, properties);
+        AtomicBoolean virtual = new AtomicBoolean();
+        when(smsService.send(any(SmsRequest.class), anyString())).thenAnswer(inv -> {
+            virtual.set(Thread.currentThread().isVirtual());
+            SmsResponse sent = new SmsResponse("SMS sent");
+            sent.setStatus("successful");
+            return sent;
+        });
+
+        SmsResponse queued = dispatcher.submit(new SmsRequest("+1234567890", "Hello"));
+
+        awaitStatus(queued.getMessageId(), "successful");
+        assertTrue(virtual.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRetryOutcomeReplacesRetryScheduledStatus() throws InterruptedException {
+        ArgumentCaptor<BiConsumer<String, SmsResponse>> listener = ArgumentCaptor.forClass(BiConsumer.class);
+        dispatcher = new SmsDispatcher(smsService, new SendProperties());
+        verify(smsService).setRetryListener(listener.capture());
+        SmsResponse retrying = new SmsResponse("Failed to send SMS: Provider returned HTTP 503");
+        retrying.setStatus("retry_scheduled");
+        when(smsService.send(any(SmsRequest.class), anyString())).thenReturn(retrying);
+
+        SmsResponse queued = dispatcher.submit(new SmsRequest("+1234567890", "Hello"));
+        awaitStatus(queued.getMessageId(), "retry_scheduled");
+        SmsResponse sent = new SmsResponse("SMS sent to +1234567890");
+        sent.setStatus("successful");
+        listener.getValue().accept(queued.getMessageId(), sent);
+
+        assertEquals("successful", dispatcher.getStatus(queued.getMessageId()).getStatus());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRetryOutcomeReportedBeforeFirstAttemptIsKept() throws InterruptedException {
+        ArgumentCaptor<BiConsumer<String, SmsResponse>> listener = ArgumentCaptor.forClass(BiConsumer.class);
+        dispatcher = new SmsDispatcher(smsService, new SendProperties());
+        verify(smsService).setRetryListener(listener.capture());
+        SmsResponse sent = new SmsResponse("SMS sent to +1234567890");
+        sent.setStatus("successful");
+        // The retry finishes while the first attempt is still returning retry_scheduled
+        when(smsService.send(any(SmsRequest.class), anyString())).thenAnswer(invocation -> {
+            listener.getValue().accept(invocation.getArgument(1), sent);
+            SmsResponse retrying = new SmsResponse("Failed to send SMS: Provider returned HTTP 503");
+            retrying.setStatus("retry_scheduled");
+            return retrying;
+        });
+
+        SmsResponse queued = dispatcher.submit(new SmsRequest("+1234567890", "Hello"));
+        awaitStatus(queued.getMessageId(), "successful");
+        dispatcher.shutdown();
+
+        assertEquals("successful", dispatcher.getStatus(queued.getMessageId()).getStatus());
+    }
+
+    @Test
+    void testRetryThatThrowsEndsUnsuccessful() throws InterruptedException {
+        BlacklistCache cache = mock(BlacklistCache.class);
+        SmsProvider provider = mock(SmsProvider.class);
+        RetryScheduler retries = mock(RetryScheduler.class);
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        when(cache.isBlacklisted(anyString())).thenReturn(false).thenThrow(new IllegalStateException("Redis unavailable"));
+        doThrow(new SmsProviderException("twilio", "Provider returned HTTP 503", 503, true))
+                .when(provider).sendSms(anyString(), anyString());
+        when(retries.scheduleRetry(eq(1), retry.capture())).thenReturn(true);
+        when(retries.maxAttempts()).thenReturn(3);
+        dispatcher = new SmsDispatcher(new SmsService(cache, mock(SmsEventProducer.class), provider, retries, null),
+                new SendProperties());
+
+        SmsResponse queued = dispatcher.submit(new SmsRequest("+1234567890", "Hello"));
+        awaitStatus(queued.getMessageId(), "retry_scheduled");
+        assertThrows(IllegalStateException.class, () -> retry.getValue().run());
+
+        // Not stuck at retry_scheduled
+        assertEquals("unsuccessful", dispatcher.getStatus(queued.getMessageId()).getStatus());
+    }
+
+    @Test
+    void testUnknownMessageId() {
+        dispatcher = new SmsDispatcher(smsService, new SendProperties());
+
+        assertNull(dispatcher.getStatus("does-not-exist"));
+    }
+
+    private SmsResponse awaitStatus(String messageId, String status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            SmsResponse current = dispatcher.getStatus(messageId);
+            if (current != null && status.equals(current.getStatus())) {
+                return current;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Message " + messageId + " never reached " + status);
+    }
+}
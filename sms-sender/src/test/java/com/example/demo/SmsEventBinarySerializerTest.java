@@ -0,0 +1,137 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import com.example.demo.model.SmsEvent;
+import com.example.demo.service.SmsEventBinaryDeserializer;
+import com.example.demo.service.SmsEventBinarySerializer;
+
+class SmsEventBinarySerializerTest {
+
+    private final SmsEventBinarySerializer serializer = new SmsEventBinarySerializer();
+    private final SmsEventBinaryDeserializer deserializer = new SmsEventBinaryDeserializer();
+
+    @Test
+    void testRoundTrip() {
+        SmsEvent event = new SmsEvent("+1234567890", "Your code is 123456", "successful");
+        event.setEventId("3f6c1b7e-8f1a-4d55-9a57-0b6d8c3e2f10");
+        event.setAttempt(3);
+        event.setSegments(2);
+
+        SmsEvent decoded = deserializer.deserialize("sms_events", serializer.serialize("sms_events", event));
+
+        assertEquals("+1234567890", decoded.getPhoneNumber());
+        assertEquals("Your code is 123456", decoded.getMessage());
+        assertEquals("successful", decoded.getStatus());
+        assertEquals("3f6c1b7e-8f1a-4d55-9a57-0b6d8c3e2f10", decoded.getEventId());
+        assertEquals(3, decoded.getAttempt());
+        assertEquals(2, decoded.getSegments());
+    }
+
+    @Test
+    void testReadsVersion1Records() {
+        byte[] current = serializer.serialize("sms_events", new SmsEvent("+1234567890", "Hello", "successful"));
+        // Version 1 is the same layout without the trailing attempt and segments varints
+        byte[] v1 = Arrays.copyOf(current, current.length - 2);
+        v1[1] = 1;
+
+        SmsEvent decoded = deserializer.deserialize("sms_events", v1);
+
+        assertEquals("successful", decoded.getStatus());
+        assertEquals(0, decoded.getAttempt());
+    }
+
+    @Test
+    void testReadsVersion2Records() {
+        SmsEvent event = new SmsEvent("+1234567890", "Hello", "successful");
+        event.setAttempt(2);
+        byte[] current = serializer.serialize("sms_events", event);
+        // Version 2 ends after the attempt varint
+        byte[] v2 = Arrays.copyOf(current, current.length - 1);
+        v2[1] = 2;
+
+        SmsEvent decoded = deserializer.deserialize("sms_events", v2);
+
+        assertEquals(2, decoded.getAttempt());
+        assertEquals(0, decoded.getSegments());
+    }
+
+    @Test
+    void testNullAndEmptyFieldsAreDistinct() {
+        SmsEvent event = new SmsEvent("+1234567890", "", null);
+
+        SmsEvent decoded = deserializer.deserialize("sms_events", serializer.serialize("sms_events", event));
+
+        assertEquals("", decoded.getMessage());
+        assertNull(decoded.getStatus());
+        assertNull(decoded.getEventId());
+    }
+
+    @Test
+    void testNonAsciiAndLongMessages() {
+        String message = "Grüße 日本 😀 " + "x".repeat(500);
+        SmsEvent event = new SmsEvent("+1234567890", message, "successful");
+
+        SmsEvent decoded = deserializer.deserialize("sms_events", serializer.serialize("sms_events", event));
+
+        assertEquals(message, decoded.getMessage());
+    }
+
+    @Test
+    void testSmallerThanJson() {
+        SmsEvent event = new SmsEvent("+1234567890", "Your code is 123456", "successful");
+        event.setEventId("3f6c1b7e-8f1a-4d55-9a57-0b6d8c3e2f10");
+        try (JsonSerializer<SmsEvent> json = new JsonSerializer<>()) {
+            json.setAddTypeInfo(false);
+
+            assertTrue(serializer.serialize("sms_events", event).length < json.serialize("sms_events", event).length);
+        }
+    }
+
+    @Test
+    void testReadsJsonRecords() {
+        SmsEvent event = new SmsEvent("+1234567890", "Hello", "blocked");
+        try (JsonSerializer<SmsEvent> json = new JsonSerializer<>()) {
+            SmsEvent decoded = deserializer.deserialize("sms_events", json.serialize("sms_events", event));
+
+            assertEquals("+1234567890", decoded.getPhoneNumber());
+            assertEquals("blocked", decoded.getStatus());
+        }
+    }
+
+    @Test
+    void testTrailingFieldsFromNewerVersionIgnored() {
+        byte[] current = serializer.serialize("sms_events", new SmsEvent("+1234567890", "Hello", "successful"));
+        byte[] newer = Arrays.copyOf(current, current.length + 2);
+        newer[1] = SmsEventBinarySerializer.VERSION + 1;
+        newer[current.length] = 1;
+        newer[current.length + 1] = 7;
+
+        assertEquals("Hello", deserializer.deserialize("sms_events", newer).getMessage());
+    }
+
+    @Test
+    void testTruncatedRecordRejected() {
+        byte[] bytes = serializer.serialize("sms_events", new SmsEvent("+1234567890", "Hello", "successful"));
+
+        assertThrows(SerializationException.class,
+                () -> deserializer.deserialize("sms_events", Arrays.copyOf(bytes, bytes.length - 3)));
+    }
+
+    @Test
+    void testNegativeStringLengthRejected() {
+        // Marker, version 3, then a phone number header of 0xFFFFFFFF (-1 as an int)
+        byte[] bytes = { SmsEventBinarySerializer.MARKER, 3, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F };
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("sms_events", bytes));
+    }
+}
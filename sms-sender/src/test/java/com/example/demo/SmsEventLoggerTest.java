@@ -0,0 +1,147 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.KeyValuePair;
+
+import com.example.demo.config.EventLogProperties;
+import com.example.demo.model.SmsEvent;
+import com.example.demo.service.SmsEventLogger;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+class SmsEventLoggerTest {
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final Logger logger = (Logger) LoggerFactory.getLogger("sms.events");
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void testPhoneNumberMaskedAndBodyLeftOut() {
+        SmsEventLogger eventLogger = new SmsEventLogger(properties(1.0));
+
+        eventLogger.log(event("id-1", "successful"));
+
+        Map<String, Object> fields = fields(appender.list.get(0));
+        assertEquals("+14*******23", fields.get("phoneNumber"));
+        assertEquals(18, fields.get("messageLength"));
+        assertEquals("successful", fields.get("status"));
+        assertFalse(fields.containsKey("message"));
+    }
+
+    @Test
+    void testUnredactedIncludesBody() {
+        EventLogProperties properties = properties(1.0);
+        properties.setRedact(false);
+
+        new SmsEventLogger(properties).log(event("id-1", "successful"));
+
+        Map<String, Object> fields = fields(appender.list.get(0));
+        assertEquals("+14155550123", fields.get("phoneNumber"));
+        assertEquals("Your code is 12345", fields.get("message"));
+    }
+
+    @Test
+    void testSamplingKeepsAllAttemptsOfAMessageTogether() {
+        SmsEventLogger eventLogger = new SmsEventLogger(properties(0.1));
+
+        int logged = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int before = appender.list.size();
+            eventLogger.log(event("id-" + i, "successful"));
+            boolean first = appender.list.size() > before;
+            eventLogger.log(event("id-" + i, "successful"));
+            assertEquals(first ? before + 2 : before, appender.list.size());
+            logged += first ? 1 : 0;
+        }
+        assertTrue(logged > 800 && logged < 1200, logged + " of 10000 sampled");
+    }
+
+    @Test
+    void testFailuresLoggedRegardlessOfSampling() {
+        SmsEventLogger eventLogger = new SmsEventLogger(properties(0));
+
+        eventLogger.log(event("id-1", "successful"));
+        eventLogger.log(event("id-2", "unsuccessful"));
+
+        assertEquals(1, appender.list.size());
+        assertEquals("unsuccessful", fields(appender.list.get(0)).get("status"));
+    }
+
+    @Test
+    void testBlockedAndThrottledAreSampled() {
+        SmsEventLogger eventLogger = new SmsEventLogger(properties(0));
+
+        eventLogger.log(event("id-1", "blocked"));
+        eventLogger.log(event("id-2", "throttled"));
+        eventLogger.log(event("id-3", "retry_scheduled"));
+
+        assertEquals(1, appender.list.size());
+        assertEquals("retry_scheduled", fields(appender.list.get(0)).get("status"));
+    }
+
+    @Test
+    void testEventsWithoutIdSampledByMessage() {
+        SmsEventLogger eventLogger = new SmsEventLogger(properties(0.1));
+
+        int logged = 0;
+        for (int i = 0; i < 10_000; i++) {
+            SmsEvent event = new SmsEvent("+1415555" + (1000 + i % 9000), "Your code is " + i, "successful");
+            int before = appender.list.size();
+            eventLogger.log(event);
+            boolean first = appender.list.size() > before;
+            eventLogger.log(event);
+            assertEquals(first ? before + 2 : before, appender.list.size());
+            logged += first ? 1 : 0;
+        }
+        assertTrue(logged > 800 && logged < 1200, logged + " of 10000 sampled");
+    }
+
+    @Test
+    void testMaskPhoneNumber() {
+        assertEquals("+44********00", SmsEventLogger.maskPhoneNumber("+447700900000"));
+        assertEquals("12******90", SmsEventLogger.maskPhoneNumber("1234567890"));
+        assertEquals("*****", SmsEventLogger.maskPhoneNumber("+1234"));
+    }
+
+    private static EventLogProperties properties(double sampleRate) {
+        EventLogProperties properties = new EventLogProperties();
+        properties.setSampleRate(sampleRate);
+        return properties;
+    }
+
+    private static SmsEvent event(String eventId, String status) {
+        SmsEvent event = new SmsEvent("+14155550123", "Your code is 12345", status);
+        event.setEventId(eventId);
+        return event;
+    }
+
+    private static Map<String, Object> fields(ILoggingEvent event) {
+        Map<String, Object> fields = new HashMap<>();
+        for (KeyValuePair pair : event.getKeyValuePairs()) {
+            fields.put(pair.key, pair.value);
+        }
+        return fields;
+    }
+}
@@ -1,21 +1,28 @@
 package com.example.demo;
 
+import com.example.demo.config.SmsKafkaProperties;
 import com.example.demo.model.SmsEvent;
+import com.example.demo.service.EventPublishException;
 import com.example.demo.service.SmsEventProducer;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 
-import java.io.ByteArrayOutputStream;
-import java.io.PrintStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -25,21 +32,16 @@ class SmsEventProducerTest {
     @Mock
     private KafkaTemplate<String, SmsEvent> kafkaTemplate;
 
-    @InjectMocks
     private SmsEventProducer smsEventProducer;
 
     @Captor
     private ArgumentCaptor<SmsEvent> smsEventCaptor;
 
-    private ByteArrayOutputStream outputStream;
-    private PrintStream originalOut;
-
     @BeforeEach
     void setUp() {
-        // Capture System.out for testing console output
-        outputStream = new ByteArrayOutputStream();
-        originalOut = System.out;
-        System.setOut(new PrintStream(outputStream));
+        lenient().when(kafkaTemplate.send(anyString(), anyString(), any(SmsEvent.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        smsEventProducer = new SmsEventProducer(kafkaTemplate, properties(10, 3, SmsKafkaProperties.BackPressure.BLOCK));
     }
 
     @Test
@@ -51,15 +53,14 @@ class SmsEventProducerTest {
         smsEventProducer.sendSmsEvent(smsEvent);
 
         // Assert
-        verify(kafkaTemplate, times(1)).send(eq("sms_events"), smsEventCaptor.capture());
+        verify(kafkaTemplate, times(1)).send(eq("sms_events"), anyString(), smsEventCaptor.capture());
 
         SmsEvent capturedEvent = smsEventCaptor.getValue();
         assertEquals("+1234567890", capturedEvent.getPhoneNumber());
         assertEquals("Test message", capturedEvent.getMessage());
         assertEquals("Sent", capturedEvent.getStatus());
-
-        String output = outputStream.toString();
-        assertTrue(output.contains("Produced SMS Event:"));
+        assertEquals(1, smsEventProducer.ackedCount());
+        assertEquals(0, smsEventProducer.failedCount());
     }
 
     @Test
@@ -71,7 +72,7 @@ class SmsEventProducerTest {
         smsEventProducer.sendSmsEvent(smsEvent);
 
         // Assert
-        verify(kafkaTemplate, times(1)).send(eq("sms_events"), smsEventCaptor.capture());
+        verify(kafkaTemplate, times(1)).send(eq("sms_events"), anyString(), smsEventCaptor.capture());
 
         SmsEvent capturedEvent = smsEventCaptor.getValue();
         assertEquals("+9876543210", capturedEvent.getPhoneNumber());
@@ -88,7 +89,7 @@ class SmsEventProducerTest {
         smsEventProducer.sendSmsEvent(smsEvent);
 
         // Assert
-        verify(kafkaTemplate, times(1)).send(eq("sms_events"), smsEventCaptor.capture());
+        verify(kafkaTemplate, times(1)).send(eq("sms_events"), anyString(), smsEventCaptor.capture());
 
         SmsEvent capturedEvent = smsEventCaptor.getValue();
         assertEquals("+1111111111", capturedEvent.getPhoneNumber());
@@ -106,7 +107,7 @@ class SmsEventProducerTest {
         smsEventProducer.sendSmsEvent(smsEvent);
 
         // Assert
-        verify(kafkaTemplate, times(1)).send(eq("sms_events"), smsEventCaptor.capture());
+        verify(kafkaTemplate, times(1)).send(eq("sms_events"), anyString(), smsEventCaptor.capture());
 
         SmsEvent capturedEvent = smsEventCaptor.getValue();
         assertEquals("evt-12345", capturedEvent.getEventId());
@@ -125,7 +126,7 @@ class SmsEventProducerTest {
         smsEventProducer.sendSmsEvent(event3);
 
         // Assert
-        verify(kafkaTemplate, times(3)).send(eq("sms_events"), any(SmsEvent.class));
+        verify(kafkaTemplate, times(3)).send(eq("sms_events"), anyString(), any(SmsEvent.class));
     }
 
     @Test
@@ -137,7 +138,7 @@ class SmsEventProducerTest {
         smsEventProducer.sendSmsEvent(smsEvent);
 
         // Assert
-        verify(kafkaTemplate).send(eq("sms_events"), any(SmsEvent.class));
+        verify(kafkaTemplate).send(eq("sms_events"), anyString(), any(SmsEvent.class));
     }
 
     @Test
@@ -149,9 +150,251 @@ class SmsEventProducerTest {
         assertNotNull(producer);
     }
 
-    @org.junit.jupiter.api.AfterEach
+    @Test
+    void testEventKeyedByPhoneNumber() {
+        smsEventProducer.sendSmsEvent(new SmsEvent("+1234567890", "Test", "Sent"));
+
+        verify(kafkaTemplate).send(eq("sms_events"), eq("+1234567890"), any(SmsEvent.class));
+    }
+
+    @Test
+    void testHashedKeyIsStablePerNumber() {
+        SmsKafkaProperties properties = properties(10, 3, SmsKafkaProperties.BackPressure.BLOCK);
+        properties.setKeyStrategy(SmsKafkaProperties.KeyStrategy.HASH);
+        properties.setKeySalt("pepper");
+        smsEventProducer = new SmsEventProducer(kafkaTemplate, properties);
+        ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+
+        smsEventProducer.sendSmsEvent(new SmsEvent("+1234567890", "First", "Sent"));
+        smsEventProducer.sendSmsEvent(new SmsEvent("+1234567890", "Second", "Sent"));
+        smsEventProducer.sendSmsEvent(new SmsEvent("+1987654321", "Other", "Sent"));
+
+        verify(kafkaTemplate, times(3)).send(eq("sms_events"), keys.capture(), any(SmsEvent.class));
+        List<String> captured = keys.getAllValues();
+        assertEquals(captured.get(0), captured.get(1));
+        assertNotEquals(captured.get(0), captured.get(2));
+        assertFalse(captured.get(0).contains("1234567890"));
+    }
+
+    @Test
+    void testHotNumberSentToItsPartition() {
+        SmsKafkaProperties properties = properties(10, 3, SmsKafkaProperties.BackPressure.BLOCK);
+        properties.getPartitioner().setEnabled(true);
+        properties.getPartitioner().setHotNumbers(List.of("+15550000001", "+15550000002"));
+        smsEventProducer = new SmsEventProducer(kafkaTemplate, properties);
+        when(kafkaTemplate.partitionsFor("sms_events")).thenReturn(List.of(
+                new PartitionInfo("sms_events", 0, null, null, null), new PartitionInfo("sms_events", 1, null, null, null)));
+        when(kafkaTemplate.send(anyString(), anyInt(), anyString(), any(SmsEvent.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        smsEventProducer.sendSmsEvent(new SmsEvent("+15550000002", "Hot", "Sent"));
+        smsEventProducer.sendSmsEvent(new SmsEvent("+1234567890", "Other", "Sent"));
+
+        verify(kafkaTemplate).send(eq("sms_events"), eq(1), eq("+15550000002"), any(SmsEvent.class));
+        verify(kafkaTemplate).send(eq("sms_events"), eq("+1234567890"), any(SmsEvent.class));
+    }
+
+    @Test
+    void testFailedSendIsBufferedAndRetried() {
+        when(kafkaTemplate.send(anyString(), anyString(), any(SmsEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        smsEventProducer.sendSmsEvent(new SmsEvent("+1234567890", "Test", "Sent"));
+
+        assertEquals(1, smsEventProducer.failedCount());
+        assertEquals(1, smsEventProducer.retryBufferSize());
+
+        smsEventProducer.retryFailed();
+
+        verify(kafkaTemplate, times(2)).send(eq("sms_events"), anyString(), any(SmsEvent.class));
+        assertEquals(1, smsEventProducer.ackedCount());
+        assertEquals(0, smsEventProducer.retryBufferSize());
+    }
+
+    @Test
+    void testSynchronousSendErrorIsBuffered() {
+        when(kafkaTemplate.send(anyString(), anyString(), any(SmsEvent.class))).thenThrow(new RuntimeException("max.block.ms"));
+
+        smsEventProducer.sendSmsEvent(new SmsEvent("+1234567890", "Test", "Sent"));
+
+        assertEquals(1, smsEventProducer.failedCount());
+        assertEquals(1, smsEventProducer.retryBufferSize());
+    }
+
+    @Test
+    void testEventDroppedAfterMaxAttempts() {
+        when(kafkaTemplate.send(anyString(), anyString(), any(SmsEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+
+        smsEventProducer.sendSmsEvent(new SmsEvent("+1234567890", "Test", "Sent"));
+        smsEventProducer.retryFailed();
+        smsEventProducer.retryFailed();
+
+        verify(kafkaTemplate, times(3)).send(eq("sms_events"), anyString(), any(SmsEvent.class));
+        assertEquals(3, smsEventProducer.failedCount());
+        assertEquals(1, smsEventProducer.droppedCount());
+        assertEquals(0, smsEventProducer.retryBufferSize());
+    }
+
+    @Test
+    void testFailPolicyRejectsWhenBufferFull() {
+        smsEventProducer = new SmsEventProducer(kafkaTemplate, properties(1, 3, SmsKafkaProperties.BackPressure.FAIL));
+        when(kafkaTemplate.send(anyString(), anyString(), any(SmsEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+        smsEventProducer.sendSmsEvent(new SmsEvent("+1111111111", "Message 1", "Sent"));
+
+        assertThrows(EventPublishException.class,
+                () -> smsEventProducer.sendSmsEvent(new SmsEvent("+2222222222", "Message 2", "Sent")));
+        assertThrows(EventPublishException.class,
+                () -> smsEventProducer.sendSmsEvents(List.of(new SmsEvent("+3333333333", "Message 3", "Sent"))));
+    }
+
+    @Test
+    void testNoWaitSendIgnoresBackPressure() {
+        smsEventProducer = new SmsEventProducer(kafkaTemplate, properties(1, 3, SmsKafkaProperties.BackPressure.FAIL));
+        when(kafkaTemplate.send(anyString(), anyString(), any(SmsEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+        smsEventProducer.sendSmsEvent(new SmsEvent("+1111111111", "Message 1", "Sent"));
+
+        assertThrows(EventPublishException.class, () -> smsEventProducer.awaitCapacity());
+        smsEventProducer.sendSmsEventNoWait(new SmsEvent("+2222222222", "Message 2", "Sent"));
+
+        // The delivered event is buffered over capacity; neither it nor the older one is dropped
+        assertEquals(0, smsEventProducer.droppedCount());
+        assertEquals(2, smsEventProducer.retryBufferSize());
+    }
+
+    @Test
+    void testBlockPolicyBuffersFailuresOfSendsInFlightOverCapacity() {
+        smsEventProducer = new SmsEventProducer(kafkaTemplate, properties(1, 3, SmsKafkaProperties.BackPressure.BLOCK));
+        CompletableFuture<SendResult<String, SmsEvent>> first = new CompletableFuture<>();
+        CompletableFuture<SendResult<String, SmsEvent>> second = new CompletableFuture<>();
+        when(kafkaTemplate.send(anyString(), anyString(), any(SmsEvent.class)))
+                .thenReturn(first)
+                .thenReturn(second)
+                .thenReturn(CompletableFuture.completedFuture(null));
+        // Both admitted while the buffer is empty, both fail afterwards
+        smsEventProducer.sendSmsEvent(event("+1111111111", "evt-1"));
+        smsEventProducer.sendSmsEvent(event("+2222222222", "evt-2"));
+        first.completeExceptionally(new RuntimeException("broker down"));
+        second.completeExceptionally(new RuntimeException("broker down"));
+
+        assertEquals(0, smsEventProducer.droppedCount());
+        assertEquals(2, smsEventProducer.retryBufferSize());
+
+        smsEventProducer.retryFailed();
+
+        verify(kafkaTemplate, times(4)).send(eq("sms_events"), anyString(), smsEventCaptor.capture());
+        assertEquals(List.of("evt-1", "evt-2"),
+                smsEventCaptor.getAllValues().stream().skip(2).map(SmsEvent::getEventId).toList());
+        assertEquals(0, smsEventProducer.retryBufferSize());
+    }
+
+    @Test
+    void testBlockPolicyTimesOutWhenBufferStaysFull() {
+        SmsKafkaProperties properties = properties(1, 3, SmsKafkaProperties.BackPressure.BLOCK);
+        properties.setBlockTimeout(Duration.ofMillis(50));
+        smsEventProducer = new SmsEventProducer(kafkaTemplate, properties);
+        when(kafkaTemplate.send(anyString(), anyString(), any(SmsEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+        smsEventProducer.sendSmsEvent(new SmsEvent("+1111111111", "Message 1", "Sent"));
+
+        assertThrows(EventPublishException.class,
+                () -> smsEventProducer.sendSmsEvent(new SmsEvent("+2222222222", "Message 2", "Sent")));
+    }
+
+    @Test
+    void testDropOldestPolicyKeepsNewestEvents() {
+        smsEventProducer = new SmsEventProducer(kafkaTemplate, properties(2, 3, SmsKafkaProperties.BackPressure.DROP_OLDEST));
+        when(kafkaTemplate.send(anyString(), anyString(), any(SmsEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+
+        for (int i = 1; i <= 3; i++) {
+            SmsEvent event = new SmsEvent("+111111111" + i, "Message " + i, "Sent");
+            event.setEventId("evt-" + i);
+            smsEventProducer.sendSmsEvent(event);
+        }
+
+        assertEquals(2, smsEventProducer.retryBufferSize());
+        assertEquals(1, smsEventProducer.droppedCount());
+
+        reset(kafkaTemplate);
+        when(kafkaTemplate.send(anyString(), anyString(), any(SmsEvent.class))).thenReturn(CompletableFuture.completedFuture(null));
+        smsEventProducer.retryFailed();
+
+        verify(kafkaTemplate, times(2)).send(eq("sms_events"), anyString(), smsEventCaptor.capture());
+        assertEquals(List.of("evt-2", "evt-3"), smsEventCaptor.getAllValues().stream().map(SmsEvent::getEventId).toList());
+    }
+
+    @Test
+    void testLaterEventForSameRecipientHeldUntilRetrySucceeds() {
+        when(kafkaTemplate.send(anyString(), anyString(), any(SmsEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        SmsEvent first = event("+1111111111", "evt-1");
+        SmsEvent second = event("+1111111111", "evt-2");
+        SmsEvent other = event("+2222222222", "evt-3");
+
+        smsEventProducer.sendSmsEvent(first);
+        smsEventProducer.sendSmsEvent(second);
+        smsEventProducer.sendSmsEvent(other);
+
+        // The second event waits behind the failed first one; other recipients are not held up
+        verify(kafkaTemplate, times(2)).send(eq("sms_events"), anyString(), smsEventCaptor.capture());
+        assertEquals(List.of("evt-1", "evt-3"), smsEventCaptor.getAllValues().stream().map(SmsEvent::getEventId).toList());
+        assertEquals(2, smsEventProducer.retryBufferSize());
+
+        smsEventProducer.retryFailed();
+
+        verify(kafkaTemplate, timeout(1000).times(4)).send(eq("sms_events"), anyString(), smsEventCaptor.capture());
+        assertEquals(List.of("evt-1", "evt-3", "evt-1", "evt-2"),
+                smsEventCaptor.getAllValues().stream().skip(2).map(SmsEvent::getEventId).toList());
+        assertEquals(3, smsEventProducer.ackedCount());
+        assertEquals(0, smsEventProducer.retryBufferSize());
+    }
+
+    @Test
+    void testHeldEventsStayBehindARetryThatFailsAgain() {
+        when(kafkaTemplate.send(anyString(), anyString(), any(SmsEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        smsEventProducer.sendSmsEvent(event("+1111111111", "evt-1"));
+        smsEventProducer.sendSmsEvent(event("+1111111111", "evt-2"));
+
+        smsEventProducer.retryFailed();
+
+        verify(kafkaTemplate, times(2)).send(eq("sms_events"), anyString(), smsEventCaptor.capture());
+        assertEquals(List.of("evt-1", "evt-1"), smsEventCaptor.getAllValues().stream().map(SmsEvent::getEventId).toList());
+        assertEquals(2, smsEventProducer.retryBufferSize());
+
+        smsEventProducer.retryFailed();
+
+        verify(kafkaTemplate, timeout(1000).times(4)).send(eq("sms_events"), anyString(), smsEventCaptor.capture());
+        assertEquals(List.of("evt-1", "evt-1", "evt-1", "evt-2"),
+                smsEventCaptor.getAllValues().stream().skip(2).map(SmsEvent::getEventId).toList());
+        assertEquals(0, smsEventProducer.retryBufferSize());
+    }
+
+    @AfterEach
     void tearDown() {
-        // Restore original System.out
-        System.setOut(originalOut);
+        smsEventProducer.shutdown();
+    }
+
+    private static SmsEvent event(String phoneNumber, String eventId) {
+        SmsEvent event = new SmsEvent(phoneNumber, "Message", "Sent");
+        event.setEventId(eventId);
+        return event;
+    }
+
+    private static SmsKafkaProperties properties(int capacity, int maxAttempts, SmsKafkaProperties.BackPressure backPressure) {
+        SmsKafkaProperties properties = new SmsKafkaProperties();
+        properties.getRetryBuffer().setCapacity(capacity);
+        properties.getRetryBuffer().setMaxAttempts(maxAttempts);
+        // Tests drive retries through retryFailed()
+        properties.getRetryBuffer().setInterval(Duration.ofHours(1));
+        properties.setBackPressure(backPressure);
+        return properties;
     }
 }
@@ -0,0 +1,66 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.service.SmsSegmenter;
+
+class SmsSegmenterTest {
+
+    @Test
+    void testGsm7SingleAndMultipart() {
+        assertEquals(SmsSegmenter.Encoding.GSM7, SmsSegmenter.encoding("Your code is 123456 @ £5 Ä"));
+        assertEquals(1, SmsSegmenter.segments(""));
+        assertEquals(1, SmsSegmenter.segments("a".repeat(160)));
+        assertEquals(2, SmsSegmenter.segments("a".repeat(161)));
+        assertEquals(2, SmsSegmenter.segments("a".repeat(306)));
+        assertEquals(3, SmsSegmenter.segments("a".repeat(307)));
+    }
+
+    @Test
+    void testExtensionCharactersTakeTwoSeptets() {
+        assertEquals(SmsSegmenter.Encoding.GSM7, SmsSegmenter.encoding("{[~]}|^\\€"));
+        assertEquals(1, SmsSegmenter.segments("€".repeat(80)));
+        assertEquals(2, SmsSegmenter.segments("€".repeat(81)));
+    }
+
+    @Test
+    void testEscapeIsNotSplitFromItsCharacter() {
+        // 152 septets, then a two-septet '{' that would straddle the 153 boundary
+        List<String> parts = SmsSegmenter.parts("a".repeat(152) + "{" + "b".repeat(10));
+
+        assertEquals(List.of("a".repeat(152), "{" + "b".repeat(10)), parts);
+    }
+
+    @Test
+    void testUcs2SingleAndMultipart() {
+        assertEquals(SmsSegmenter.Encoding.UCS2, SmsSegmenter.encoding("Ваш код 123456"));
+        assertEquals(1, SmsSegmenter.segments("ж".repeat(70)));
+        assertEquals(2, SmsSegmenter.segments("ж".repeat(71)));
+        assertEquals(3, SmsSegmenter.segments("ж".repeat(135)));
+        // One character outside GSM-7 turns the whole body into UCS-2
+        assertEquals(3, SmsSegmenter.segments("a".repeat(150) + "ç"));
+    }
+
+    @Test
+    void testSurrogatePairIsNotSplit() {
+        String emoji = "😀";
+        List<String> parts = SmsSegmenter.parts("a".repeat(66) + emoji + "b".repeat(10));
+
+        assertEquals(List.of("a".repeat(66), emoji + "b".repeat(10)), parts);
+    }
+
+    @Test
+    void testPartsRebuildTheMessage() {
+        String message = "Hello {name}, your order #4711 ships today. Track it at https://example.com/t/4711 "
+                .repeat(5);
+        List<String> parts = SmsSegmenter.parts(message);
+
+        assertEquals(SmsSegmenter.segments(message), parts.size());
+        assertEquals(message, String.join("", parts));
+        assertEquals(List.of("Hi"), SmsSegmenter.parts("Hi"));
+    }
+}
@@ -1,24 +1,46 @@
 package com.example.demo;
 
+import com.example.demo.config.IdempotencyProperties;
+import com.example.demo.config.RateLimitProperties;
+import com.example.demo.config.SendProperties;
 import com.example.demo.model.SmsRequest;
+import com.example.demo.model.SmsResponse;
+import com.example.demo.service.EventPublishException;
+import com.example.demo.service.IdempotencyStore;
+import com.example.demo.service.SendMetrics;
+import com.example.demo.service.SendRateLimiter;
+import com.example.demo.service.SmsDispatcher;
 import com.example.demo.service.SmsService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import com.example.demo.controller.SmsControllerV1;
 
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.never;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(SmsControllerV1.class)
+@EnableConfigurationProperties({ SendProperties.class, RateLimitProperties.class, IdempotencyProperties.class })
+@TestPropertySource(properties = "sms.rate-limit.trusted-proxies=10.0.0.1")
 class SmsSenderApplicationTests {
 
 	@Autowired
@@ -27,6 +49,18 @@ class SmsSenderApplicationTests {
 	@MockBean
 	private SmsService smsService;
 
+	@MockBean
+	private SmsDispatcher smsDispatcher;
+
+	@MockBean
+	private SendRateLimiter rateLimiter;
+
+	@MockBean
+	private IdempotencyStore idempotency;
+
+	@MockBean
+	private SendMetrics metrics;
+
 	@Test
 	void contextLoads() {
 	}
@@ -56,6 +90,30 @@ class SmsSenderApplicationTests {
 		verify(smsService, times(1)).sendSms(any(SmsRequest.class));
 	}
 
+	@Test
+	void testPhoneNumberWithoutPlusIsCanonicalized() throws Exception {
+		when(smsService.sendSms(any(SmsRequest.class)))
+				.thenReturn("SMS sent to +1234567890");
+
+		mockMvc.perform(post("/v1/sms/send")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"phoneNumber\": \"1234567890\", \"message\": \"Hello World\"}"))
+				.andExpect(status().isOk());
+
+		verify(smsService, times(1)).sendSms(argThat(request -> request.getPhoneNumber().equals("+1234567890")));
+	}
+
+	@Test
+	void testEventBackPressureReturnsServiceUnavailable() throws Exception {
+		when(smsService.sendSms(any(SmsRequest.class)))
+				.thenThrow(new EventPublishException("SMS event retry buffer is full"));
+
+		mockMvc.perform(post("/v1/sms/send")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"phoneNumber\": \"+1234567890\", \"message\": \"Hello World\"}"))
+				.andExpect(status().isServiceUnavailable());
+	}
+
 	@Test
 	void testInvalidPhoneNumber_StartsWithZero() throws Exception {
 		String invalidRequest = """
@@ -235,4 +293,306 @@ class SmsSenderApplicationTests {
 				.andExpect(status().isOk())
 				.andExpect(jsonPath("$.result").value("SMS sent to +9876543210"));
 	}
+
+	@Test
+	void testBatch_PerItemResultsWithInvalidItemsInPlace() throws Exception {
+		SmsResponse sent = new SmsResponse("SMS sent to +1234567890");
+		sent.setStatus("successful");
+		SmsResponse blocked = new SmsResponse("Failed: Phone number is blacklisted");
+		blocked.setStatus("blocked");
+		when(smsService.sendBatch(anyList())).thenReturn(List.of(sent, blocked));
+
+		String request = """
+					[
+						{ "phoneNumber": "+1234567890", "message": "Hello" },
+						{ "phoneNumber": "0123456789", "message": "Hello" },
+						{ "phoneNumber": "+9876543210", "message": "Hello" }
+					]
+				""";
+
+		mockMvc.perform(post("/v1/sms/send/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(request))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(3))
+				.andExpect(jsonPath("$[0].status").value("successful"))
+				.andExpect(jsonPath("$[1].status").value("invalid"))
+				.andExpect(jsonPath("$[1].result").value("Invalid phone number format"))
+				.andExpect(jsonPath("$[2].status").value("blocked"));
+
+		verify(smsService, times(1)).sendBatch(anyList());
+	}
+
+	@Test
+	void testBatch_EmptyBatchRejected() throws Exception {
+		mockMvc.perform(post("/v1/sms/send/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[]"))
+				.andExpect(status().isBadRequest());
+
+		verify(smsService, never()).sendBatch(anyList());
+	}
+
+	@Test
+	void testBatch_OverMaxSizeRejected() throws Exception {
+		StringBuilder request = new StringBuilder("[");
+		for (int i = 0; i < 1001; i++) {
+			request.append(i == 0 ? "" : ",").append("{\"phoneNumber\": \"+1234567890\", \"message\": \"Hi\"}");
+		}
+		request.append("]");
+
+		mockMvc.perform(post("/v1/sms/send/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(request.toString()))
+				.andExpect(status().isBadRequest());
+
+		verify(smsService, never()).sendBatch(anyList());
+	}
+
+	@Test
+	void testAsync_ReturnsAcceptedWithMessageId() throws Exception {
+		SmsResponse queued = new SmsResponse("Queued for delivery");
+		queued.setMessageId("msg-1");
+		queued.setStatus("queued");
+		when(smsDispatcher.submit(any(SmsRequest.class))).thenReturn(queued);
+
+		String request = """
+					{
+						"phoneNumber": "+1234567890",
+						"message": "Hello World"
+					}
+				""";
+
+		mockMvc.perform(post("/v1/sms/send/async")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(request))
+				.andExpect(status().isAccepted())
+				.andExpect(header().string("Location", "/v1/sms/send/msg-1"))
+				.andExpect(jsonPath("$.messageId").value("msg-1"))
+				.andExpect(jsonPath("$.status").value("queued"));
+
+		verify(smsService, never()).sendSms(any(SmsRequest.class));
+	}
+
+	@Test
+	void testAsync_QueueFullReturnsServiceUnavailable() throws Exception {
+		when(smsDispatcher.submit(any(SmsRequest.class))).thenThrow(new RejectedExecutionException());
+
+		mockMvc.perform(post("/v1/sms/send/async")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"phoneNumber\": \"+1234567890\", \"message\": \"Hello\"}"))
+				.andExpect(status().isServiceUnavailable());
+	}
+
+	@Test
+	void testAsync_InvalidRequestNotQueued() throws Exception {
+		mockMvc.perform(post("/v1/sms/send/async")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"phoneNumber\": \"0123456789\", \"message\": \"Hello\"}"))
+				.andExpect(status().isBadRequest());
+
+		verify(smsDispatcher, never()).submit(any(SmsRequest.class));
+	}
+
+	@Test
+	void testStatusLookup() throws Exception {
+		SmsResponse done = new SmsResponse("SMS sent to +1234567890");
+		done.setMessageId("msg-1");
+		done.setStatus("successful");
+		when(smsDispatcher.getStatus("msg-1")).thenReturn(done);
+
+		mockMvc.perform(get("/v1/sms/send/msg-1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.status").value("successful"));
+
+		mockMvc.perform(get("/v1/sms/send/unknown"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void testThrottledSendReturnsTooManyRequests() throws Exception {
+		when(rateLimiter.check("client-1", "+1234567890"))
+				.thenReturn(new SendRateLimiter.Throttle(SendRateLimiter.Scope.RECIPIENT, 1_500_000_000L));
+		SmsResponse throttled = new SmsResponse("Rate limit exceeded for this recipient");
+		throttled.setStatus("throttled");
+		when(smsService.throttled(any(SmsRequest.class), isNull(), eq("Rate limit exceeded for this recipient")))
+				.thenReturn(throttled);
+
+		mockMvc.perform(post("/v1/sms/send")
+				.with(fromAddress("10.0.0.1"))
+				.header("X-Client-Id", "client-1")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"phoneNumber\": \"+1234567890\", \"message\": \"Hello\"}"))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string("Retry-After", "2"))
+				.andExpect(jsonPath("$.status").value("throttled"));
+
+		verify(smsService, never()).sendSms(any(SmsRequest.class));
+	}
+
+	@Test
+	void testBatch_ThrottledItemsReportedInPlace() throws Exception {
+		when(rateLimiter.check(any(), eq("+9876543210")))
+				.thenReturn(new SendRateLimiter.Throttle(SendRateLimiter.Scope.RECIPIENT, 1_000_000_000L));
+		SmsResponse sent = new SmsResponse("SMS sent to +1234567890");
+		sent.setStatus("successful");
+		SmsResponse throttled = new SmsResponse("Rate limit exceeded for this recipient");
+		throttled.setStatus("throttled");
+		when(smsService.sendBatch(anyList())).thenReturn(List.of(sent));
+		when(smsService.throttled(any(SmsRequest.class), isNull(), any())).thenReturn(throttled);
+
+		String request = """
+					[
+						{ "phoneNumber": "+1234567890", "message": "Hello" },
+						{ "phoneNumber": "+9876543210", "message": "Hello" }
+					]
+				""";
+
+		mockMvc.perform(post("/v1/sms/send/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(request))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].status").value("successful"))
+				.andExpect(jsonPath("$[1].status").value("throttled"));
+
+		verify(smsService, times(1)).sendBatch(argThat(requests -> requests.size() == 1
+				&& requests.get(0).getPhoneNumber().equals("+1234567890")));
+	}
+
+	@Test
+	void testIdempotentRetryReturnsStoredResponse() throws Exception {
+		SmsResponse first = new SmsResponse("SMS sent to +1234567890");
+		when(idempotency.key(any(), eq("key-1"))).thenReturn("key-1");
+		when(idempotency.claim("key-1")).thenReturn(new IdempotencyStore.Claim(IdempotencyStore.State.DONE,
+				new IdempotencyStore.Outcome(200, first)));
+
+		mockMvc.perform(post("/v1/sms/send")
+				.header("Idempotency-Key", "key-1")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"phoneNumber\": \"+1234567890\", \"message\": \"Hello\"}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.result").value("SMS sent to +1234567890"));
+
+		verify(smsService, never()).sendSms(any(SmsRequest.class));
+	}
+
+	@Test
+	void testIdempotentFirstRequestStoresResponse() throws Exception {
+		when(idempotency.key(any(), eq("key-1"))).thenReturn("key-1");
+		when(idempotency.claim("key-1")).thenReturn(new IdempotencyStore.Claim(IdempotencyStore.State.NEW, null));
+		when(smsService.sendSms(any(SmsRequest.class))).thenReturn("SMS sent to +1234567890");
+
+		mockMvc.perform(post("/v1/sms/send")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"phoneNumber\": \"+1234567890\", \"message\": \"Hello\", \"idempotencyKey\": \"key-1\"}"))
+				.andExpect(status().isOk());
+
+		verify(idempotency, times(1)).complete(eq("key-1"), argThat(outcome -> outcome.httpStatus() == 200
+				&& outcome.response().getResult().equals("SMS sent to +1234567890")));
+		verify(idempotency, never()).release(any());
+	}
+
+	@Test
+	void testIdempotentRequestStillRunningReturnsConflict() throws Exception {
+		when(idempotency.key(any(), eq("key-1"))).thenReturn("key-1");
+		when(idempotency.claim("key-1"))
+				.thenReturn(new IdempotencyStore.Claim(IdempotencyStore.State.IN_PROGRESS, null));
+
+		mockMvc.perform(post("/v1/sms/send/async")
+				.header("Idempotency-Key", "key-1")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"phoneNumber\": \"+1234567890\", \"message\": \"Hello\"}"))
+				.andExpect(status().isConflict());
+
+		verify(smsDispatcher, never()).submit(any(SmsRequest.class));
+	}
+
+	@Test
+	void testBatch_IdempotencyKeysCompletedAfterSend() throws Exception {
+		when(idempotency.key(any(), eq("key-1"))).thenReturn("key-1");
+		when(idempotency.claim("key-1")).thenReturn(new IdempotencyStore.Claim(IdempotencyStore.State.NEW, null));
+		SmsResponse sent = new SmsResponse("SMS sent to +1234567890");
+		sent.setStatus("successful");
+		when(smsService.sendBatch(anyList())).thenReturn(List.of(sent));
+
+		mockMvc.perform(post("/v1/sms/send/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[{\"phoneNumber\": \"+1234567890\", \"message\": \"Hello\", \"idempotencyKey\": \"key-1\"}]"))
+				.andExpect(status().isOk());
+
+		verify(idempotency).complete(eq("key-1"), argThat(outcome -> outcome.response() == sent));
+		verify(idempotency, never()).release(any());
+	}
+
+	@Test
+	void testBatch_ClaimsReleasedWhenRateLimiterFails() throws Exception {
+		when(idempotency.key(any(), eq("key-1"))).thenReturn("key-1");
+		when(idempotency.key(any(), eq("key-2"))).thenReturn("key-2");
+		when(idempotency.claim(any())).thenReturn(new IdempotencyStore.Claim(IdempotencyStore.State.NEW, null));
+		when(rateLimiter.check(any(), eq("+9876543210"))).thenThrow(new IllegalStateException("limiter broken"));
+
+		String request = """
+					[
+						{ "phoneNumber": "+1234567890", "message": "Hello", "idempotencyKey": "key-1" },
+						{ "phoneNumber": "+9876543210", "message": "Hello", "idempotencyKey": "key-2" }
+					]
+				""";
+
+		try {
+			mockMvc.perform(post("/v1/sms/send/batch")
+					.contentType(MediaType.APPLICATION_JSON)
+					.content(request));
+		} catch (Exception e) {
+			// Unhandled in a @WebMvcTest; only the released claims matter here
+		}
+
+		verify(idempotency).release("key-1");
+		verify(idempotency).release("key-2");
+		verify(smsService, never()).sendBatch(anyList());
+	}
+
+	@Test
+	void testClientHeaderIgnoredFromUntrustedAddress() throws Exception {
+		mockMvc.perform(post("/v1/sms/send")
+				.with(fromAddress("203.0.113.7"))
+				.header("X-Client-Id", "someone-else")
+				.header("X-Forwarded-For", "198.51.100.1")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"phoneNumber\": \"+1234567890\", \"message\": \"Hello\"}"))
+				.andExpect(status().isOk());
+
+		verify(rateLimiter).check("203.0.113.7", "+1234567890");
+	}
+
+	@Test
+	void testForwardedAddressUsedFromTrustedProxy() throws Exception {
+		mockMvc.perform(post("/v1/sms/send")
+				.with(fromAddress("10.0.0.1"))
+				.header("X-Forwarded-For", "198.51.100.1, 203.0.113.7, 10.0.0.1")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"phoneNumber\": \"+1234567890\", \"message\": \"Hello\"}"))
+				.andExpect(status().isOk());
+
+		// The left-most entries are whatever the caller sent; the last untrusted hop is the caller
+		verify(rateLimiter).check("203.0.113.7", "+1234567890");
+	}
+
+	@Test
+	void testAuthenticatedPrincipalIsTheClient() throws Exception {
+		mockMvc.perform(post("/v1/sms/send")
+				.principal(() -> "billing-service")
+				.header("X-Client-Id", "someone-else")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"phoneNumber\": \"+1234567890\", \"message\": \"Hello\"}"))
+				.andExpect(status().isOk());
+
+		verify(rateLimiter).check("billing-service", "+1234567890");
+	}
+
+	private static RequestPostProcessor fromAddress(String remoteAddress) {
+		return request -> {
+			request.setRemoteAddr(remoteAddress);
+			return request;
+		};
+	}
 }
@@ -2,10 +2,16 @@ package com.example.demo;
 
 import com.example.demo.model.SmsEvent;
 import com.example.demo.model.SmsRequest;
+import com.example.demo.model.SmsResponse;
+import com.example.demo.model.SmsStatus;
 import com.example.demo.service.BlacklistCache;
+import com.example.demo.service.EventPublishException;
+import com.example.demo.service.RetryScheduler;
+import com.example.demo.service.SendMetrics;
 import com.example.demo.service.SmsEventProducer;
+import com.example.demo.service.SmsProvider;
+import com.example.demo.service.SmsProviderException;
 import com.example.demo.service.SmsService;
-import com.example.demo.service.TwillioService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,8 +21,12 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.net.http.HttpTimeoutException;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -30,7 +40,13 @@ public class SmsServiceTest {
     private SmsEventProducer eventProducer;
 
     @Mock
-    private TwillioService twillioService;
+    private SmsProvider provider;
+
+    @Mock
+    private RetryScheduler retries;
+
+    @Mock
+    private SendMetrics metrics;
 
     @InjectMocks
     private SmsService smsService;
@@ -38,6 +54,9 @@ public class SmsServiceTest {
     @Captor
     private ArgumentCaptor<SmsEvent> smsEventCaptor;
 
+    @Captor
+    private ArgumentCaptor<Runnable> retryCaptor;
+
     private SmsRequest validRequest;
 
     @BeforeEach
@@ -56,13 +75,13 @@ public class SmsServiceTest {
         // Assert
         assertEquals("SMS sent to +1234567890", result);
         verify(blacklistCache, times(1)).isBlacklisted("+1234567890");
-        verify(twillioService, times(1)).sendSms("+1234567890", "Test message");
-        verify(eventProducer, times(1)).sendSmsEvent(smsEventCaptor.capture());
+        verify(provider, times(1)).sendSms("+1234567890", "Test message");
+        verify(eventProducer, times(1)).sendSmsEventNoWait(smsEventCaptor.capture());
 
         SmsEvent capturedEvent = smsEventCaptor.getValue();
         assertEquals("+1234567890", capturedEvent.getPhoneNumber());
         assertEquals("Test message", capturedEvent.getMessage());
-        assertEquals("Sent", capturedEvent.getStatus());
+        assertEquals(SmsStatus.SUCCESSFUL, capturedEvent.getStatus());
     }
 
     @Test
@@ -76,13 +95,13 @@ public class SmsServiceTest {
         // Assert
         assertEquals("Failed: Phone number is blacklisted", result);
         verify(blacklistCache, times(1)).isBlacklisted("+1234567890");
-        verify(twillioService, never()).sendSms(any(), any());
+        verify(provider, never()).sendSms(any(), any());
         verify(eventProducer, times(1)).sendSmsEvent(smsEventCaptor.capture());
 
         SmsEvent capturedEvent = smsEventCaptor.getValue();
         assertEquals("+1234567890", capturedEvent.getPhoneNumber());
         assertEquals("Test message", capturedEvent.getMessage());
-        assertEquals("Failed: Phone number is blacklisted", capturedEvent.getStatus());
+        assertEquals(SmsStatus.BLOCKED, capturedEvent.getStatus());
     }
 
     @Test
@@ -97,8 +116,8 @@ public class SmsServiceTest {
         // Assert
         assertEquals("SMS sent to +9876543210", result);
         verify(blacklistCache, times(1)).isBlacklisted("+9876543210");
-        verify(twillioService, times(1)).sendSms("+9876543210", "Hello World");
-        verify(eventProducer, times(1)).sendSmsEvent(any(SmsEvent.class));
+        verify(provider, times(1)).sendSms("+9876543210", "Hello World");
+        verify(eventProducer, times(1)).sendSmsEventNoWait(any(SmsEvent.class));
     }
 
     @Test
@@ -113,13 +132,42 @@ public class SmsServiceTest {
 
         // Assert
         assertEquals("SMS sent to +1234567890", result);
-        verify(twillioService, times(1)).sendSms("+1234567890", longMessage);
-        verify(eventProducer, times(1)).sendSmsEvent(smsEventCaptor.capture());
+        verify(provider, times(1)).sendSms("+1234567890", longMessage);
+        verify(eventProducer, times(1)).sendSmsEventNoWait(smsEventCaptor.capture());
 
         SmsEvent capturedEvent = smsEventCaptor.getValue();
         assertEquals(longMessage, capturedEvent.getMessage());
     }
 
+    @Test
+    void testSendSms_EventRecordsSegmentCount() {
+        // Arrange: 200 GSM-7 characters go out as two concatenated parts
+        SmsRequest request = new SmsRequest("+1234567890", "x".repeat(200));
+        when(blacklistCache.isBlacklisted("+1234567890")).thenReturn(false);
+
+        // Act
+        smsService.sendSms(request);
+
+        // Assert
+        verify(eventProducer).sendSmsEventNoWait(smsEventCaptor.capture());
+        assertEquals(2, smsEventCaptor.getValue().getSegments());
+    }
+
+    @Test
+    void testSendSms_StagesAndOutcomeRecorded() {
+        // Arrange
+        when(blacklistCache.isBlacklisted("+1234567890")).thenReturn(false);
+
+        // Act
+        smsService.sendSms(validRequest);
+
+        // Assert
+        verify(metrics).record(eq(SendMetrics.Stage.BLACKLIST), anyLong());
+        verify(metrics).record(eq(SendMetrics.Stage.PROVIDER), anyLong());
+        verify(metrics).record(eq(SendMetrics.Stage.PUBLISH), anyLong());
+        verify(metrics).outcome("successful");
+    }
+
     @Test
     void testSendSms_EmptyMessage() {
         // Arrange
@@ -131,7 +179,7 @@ public class SmsServiceTest {
 
         // Assert
         assertEquals("SMS sent to +1234567890", result);
-        verify(twillioService, times(1)).sendSms("+1234567890", "");
+        verify(provider, times(1)).sendSms("+1234567890", "");
     }
 
     @Test
@@ -150,8 +198,8 @@ public class SmsServiceTest {
 
         // Assert
         verify(blacklistCache, times(3)).isBlacklisted(any());
-        verify(twillioService, times(3)).sendSms(any(), any());
-        verify(eventProducer, times(3)).sendSmsEvent(any(SmsEvent.class));
+        verify(provider, times(3)).sendSms(any(), any());
+        verify(eventProducer, times(3)).sendSmsEventNoWait(any(SmsEvent.class));
     }
 
     @Test
@@ -162,8 +210,8 @@ public class SmsServiceTest {
         // Act
         smsService.sendSms(validRequest);
 
-        // Assert - TwillioService should NOT be called if blacklisted
-        verify(twillioService, never()).sendSms(any(), any());
+        // Assert - Provider should NOT be called if blacklisted
+        verify(provider, never()).sendSms(any(), any());
     }
 
     @Test
@@ -176,6 +224,185 @@ public class SmsServiceTest {
         smsService.sendSms(new SmsRequest("+9999999999", "Test"));
 
         // Assert - Event producer should be called for both success and failure
-        verify(eventProducer, times(2)).sendSmsEvent(any(SmsEvent.class));
+        verify(eventProducer).sendSmsEventNoWait(any(SmsEvent.class));
+        verify(eventProducer).sendSmsEvent(any(SmsEvent.class));
+    }
+
+    @Test
+    void testSendBatch_MixedOutcomesInRequestOrder() {
+        // Arrange
+        List<SmsRequest> requests = List.of(
+                new SmsRequest("+1111111111", "Message 1"),
+                new SmsRequest("+2222222222", "Message 2"),
+                new SmsRequest("+3333333333", "Message 3"));
+        when(blacklistCache.areBlacklisted(List.of("+1111111111", "+2222222222", "+3333333333")))
+                .thenReturn(new boolean[] { false, true, false });
+        // Lenient: the other items call sendSms with different arguments, which strict stubs reject
+        lenient().doThrow(new RuntimeException("Provider down")).when(provider).sendSms("+3333333333", "Message 3");
+
+        // Act
+        List<SmsResponse> responses = smsService.sendBatch(requests);
+
+        // Assert
+        assertEquals(3, responses.size());
+        assertEquals("successful", responses.get(0).getStatus());
+        assertEquals("SMS sent to +1111111111", responses.get(0).getResult());
+        assertEquals("blocked", responses.get(1).getStatus());
+        assertEquals("unsuccessful", responses.get(2).getStatus());
+        assertEquals("Failed to send SMS: Provider down", responses.get(2).getResult());
+        verify(provider, never()).sendSms(eq("+2222222222"), any());
+    }
+
+    @Test
+    void testSendSms_BackPressureRefusesBeforeProviderCall() {
+        // Arrange
+        when(blacklistCache.isBlacklisted("+1234567890")).thenReturn(false);
+        doThrow(new EventPublishException("SMS event retry buffer is full")).when(eventProducer).awaitCapacity();
+
+        // Act
+        assertThrows(EventPublishException.class, () -> smsService.sendSms(validRequest));
+
+        // Assert
+        verify(provider, never()).sendSms(any(), any());
+        verify(eventProducer, never()).sendSmsEventNoWait(any());
+    }
+
+    @Test
+    void testSendBatch_SingleLookupAndSinglePublish() {
+        // Arrange
+        List<SmsRequest> requests = List.of(
+                new SmsRequest("+1111111111", "Message 1"),
+                new SmsRequest("+2222222222", "Message 2"));
+        when(blacklistCache.areBlacklisted(any())).thenReturn(new boolean[] { false, false });
+
+        // Act
+        smsService.sendBatch(requests);
+
+        // Assert
+        verify(blacklistCache, times(1)).areBlacklisted(any());
+        verify(blacklistCache, never()).isBlacklisted(any());
+        verify(eventProducer, times(1)).sendSmsEventsNoWait(argThat(events -> events.size() == 2));
+        verify(eventProducer, never()).sendSmsEvent(any());
+    }
+
+    @Test
+    void testSendSms_TransientFailureIsRetried() {
+        // Arrange
+        when(blacklistCache.isBlacklisted("+1234567890")).thenReturn(false);
+        doThrow(new SmsProviderException("twilio", "Provider returned HTTP 503", 503, true))
+                .doNothing()
+                .when(provider).sendSms("+1234567890", "Test message");
+        when(retries.scheduleRetry(eq(1), retryCaptor.capture())).thenReturn(true);
+        when(retries.maxAttempts()).thenReturn(4);
+
+        // Act
+        SmsResponse first = smsService.send(validRequest, "id-1");
+        retryCaptor.getValue().run();
+
+        // Assert
+        assertEquals("retry_scheduled", first.getStatus());
+        assertEquals("Failed to send SMS: Provider returned HTTP 503 (attempt 1 of 4, retry scheduled)",
+                first.getResult());
+        verify(provider, times(2)).sendSms("+1234567890", "Test message");
+        verify(eventProducer, times(2)).sendSmsEventNoWait(smsEventCaptor.capture());
+        List<SmsEvent> events = smsEventCaptor.getAllValues();
+        assertEquals("retry_scheduled", events.get(0).getStatus());
+        assertEquals(1, events.get(0).getAttempt());
+        assertEquals("successful", events.get(1).getStatus());
+        assertEquals(2, events.get(1).getAttempt());
+        assertEquals("id-1", events.get(1).getEventId());
+    }
+
+    @Test
+    void testSendSms_RetryOutcomeReachesListener() {
+        // Arrange
+        when(blacklistCache.isBlacklisted("+1234567890")).thenReturn(false);
+        doThrow(new SmsProviderException("twilio", "Provider returned HTTP 503", 503, true))
+                .doNothing()
+                .when(provider).sendSms("+1234567890", "Test message");
+        when(retries.scheduleRetry(eq(1), retryCaptor.capture())).thenReturn(true);
+        when(retries.maxAttempts()).thenReturn(4);
+        SmsResponse[] outcome = new SmsResponse[1];
+        smsService.setRetryListener((messageId, response) -> outcome[0] = response);
+
+        // Act
+        smsService.send(validRequest, "id-1");
+        retryCaptor.getValue().run();
+
+        // Assert
+        assertEquals("successful", outcome[0].getStatus());
+    }
+
+    @Test
+    void testSendSms_RetryThatThrowsReportsFailure() {
+        // Arrange
+        when(blacklistCache.isBlacklisted("+1234567890"))
+                .thenReturn(false)
+                .thenThrow(new IllegalStateException("Redis unavailable"));
+        doThrow(new SmsProviderException("twilio", "Provider returned HTTP 503", 503, true))
+                .when(provider).sendSms("+1234567890", "Test message");
+        when(retries.scheduleRetry(eq(1), retryCaptor.capture())).thenReturn(true);
+        when(retries.maxAttempts()).thenReturn(4);
+        SmsResponse[] outcome = new SmsResponse[1];
+        smsService.setRetryListener((messageId, response) -> outcome[0] = response);
+
+        // Act
+        smsService.send(validRequest, "id-1");
+        Runnable retry = retryCaptor.getValue();
+
+        // Assert
+        assertThrows(IllegalStateException.class, retry::run);
+        assertEquals("unsuccessful", outcome[0].getStatus());
+        assertEquals("Failed to send SMS: Redis unavailable", outcome[0].getResult());
+    }
+
+    @Test
+    void testSendSms_RejectedMessageIsNotRetried() {
+        // Arrange
+        when(blacklistCache.isBlacklisted("+1234567890")).thenReturn(false);
+        doThrow(new SmsProviderException("twilio", "Provider returned HTTP 400", 400, false))
+                .when(provider).sendSms("+1234567890", "Test message");
+
+        // Act
+        SmsResponse response = smsService.send(validRequest, null);
+
+        // Assert
+        assertEquals("unsuccessful", response.getStatus());
+        verify(retries, never()).scheduleRetry(anyInt(), any());
+    }
+
+    @Test
+    void testSendSms_ReadTimeoutIsUnknownAndNotRetried() {
+        // Arrange
+        when(blacklistCache.isBlacklisted("+1234567890")).thenReturn(false);
+        doThrow(new SmsProviderException("twilio", "Provider call failed",
+                new HttpTimeoutException("request timed out")))
+                .when(provider).sendSms("+1234567890", "Test message");
+
+        // Act
+        SmsResponse response = smsService.send(validRequest, null);
+
+        // Assert
+        assertEquals(SmsStatus.UNKNOWN, response.getStatus());
+        verify(retries, never()).scheduleRetry(anyInt(), any());
+        verify(eventProducer).sendSmsEventNoWait(smsEventCaptor.capture());
+        assertEquals(SmsStatus.UNKNOWN, smsEventCaptor.getValue().getStatus());
+    }
+
+    @Test
+    void testSendSms_AttemptBudgetSpent() {
+        // Arrange
+        when(blacklistCache.isBlacklisted("+1234567890")).thenReturn(false);
+        doThrow(new SmsProviderException("twilio", "Provider returned HTTP 503", 503, true))
+                .when(provider).sendSms("+1234567890", "Test message");
+        when(retries.scheduleRetry(eq(1), any())).thenReturn(false);
+
+        // Act
+        SmsResponse response = smsService.send(validRequest, null);
+
+        // Assert
+        assertEquals("unsuccessful", response.getStatus());
+        verify(eventProducer).sendSmsEventNoWait(smsEventCaptor.capture());
+        assertEquals("unsuccessful", smsEventCaptor.getValue().getStatus());
     }
 }
@@ -0,0 +1,99 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+import com.example.demo.config.ProviderProperties;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+/**
+ * Local stand-in for the provider's Messages API. Answers every POST with 201 after an
+ * adjustable delay, or with errorStatus for the given fraction of calls. Point a provider at it
+ * with {@link #configure(ProviderProperties)}. It speaks TLS like a real provider, with a
+ * self-signed certificate that {@link #clientSslContext()} trusts; with http2, HTTP/2 is
+ * offered through ALPN.
+ */
+class StubProviderServer implements AutoCloseable {
+    private static final HeldCertificate CERTIFICATE = new HeldCertificate.Builder()
+            .addSubjectAlternativeName("localhost")
+            .addSubjectAlternativeName("127.0.0.1")
+            .build();
+
+    private final MockWebServer server = new MockWebServer();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile long latencyMillis;
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+
+    StubProviderServer(boolean http2) throws IOException {
+        server.useHttps(new HandshakeCertificates.Builder().heldCertificate(CERTIFICATE).build().sslSocketFactory(),
+                false);
+        server.setProtocols(http2 ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1));
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                requests.incrementAndGet();
+                if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    return new MockResponse().setResponseCode(errorStatus)
+                            .setHeadersDelay(latencyMillis, TimeUnit.MILLISECONDS)
+                            .setBody("{\"code\":20500,\"message\":\"stub error\"}");
+                }
+                return new MockResponse().setResponseCode(201)
+                        .setHeadersDelay(latencyMillis, TimeUnit.MILLISECONDS)
+                        .addHeader("Content-Type", "application/json")
+                        .setBody("{\"sid\":\"SM" + requests.get() + "\",\"status\":\"queued\"}");
+            }
+        });
+        server.start();
+    }
+
+    void configure(ProviderProperties properties) {
+        properties.getTwilio().setBaseUrl(baseUrl());
+        properties.getTwilio().setAccountSid("ACstub");
+        properties.getTwilio().setAuthToken("token");
+        properties.getTwilio().setFrom("+15550000000");
+    }
+
+    String baseUrl() {
+        return server.url("/").toString();
+    }
+
+    // Trusts the stub's certificate only
+    static SSLContext clientSslContext() {
+        return new HandshakeCertificates.Builder().addTrustedCertificate(CERTIFICATE.certificate()).build().sslContext();
+    }
+
+    void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    void setErrorRate(double errorRate, int errorStatus) {
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+    }
+
+    int requestCount() {
+        return requests.get();
+    }
+
+    RecordedRequest takeRequest() throws InterruptedException {
+        return server.takeRequest(5, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+}
@@ -1,105 +1,189 @@
 package com.example.demo;
 
+import com.example.demo.config.ProviderClientConfig;
+import com.example.demo.config.ProviderProperties;
+import com.example.demo.service.ProviderConnectionMetrics;
+import com.example.demo.service.SmsProviderException;
 import com.example.demo.service.TwillioService;
-import org.junit.jupiter.api.BeforeEach;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.io.ByteArrayOutputStream;
-import java.io.PrintStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@ExtendWith(MockitoExtension.class)
 public class TwillioServiceTest {
 
-    @InjectMocks
-    private TwillioService twillioService;
+    private MeterRegistry registry = new SimpleMeterRegistry();
+    private final ProviderConnectionMetrics connectionMetrics = new ProviderConnectionMetrics();
+    private StubProviderServer provider;
 
-    private ByteArrayOutputStream outputStream;
-    private PrintStream originalOut;
-
-    @BeforeEach
-    void setUp() {
-        // Capture System.out for testing console output
-        outputStream = new ByteArrayOutputStream();
-        originalOut = System.out;
-        System.setOut(new PrintStream(outputStream));
+    @AfterEach
+    void tearDown() throws IOException {
+        if (provider != null) {
+            provider.close();
+        }
     }
 
     @Test
-    void testSendSms_Success() {
+    void testSendSms_PostsMessageToProvider() throws Exception {
         // Arrange
-        String phoneNumber = "+1234567890";
-        String message = "Hello World";
+        TwillioService twillioService = service(false, ProviderProperties.Protocol.HTTP_1_1);
 
         // Act
-        twillioService.sendSms(phoneNumber, message);
+        twillioService.sendSms("+1234567890", "Hello World");
 
         // Assert
-        String output = outputStream.toString();
-        assertTrue(output.contains("Sending SMS to " + phoneNumber));
-        assertTrue(output.contains(message));
+        RecordedRequest request = provider.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals("/2010-04-01/Accounts/ACstub/Messages.json", request.getPath());
+        assertTrue(request.getHeader("Authorization").startsWith("Basic "));
+        String body = request.getBody().readUtf8();
+        assertTrue(body.contains("To=%2B1234567890"));
+        assertTrue(body.contains("From=%2B15550000000"));
+        assertTrue(body.contains("Body=Hello+World"));
     }
 
     @Test
-    void testSendSms_WithDifferentPhoneNumber() {
+    void testSendSms_ServerErrorIsRetryable() throws Exception {
         // Arrange
-        String phoneNumber = "+9876543210";
-        String message = "Test message";
+        TwillioService twillioService = service(false, ProviderProperties.Protocol.HTTP_1_1);
+        provider.setErrorRate(1, 503);
+
+        // Act & Assert
+        SmsProviderException e = assertThrows(SmsProviderException.class,
+                () -> twillioService.sendSms("+1234567890", "Hello"));
+        assertEquals(503, e.getStatusCode());
+        assertTrue(e.isRetryable());
+        assertEquals("twilio", e.getProvider());
+    }
 
-        // Act
-        twillioService.sendSms(phoneNumber, message);
+    @Test
+    void testSendSms_ClientErrorIsNotRetryable() throws Exception {
+        // Arrange
+        TwillioService twillioService = service(false, ProviderProperties.Protocol.HTTP_1_1);
+        provider.setErrorRate(1, 400);
+
+        // Act & Assert
+        SmsProviderException e = assertThrows(SmsProviderException.class,
+                () -> twillioService.sendSms("+1234567890", "Hello"));
+        assertEquals(400, e.getStatusCode());
+        assertFalse(e.isRetryable());
+    }
 
-        // Assert
-        String output = outputStream.toString();
-        assertTrue(output.contains(phoneNumber));
-        assertTrue(output.contains(message));
+    @Test
+    void testSendSms_ReadTimeout() throws Exception {
+        // Arrange
+        ProviderProperties properties = new ProviderProperties();
+        properties.setProtocol(ProviderProperties.Protocol.HTTP_1_1);
+        properties.setReadTimeout(Duration.ofMillis(1000));
+        TwillioService twillioService = service(false, properties);
+        // Open the connection first: the request timeout also covers connecting, and a timeout
+        // there is reported as a connect failure
+        twillioService.sendSms("+1234567890", "Warm-up");
+        provider.setLatencyMillis(3000);
+
+        // Act & Assert
+        SmsProviderException e = assertThrows(SmsProviderException.class,
+                () -> twillioService.sendSms("+1234567890", "Hello"));
+        assertEquals(0, e.getStatusCode());
+        // The request was written: the provider may have accepted it, so it is not sent again
+        assertFalse(e.isRetryable());
+        assertFalse(e.isNotSent());
+        assertTrue(e.isOutcomeUnknown());
+        assertEquals(1, registry.get("sms.provider.latency").tag("outcome", "io_error").timer().count());
     }
 
     @Test
-    void testSendSms_WithEmptyMessage() {
+    void testSendSms_ConnectionRefusedWasNotSent() throws Exception {
         // Arrange
-        String phoneNumber = "+1234567890";
-        String message = "";
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        ProviderProperties properties = new ProviderProperties();
+        properties.getTwilio().setBaseUrl("https://127.0.0.1:" + closedPort);
+        TwillioService twillioService = new TwillioService(
+                ProviderClientConfig.builder(properties, StubProviderServer.clientSslContext()).build(), properties,
+                registry, connectionMetrics);
+
+        // Act & Assert
+        SmsProviderException e = assertThrows(SmsProviderException.class,
+                () -> twillioService.sendSms("+1234567890", "Hello"));
+        // Never reached the provider: safe to send through another one
+        assertTrue(e.isRetryable());
+        assertTrue(e.isNotSent());
+        assertFalse(e.isOutcomeUnknown());
+    }
+
+    @Test
+    void testKeepAliveConnectionIsReused() throws Exception {
+        // Arrange
+        TwillioService twillioService = service(false, ProviderProperties.Protocol.HTTP_1_1);
 
         // Act
-        twillioService.sendSms(phoneNumber, message);
+        for (int i = 0; i < 10; i++) {
+            twillioService.sendSms("+1234567890", "Message " + i);
+        }
 
         // Assert
-        String output = outputStream.toString();
-        assertTrue(output.contains("Sending SMS to " + phoneNumber));
+        assertEquals(1, connectionMetrics.openedCount());
+        assertEquals(9, connectionMetrics.reusedCount());
+        assertEquals(0.9, connectionMetrics.reuseRatio(), 1e-9);
     }
 
     @Test
-    void testSendSms_WithLongMessage() {
+    void testHttp2Negotiated() throws Exception {
         // Arrange
-        String phoneNumber = "+1234567890";
-        String message = "This is a very long message that exceeds the typical SMS length limit to test how the service handles long messages";
+        TwillioService twillioService = service(true, ProviderProperties.Protocol.HTTP_2);
 
         // Act
-        twillioService.sendSms(phoneNumber, message);
-
-        // Assert
-        String output = outputStream.toString();
-        assertTrue(output.contains("Sending SMS to " + phoneNumber));
-        assertTrue(output.contains(message));
+        twillioService.sendSms("+1234567890", "Hello");
+        twillioService.sendSms("+1234567890", "Hello again");
+
+        // Assert - HTTP/2 negotiated through ALPN, both calls share one connection
+        assertEquals(2, provider.requestCount());
+        assertEquals("https", provider.takeRequest().getHeader(":scheme")); // HTTP/2 pseudo-header
+        assertEquals(1, connectionMetrics.openedCount());
+        assertEquals(1, connectionMetrics.reusedCount());
     }
 
     @Test
-    void testConstructor() {
+    void testLatencyHistogramRecorded() throws Exception {
+        // Arrange: SimpleMeterRegistry never exposes percentile-histogram buckets, Prometheus does
+        PrometheusMeterRegistry prometheus = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry = prometheus;
+        TwillioService twillioService = service(false, ProviderProperties.Protocol.HTTP_1_1);
+
         // Act
-        TwillioService service = new TwillioService();
+        twillioService.sendSms("+1234567890", "Hello");
+        twillioService.sendSms("+1234567890", "Hello");
 
         // Assert
-        assertNotNull(service);
+        Timer timer = registry.get("sms.provider.latency").tags("provider", "twilio", "outcome", "success").timer();
+        assertEquals(2, timer.count());
+        assertTrue(prometheus.scrape().contains("sms_provider_latency_seconds_bucket{"));
+    }
+
+    private TwillioService service(boolean http2, ProviderProperties.Protocol protocol) throws IOException {
+        ProviderProperties properties = new ProviderProperties();
+        properties.setProtocol(protocol);
+        return service(http2, properties);
     }
 
-    @org.junit.jupiter.api.AfterEach
-    void tearDown() {
-        // Restore original System.out
-        System.setOut(originalOut);
+    private TwillioService service(boolean http2, ProviderProperties properties) throws IOException {
+        provider = new StubProviderServer(http2);
+        provider.configure(properties);
+        return new TwillioService(ProviderClientConfig.builder(properties,
+                connectionMetrics.countConnections(StubProviderServer.clientSslContext())).build(), properties, registry,
+                connectionMetrics);
     }
 }
@@ -0,0 +1,89 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import javax.net.ssl.SSLContext;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.ProviderClientConfig;
+import com.example.demo.config.ProviderProperties;
+import com.example.demo.service.ProviderConnectionMetrics;
+import com.example.demo.service.SmsProviderException;
+import com.example.demo.service.VonageService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+class VonageServiceTest {
+
+    private final MockWebServer server = new MockWebServer();
+    private VonageService vonageService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server.start();
+        ProviderProperties properties = new ProviderProperties();
+        properties.setProtocol(ProviderProperties.Protocol.HTTP_1_1);
+        properties.getVonage().setBaseUrl(server.url("/").toString());
+        properties.getVonage().setApiKey("key");
+        properties.getVonage().setApiSecret("secret");
+        properties.getVonage().setFrom("Demo");
+        vonageService = new VonageService(ProviderClientConfig.builder(properties, SSLContext.getDefault()).build(),
+                properties, new SimpleMeterRegistry(), new ProviderConnectionMetrics());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void testSendSms_Accepted() throws Exception {
+        server.enqueue(response("0", ""));
+
+        vonageService.sendSms("+1234567890", "Hello");
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/sms/json", request.getPath());
+        String body = request.getBody().readUtf8();
+        assertTrue(body.contains("to=1234567890"));
+        assertTrue(body.contains("api_key=key"));
+    }
+
+    @Test
+    void testThrottledIsRetryable() {
+        server.enqueue(response("1", "Throughput Rate Exceeded"));
+
+        SmsProviderException e = assertThrows(SmsProviderException.class,
+                () -> vonageService.sendSms("+1234567890", "Hello"));
+        assertTrue(e.isRetryable());
+        assertEquals("vonage", e.getProvider());
+    }
+
+    @Test
+    void testInvalidMessageIsNotRetryable() {
+        server.enqueue(response("3", "Invalid to parameter"));
+
+        SmsProviderException e = assertThrows(SmsProviderException.class,
+                () -> vonageService.sendSms("+1234567890", "Hello"));
+        assertFalse(e.isRetryable());
+        assertTrue(e.getMessage().contains("Invalid to parameter"));
+    }
+
+    private static MockResponse response(String status, String errorText) {
+        return new MockResponse()
+                .addHeader("Content-Type", "application/json")
+                .setBody("{\"message-count\":\"1\",\"messages\":[{\"status\":\"" + status
+                        + "\",\"error-text\":\"" + errorText + "\"}]}");
+    }
+}
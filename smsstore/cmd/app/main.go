@@ -2,7 +2,6 @@ package main
 
 import (
 	"context"
-	"encoding/json"
 	"log"
 	"net/http"
 	"os"
@@ -82,8 +81,8 @@ func consumeKafkaMessages(cfg *config.Config) {
 			continue
 		}
 
-		var smsEvent models.SmsEvent
-		if err := json.Unmarshal(msg.Value, &smsEvent); err != nil {
+		smsEvent, err := models.DecodeSmsEvent(msg.Value)
+		if err != nil {
 			log.Printf("Error unmarshaling SMS event: %v", err)
 			continue
 		}
@@ -1,7 +1,72 @@
 package models
 
+import (
+	"encoding/binary"
+	"encoding/json"
+	"errors"
+)
+
 type SmsEvent struct {
 	PhoneNumber string `json:"phoneNumber" bson:"phoneNumber"`
 	Message     string `json:"message" bson:"message"`
 	Status	  string `json:"status" bson:"status"`
-}
\ No newline at end of file
+	EventID     string `json:"eventId,omitempty" bson:"eventId,omitempty"`
+	// Attempt is the 1-based provider attempt the event reports on; 0 when the producer predates it.
+	Attempt     int    `json:"attempt,omitempty" bson:"attempt,omitempty"`
+	// Segments is the number of SMS the message is sent as (GSM-7 or UCS-2 parts); 0 when unknown.
+	Segments    int    `json:"segments,omitempty" bson:"segments,omitempty"`
+}
+
+// binaryMarker starts records written by sms-sender's SmsEventBinarySerializer; JSON never does.
+const binaryMarker = 0x00
+
+var errTruncated = errors.New("truncated binary SmsEvent")
+
+// DecodeSmsEvent accepts both wire formats: JSON (JsonSerializer) and the versioned binary
+// layout. Binary fields are varint(len+1)-prefixed UTF-8 strings (0 = null) in the order
+// phoneNumber, message, status, eventId, then (version 2+) a varint attempt and (version 3+) a
+// varint segment count; fields added by newer versions are ignored.
+func DecodeSmsEvent(data []byte) (SmsEvent, error) {
+	var event SmsEvent
+	if len(data) == 0 || data[0] != binaryMarker {
+		err := json.Unmarshal(data, &event)
+		return event, err
+	}
+	if len(data) < 2 || data[1] < 1 {
+		return event, errors.New("unsupported binary SmsEvent version")
+	}
+	rest := data[2:]
+	fields := []*string{&event.PhoneNumber, &event.Message, &event.Status, &event.EventID}
+	for _, field := range fields {
+		header, n := binary.Uvarint(rest)
+		if n <= 0 {
+			return event, errTruncated
+		}
+		rest = rest[n:]
+		if header == 0 {
+			continue
+		}
+		length := header - 1
+		if length > uint64(len(rest)) {
+			return event, errTruncated
+		}
+		*field = string(rest[:length])
+		rest = rest[length:]
+	}
+	if data[1] >= 2 {
+		attempt, n := binary.Uvarint(rest)
+		if n <= 0 {
+			return event, errTruncated
+		}
+		event.Attempt = int(attempt)
+		rest = rest[n:]
+	}
+	if data[1] >= 3 {
+		segments, n := binary.Uvarint(rest)
+		if n <= 0 {
+			return event, errTruncated
+		}
+		event.Segments = int(segments)
+	}
+	return event, nil
+}